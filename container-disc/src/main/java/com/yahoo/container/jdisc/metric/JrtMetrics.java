@@ -2,8 +2,12 @@
 package com.yahoo.container.jdisc.metric;
 
 import com.yahoo.jdisc.Metric;
+import com.yahoo.jrt.MethodMetrics;
 import com.yahoo.jrt.TransportMetrics;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.yahoo.jrt.TransportMetrics.Snapshot;
 
 /**
@@ -16,6 +20,7 @@ class JrtMetrics {
     private final TransportMetrics transportMetrics = TransportMetrics.getInstance();
     private final Metric metric;
     private Snapshot previousSnapshot = Snapshot.EMPTY;
+    private final Map<String, MethodSnapshot> previousMethodSnapshots = new HashMap<>();
 
     JrtMetrics(Metric metric) {
         this.metric = metric;
@@ -31,11 +36,92 @@ class JrtMetrics {
         increment("jrt.transport.server.unencrypted-connections-established", changesSincePrevious.serverUnencryptedConnectionsEstablished());
         increment("jrt.transport.client.unencrypted-connections-established", changesSincePrevious.clientUnencryptedConnectionsEstablished());
         previousSnapshot = snapshot;
+        emitThreadLoads();
+        emitMethodMetrics();
+    }
+
+    private void emitMethodMetrics() {
+        for (MethodMetrics method : transportMetrics.methodMetrics()) {
+            MethodSnapshot snapshot = new MethodSnapshot(method);
+            MethodSnapshot previous = previousMethodSnapshots.put(method.name(), snapshot);
+            if (previous == null) {
+                previous = MethodSnapshot.EMPTY;
+            }
+            MethodMetrics.Distribution latency = snapshot.latency.changesSince(previous.latency);
+            if (latency.count() == 0 && method.inFlight() == 0) continue;
+
+            Map<String, String> dimensions = new HashMap<>();
+            dimensions.put("method", method.name());
+            Metric.Context context = metric.createContext(dimensions);
+            metric.set("jrt.method.in-flight", method.inFlight(), context);
+            increment("jrt.method.requests", latency.count(), context);
+            increment("jrt.method.errors", snapshot.errors - previous.errors, context);
+            if (latency.count() > 0) {
+                MethodMetrics.Distribution handlerTime = snapshot.handlerTime.changesSince(previous.handlerTime);
+                MethodMetrics.Distribution replySize = snapshot.replySize.changesSince(previous.replySize);
+                metric.set("jrt.method.latency.average", latency.sum() / latency.count(), context);
+                metric.set("jrt.method.latency.p99", latency.quantile(0.99), context);
+                if (handlerTime.count() > 0) {
+                    metric.set("jrt.method.handler-time.average", handlerTime.sum() / handlerTime.count(), context);
+                    metric.set("jrt.method.handler-time.p99", handlerTime.quantile(0.99), context);
+                }
+                if (replySize.count() > 0) {
+                    metric.set("jrt.method.reply-size.average", replySize.sum() / replySize.count(), context);
+                }
+            }
+        }
+    }
+
+    private void emitThreadLoads() {
+        int maxConnections = 0;
+        int maxQueueSize = 0;
+        double maxBytesPerSecond = 0;
+        double maxBusyRatio = 0;
+        for (TransportMetrics.ThreadLoad load : transportMetrics.threadLoads()) {
+            maxConnections = Math.max(maxConnections, load.connections());
+            maxQueueSize = Math.max(maxQueueSize, load.queueSize());
+            maxBytesPerSecond = Math.max(maxBytesPerSecond, load.bytesPerSecond());
+            maxBusyRatio = Math.max(maxBusyRatio, load.busyRatio());
+        }
+        metric.set("jrt.transport.thread.connections.max", maxConnections, null);
+        metric.set("jrt.transport.thread.queue-size.max", maxQueueSize, null);
+        metric.set("jrt.transport.thread.bytes-per-second.max", maxBytesPerSecond, null);
+        metric.set("jrt.transport.thread.busy-ratio.max", maxBusyRatio, null);
     }
 
     private void increment(String metricName, long countIncrement) {
+        increment(metricName, countIncrement, null);
+    }
+
+    private void increment(String metricName, long countIncrement, Metric.Context context) {
         if (countIncrement > 0) {
-            metric.add(metricName, countIncrement, null);
+            metric.add(metricName, countIncrement, context);
         }
     }
+
+    /** The cumulative metrics of a method at some point in time */
+    private static class MethodSnapshot {
+
+        static final MethodSnapshot EMPTY = new MethodSnapshot();
+
+        final long errors;
+        final MethodMetrics.Distribution latency;
+        final MethodMetrics.Distribution handlerTime;
+        final MethodMetrics.Distribution replySize;
+
+        private MethodSnapshot() {
+            this.errors = 0;
+            this.latency = new MethodMetrics.Distribution();
+            this.handlerTime = new MethodMetrics.Distribution();
+            this.replySize = new MethodMetrics.Distribution();
+        }
+
+        MethodSnapshot(MethodMetrics method) {
+            this.errors = method.errors();
+            this.latency = method.latency().snapshot();
+            this.handlerTime = method.handlerTime().snapshot();
+            this.replySize = method.replySize().snapshot();
+        }
+
+    }
 }
@@ -16,6 +16,7 @@ import java.util.logging.Level;
 import com.yahoo.messagebus.ConfigAgent;
 import com.yahoo.messagebus.DynamicThrottlePolicy;
 import com.yahoo.messagebus.IntermediateSessionParams;
+import com.yahoo.messagebus.LatencyThrottlePolicy;
 import com.yahoo.messagebus.MessageBusParams;
 import com.yahoo.messagebus.Protocol;
 import com.yahoo.messagebus.SourceSessionParams;
@@ -351,6 +352,48 @@ public final class SessionCache extends AbstractComponent {
 
     }
 
+    static class LatencyThrottlePolicySignature extends ThrottlePolicySignature {
+
+        private final double maxWindowSize;
+        private final double minWindowSize;
+        private final double windowSizeIncrement;
+        private final double latencyFactor;
+
+        LatencyThrottlePolicySignature(final LatencyThrottlePolicy policy) {
+            maxWindowSize = policy.getMaxWindowSize();
+            minWindowSize = policy.getMinWindowSize();
+            windowSizeIncrement = policy.getWindowSizeIncrement();
+            latencyFactor = policy.getLatencyFactor();
+        }
+
+        @Override
+        public int hashCode() {
+            int prime = 31;
+            int result = super.hashCode();
+            result = prime * result + Double.hashCode(maxWindowSize);
+            result = prime * result + Double.hashCode(minWindowSize);
+            result = prime * result + Double.hashCode(windowSizeIncrement);
+            result = prime * result + Double.hashCode(latencyFactor);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            LatencyThrottlePolicySignature other = (LatencyThrottlePolicySignature) obj;
+            return Double.compare(maxWindowSize, other.maxWindowSize) == 0
+                   && Double.compare(minWindowSize, other.minWindowSize) == 0
+                   && Double.compare(windowSizeIncrement, other.windowSizeIncrement) == 0
+                   && Double.compare(latencyFactor, other.latencyFactor) == 0;
+        }
+
+    }
+
     static class UnknownThrottlePolicySignature extends ThrottlePolicySignature {
         private final ThrottlePolicy policy;
 
@@ -384,6 +427,8 @@ public final class SessionCache extends AbstractComponent {
             Class<?> policyClass = policy.getClass();
             if (policyClass == DynamicThrottlePolicy.class) {
                 return new DynamicThrottlePolicySignature((DynamicThrottlePolicy) policy);
+            } else if (policyClass == LatencyThrottlePolicy.class) {
+                return new LatencyThrottlePolicySignature((LatencyThrottlePolicy) policy);
             } else if (policyClass == StaticThrottlePolicy.class) {
                 return new StaticThrottlePolicySignature((StaticThrottlePolicy) policy);
             } else {
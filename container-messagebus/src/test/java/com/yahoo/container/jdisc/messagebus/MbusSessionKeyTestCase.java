@@ -2,10 +2,12 @@
 package com.yahoo.container.jdisc.messagebus;
 
 import com.yahoo.container.jdisc.messagebus.SessionCache.DynamicThrottlePolicySignature;
+import com.yahoo.container.jdisc.messagebus.SessionCache.LatencyThrottlePolicySignature;
 import com.yahoo.container.jdisc.messagebus.SessionCache.SourceSessionKey;
 import com.yahoo.container.jdisc.messagebus.SessionCache.StaticThrottlePolicySignature;
 import com.yahoo.container.jdisc.messagebus.SessionCache.UnknownThrottlePolicySignature;
 import com.yahoo.messagebus.DynamicThrottlePolicy;
+import com.yahoo.messagebus.LatencyThrottlePolicy;
 import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import org.junit.Test;
@@ -79,6 +81,18 @@ public class MbusSessionKeyTestCase {
                 sigBase.equals(new DynamicThrottlePolicySignature(other)));
     }
 
+    @Test
+    public final void latencyThrottlePolicySignature() {
+        final LatencyThrottlePolicy base = new LatencyThrottlePolicy().setLatencyFactor(1.5).setWindowSizeIncrement(10);
+        final LatencyThrottlePolicy other = new LatencyThrottlePolicy().setLatencyFactor(2).setWindowSizeIncrement(10);
+        final LatencyThrottlePolicySignature sigBase = new LatencyThrottlePolicySignature(base);
+        assertFalse("The policies are different, but signatures are equal.",
+                sigBase.equals(new LatencyThrottlePolicySignature(other)));
+        other.setLatencyFactor(1.5);
+        assertEquals(sigBase, new LatencyThrottlePolicySignature(other));
+        assertEquals(sigBase.hashCode(), new LatencyThrottlePolicySignature(other).hashCode());
+    }
+
     @Test
     public final void unknownThrottlePolicySignature() {
         final UnknownThrottlePolicySignature baseSig = new UnknownThrottlePolicySignature(new StaticThrottlePolicy());
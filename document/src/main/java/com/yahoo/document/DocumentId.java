@@ -10,12 +10,13 @@ import com.yahoo.vespa.objects.Serializer;
 import java.io.Serializable;
 
 /**
- * The id of a document
+ * The id of a document. The global id is computed the first time it is needed, and kept for the lifetime of this,
+ * so it is computed once as the id is passed along through routing, serialization and bucket resolution.
  */
 public class DocumentId extends Identifiable implements Serializable {
 
     private IdString id;
-    private GlobalId globalId;
+    private volatile GlobalId globalId;
 
     /**
      * Constructor used for deserialization.
@@ -61,6 +62,7 @@ public class DocumentId extends Identifiable implements Serializable {
 
     public void setId(IdString id) {
         this.id = id;
+        this.globalId = null;
     }
 
     public IdString getScheme() {
@@ -68,10 +70,12 @@ public class DocumentId extends Identifiable implements Serializable {
     }
 
     public byte[] getGlobalId() {
-        if (globalId == null) {
-            globalId = new GlobalId(id);
+        GlobalId gid = globalId;
+        if (gid == null) {
+            gid = new GlobalId(id);
+            globalId = gid;
         }
-        return globalId.getRawId();
+        return gid.getRawId();
     }
 
     public int compareTo(Object o) {
@@ -107,6 +111,7 @@ public class DocumentId extends Identifiable implements Serializable {
         } else {
             id = IdString.createFromSerialized(data.getString(null));
         }
+        globalId = null;
     }
 
     public boolean hasDocType() {
@@ -3,6 +3,7 @@ package com.yahoo.document;
 
 import com.yahoo.collections.MD5;
 import com.yahoo.document.idstring.IdString;
+import com.yahoo.text.Utf8String;
 import com.yahoo.vespa.objects.Deserializer;
 import com.yahoo.vespa.objects.Serializer;
 
@@ -23,6 +24,9 @@ public class GlobalId implements Comparable {
      */
     public static final int LENGTH = 12;
 
+    // Scratch space for the MD5 digest, to avoid allocating one for each id.
+    private static final ThreadLocal<byte[]> md5Buffer = ThreadLocal.withInitial(() -> new byte[16]);
+
     // The raw bytes that constitutes this global id.
     private final byte[] raw;
 
@@ -43,7 +47,9 @@ public class GlobalId implements Comparable {
      * @param id The document id to derive from.
      */
     public GlobalId(IdString id) {
-        byte [] raw = MD5.md5.get().digest(id.toUtf8().wrap().array());
+        Utf8String utf8 = id.toUtf8();
+        byte [] raw = md5Buffer.get();
+        MD5.digest(utf8.getBytes(), 0, utf8.getByteLength(), raw);
         long location = id.getLocation();
         this.raw = new byte [LENGTH];
         for (int i = 0; i < 4; ++i) {
@@ -12,6 +12,7 @@ import com.yahoo.document.serialization.FieldWriter;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.text.Text;
+import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.objects.Ids;
 
 import java.util.Collection;
@@ -25,6 +26,9 @@ import java.util.OptionalInt;
  * 
  * String fields can only contain text characters, as defined by {@link Text#isTextCharacter(int)}
  *
+ * A value read by a deserializer may be backed by the UTF-8 bytes it was read from. These are decoded to a String
+ * only when the String is requested, and serialized back without encoding when the value is not modified.
+ *
  * @author Einar M R Rosenvinge
  */
 public class StringFieldValue extends FieldValue {
@@ -38,6 +42,8 @@ public class StringFieldValue extends FieldValue {
     public static PrimitiveDataType.Factory getFactory() { return new Factory(); }
     public static final int classId = registerClass(Ids.document + 15, StringFieldValue.class);
     private String value;
+    /** The UTF-8 encoding of the value, if this was deserialized and not modified since. */
+    private Utf8Array utf8 = null;
     private Map<String, SpanTree> spanTrees = null;
 
     /** Creates a new StringFieldValue holding an empty String. */
@@ -68,6 +74,7 @@ public class StringFieldValue extends FieldValue {
     private void setValue(String value) {
         validateTextString(value);
         this.value = value;
+        this.utf8 = null;
     }
 
     /**
@@ -102,6 +109,7 @@ public class StringFieldValue extends FieldValue {
     @Override
     public void clear() {
         value = "";
+        utf8 = null;
         if (spanTrees != null) {
             spanTrees.clear();
             spanTrees = null;
@@ -206,13 +214,24 @@ public class StringFieldValue extends FieldValue {
 
     /** Returns the String value wrapped by this StringFieldValue */
     public String getString() {
+        if (value == null) {
+            value = utf8.toString();
+        }
         return value;
     }
 
+    /**
+     * Returns the UTF-8 encoding of the value wrapped by this, if this was deserialized from it and not
+     * modified since, or null otherwise. The returned bytes must not be modified.
+     */
+    public Utf8Array getUtf8() {
+        return utf8;
+    }
+
     /** Returns the String value wrapped by this StringFieldValue */
     @Override
     public Object getWrappedValue() {
-        return value;
+        return getString();
     }
 
     /**
@@ -233,7 +252,7 @@ public class StringFieldValue extends FieldValue {
      */
     @Override
     public String toString() {
-        return value;
+        return getString();
     }
 
     @Override
@@ -243,13 +262,13 @@ public class StringFieldValue extends FieldValue {
         if (!super.equals(o)) return false;
         StringFieldValue that = (StringFieldValue) o;
         if ((spanTrees != null) ? !spanTrees.equals(that.spanTrees) : that.spanTrees != null) return false;
-        if ((value != null) ? !value.equals(that.value) : that.value != null) return false;
-        return true;
+        if ((utf8 != null) && (that.utf8 != null)) return utf8.equals(that.utf8);
+        return getString().equals(that.getString());
     }
 
     @Override
     public int hashCode() {
-        return (value != null) ? value.hashCode() : super.hashCode();
+        return getString().hashCode();
     }
 
     @Override
@@ -272,7 +291,7 @@ public class StringFieldValue extends FieldValue {
 
         //types are equal, this must be of this type
         StringFieldValue otherValue = (StringFieldValue) fieldValue;
-        comp = value.compareTo(otherValue.value);
+        comp = getString().compareTo(otherValue.getString());
 
         if (comp != 0) {
             return comp;
@@ -299,6 +318,16 @@ public class StringFieldValue extends FieldValue {
      */
     public void setUnChecked(String s) {
         value = s;
+        utf8 = null;
+    }
+
+    /**
+     * Only for use by deserializer to avoid the cost of verifying and decoding input.
+     * The given bytes are decoded when the String value is first requested, and must not be modified after this.
+     */
+    public void setUnChecked(Utf8Array utf8) {
+        value = null;
+        this.utf8 = utf8;
     }
 
 }
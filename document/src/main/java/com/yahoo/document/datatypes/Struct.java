@@ -1,7 +1,6 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.datatypes;
 
-import com.yahoo.collections.Hashlet;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.Field;
@@ -22,29 +21,53 @@ import java.util.Set;
 
 
 /**
+ * A struct of field values. The values are kept in two parallel arrays, ordered by increasing field id,
+ * which avoids boxing the field ids and keeps the memory footprint close to that of the values themselves.
+ *
  * @author Håkon Humberset
  */
 public class Struct extends StructuredFieldValue {
 
     public static final int classId = registerClass(Ids.document + 33, Struct.class);
-    private Hashlet<Integer, FieldValue> values = new Hashlet<>();
-    private int [] order = null;
+    private static final int [] EMPTY_IDS = new int[0];
+    private static final FieldValue [] EMPTY_VALUES = new FieldValue[0];
+
+    private int [] ids = EMPTY_IDS;
+    private FieldValue [] values = EMPTY_VALUES;
+    private int size = 0;
 
     private int version;
 
-    private int [] getInOrder() {
-        if (order == null) {
-            order = new int[values.size()];
-            for (int i = 0; i < values.size(); i++) {
-                order[i] = values.key(i);
-            }
-            Arrays.sort(order);
-        }
-        return order;
+    /** Returns the index of the given field id, or a negative number (-(insertion point) - 1) if not present */
+    private int indexOf(int id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    private FieldValue get(int id) {
+        int index = indexOf(id);
+        return (index < 0) ? null : values[index];
     }
 
-    private void invalidateOrder() {
-        order = null;
+    /** Sets the value of the given field id and returns the previous value, or null if none */
+    private FieldValue put(int id, FieldValue value) {
+        int index = indexOf(id);
+        if (index >= 0) {
+            FieldValue previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (size == ids.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        ids[index] = id;
+        values[index] = value;
+        size++;
+        return null;
     }
 
     public Struct(DataType type) {
@@ -89,18 +112,19 @@ public class Struct extends StructuredFieldValue {
     @Override
     public Struct clone() {
         Struct struct = (Struct) super.clone();
-        struct.values = new Hashlet<>();
-        struct.values.reserve(values.size());
-        for (int i = 0; i < values.size(); i++) {
-            struct.values.put(values.key(i), values.value(i).clone());
+        struct.ids = Arrays.copyOf(ids, size);
+        struct.values = new FieldValue[size];
+        for (int i = 0; i < size; i++) {
+            struct.values[i] = values[i].clone();
         }
         return struct;
     }
 
     @Override
     public void clear() {
-        values = new Hashlet<>();
-        invalidateOrder();
+        ids = EMPTY_IDS;
+        values = EMPTY_VALUES;
+        size = 0;
     }
 
     @Override
@@ -127,7 +151,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        return get(field.getId());
     }
 
 
@@ -138,7 +162,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return size;
     }
 
     @Override
@@ -164,29 +188,20 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
-        int index = values.getIndexOfKey(field.getId());
-        if (index == -1) {
-            values.put(field.getId(), value);
-            invalidateOrder();
-        } else {
-            values.setValue(index, value);
-        }
+        put(field.getId(), value);
     }
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
-        if (found != null) {
-            Hashlet<Integer, FieldValue> copy = new Hashlet<>();
-            copy.reserve(values.size() - 1);
-            for (int i=0; i < values.size(); i++) {
-                if (values.key(i) != field.getId()) {
-                    copy.put(values.key(i), values.value(i));
-                }
-            }
-            values = copy;
-            invalidateOrder();
+        int index = indexOf(field.getId());
+        if (index < 0) {
+            return null;
         }
+        FieldValue found = values[index];
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
         return found;
     }
 
@@ -223,13 +238,19 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
-        return values.equals(struct.values);
+        return size == struct.size
+               && Arrays.equals(ids, 0, size, struct.ids, 0, size)
+               && Arrays.equals(values, 0, size, struct.values, 0, size);
     }
 
     @Override
     public int hashCode() {
+        int valuesHash = 0;
+        for (int i = 0; i < size; i++) {
+            valuesHash += ids[i] + values[i].hashCode();
+        }
         int result = super.hashCode();
-        result = 31 * result + values.hashCode();
+        result = 31 * result + valuesHash;
         return result;
     }
 
@@ -237,10 +258,8 @@ public class Struct extends StructuredFieldValue {
     public String toString() {
         StringBuilder retVal = new StringBuilder();
         retVal.append("Struct (").append(getDataType()).append("): ");
-        int [] increasing = getInOrder();
-        for (int i = 0; i < increasing.length; i++) {
-            int id = increasing[i];
-            retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
+        for (int i = 0; i < size; i++) {
+            retVal.append(getDataType().getField(ids[i])).append("=").append(values[i]).append(", ");
         }
         return retVal.toString();
     }
@@ -257,7 +276,7 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
-        cmp = values.size() - rhs.values.size();
+        cmp = size - rhs.size;
         if (cmp != 0) {
             return cmp;
         }
@@ -298,7 +317,7 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
-            return values.get(id);
+            return get(id);
         }
 
         public FieldValue setValue(FieldValue value) {
@@ -306,17 +325,7 @@ public class Struct extends StructuredFieldValue {
                 throw new NullPointerException("Null values in Struct not supported, use removeFieldValue() to remove value instead.");
             }
 
-            int index = values.getIndexOfKey(id);
-            FieldValue retVal = null;
-            if (index == -1) {
-                values.put(id, value);
-                invalidateOrder();
-            } else {
-                retVal = values.value(index);
-                values.setValue(index, value);
-            }
-
-            return retVal;
+            return put(id, value);
         }
 
         public boolean equals(Object o) {
@@ -335,7 +344,7 @@ public class Struct extends StructuredFieldValue {
     private class FieldSet extends AbstractSet<Map.Entry<Field, FieldValue>> {
         @Override
         public int size() {
-            return values.size();
+            return size;
         }
 
         @Override
@@ -348,17 +357,16 @@ public class Struct extends StructuredFieldValue {
 
     private class FieldSetIterator implements Iterator<Map.Entry<Field, FieldValue>> {
         private int position = 0;
-        private int [] increasing = getInOrder();
 
         public boolean hasNext() {
-            return (position < increasing.length);
+            return (position < size);
         }
 
         public Map.Entry<Field, FieldValue> next() {
-            if (position >= increasing.length) {
+            if (position >= size) {
                 throw new NoSuchElementException("No more elements in collection");
             }
-            FieldEntry retval = new FieldEntry(increasing[position]);
+            FieldEntry retval = new FieldEntry(ids[position]);
             position++;
             return retval;
         }
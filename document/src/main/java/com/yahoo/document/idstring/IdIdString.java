@@ -18,6 +18,7 @@ public class IdIdString extends IdString {
     private boolean hasNumber;
     private static final int SIZE_OF_ID_AND_3_COLONS = 2 + 3; // "id:::"
     private static final int MAX_LENGTH = IdString.MAX_LENGTH_EXCEPT_NAMESPACE_SPECIFIC - SIZE_OF_ID_AND_3_COLONS;
+    private static final ThreadLocal<byte[]> md5Buffer = ThreadLocal.withInitial(() -> new byte[16]);
 
     public static String replaceType(String id, String typeName) {
         int typeStartPos = id.indexOf(":", 3) + 1;
@@ -28,7 +29,9 @@ public class IdIdString extends IdString {
 
     public static long makeLocation(String s) {
         long result = 0;
-        byte[] md5sum = MD5.md5.get().digest(Utf8.toBytes(s));
+        byte[] utf8 = Utf8.toBytes(s);
+        byte[] md5sum = md5Buffer.get();
+        MD5.digest(utf8, 0, utf8.length, md5sum);
         for (int i=0; i<8; ++i) {
             result |= (md5sum[i] & 0xFFl) << (8*i);
         }
@@ -204,6 +204,16 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         int length = getInt1_4Bytes(null);
 
         //OK, it seems that this length includes null termination.
+        if ((coding & 64) == 0) {
+            // No span trees: Keep a copy of just the string's bytes, and leave decoding until the value is used.
+            // The buffer itself is not referenced, as it may be large, shared, or reused by the caller.
+            byte[] utf8 = new byte[length - 1];
+            buf.get(utf8);
+            buf.get();    //move past 0-termination
+            value.setUnChecked(new Utf8Array(utf8));
+            return;
+        }
+
         //NOTE: the following four lines are basically parseNullTerminatedString() inlined,
         //but we need to use the UTF-8 buffer below, so not using that method...
         byte[] stringArray = new byte[length - 1];
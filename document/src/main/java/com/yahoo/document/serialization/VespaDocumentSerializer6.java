@@ -54,6 +54,7 @@ import com.yahoo.document.update.TensorRemoveUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.serialization.TypedBinaryFormat;
+import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.objects.BufferSerializer;
 import com.yahoo.vespa.objects.FieldBase;
 
@@ -245,6 +246,15 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
      * @param value - field value
      */
     public void write(FieldBase field, StringFieldValue value) {
+        Utf8Array utf8 = value.getUtf8();
+        if (utf8 != null && value.getSpanTrees().isEmpty()) {
+            // Write the bytes this was deserialized from without encoding the string again
+            buf.put((byte) 0);
+            buf.putInt1_4Bytes(utf8.getByteLength() + 1);
+            buf.put(utf8.wrap());
+            buf.put(((byte) 0));
+            return;
+        }
         byte[] stringBytes = createUTF8CharArray(value.getString());
 
         byte coding = 0;
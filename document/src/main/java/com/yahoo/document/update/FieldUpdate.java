@@ -110,28 +110,74 @@ public class FieldUpdate {
      * @return a reference to itself
      */
     public FieldUpdate applyTo(Document doc) {
-        for (ValueUpdate vupd : valueUpdates) {
-            DataType dataType = field.getDataType();
-            FieldValue oldValue = doc.getFieldValue(field);
-            boolean existed = (oldValue != null);
-
-            if (!existed) {
-                oldValue = dataType.createFieldValue();
+        if (valueUpdates.isEmpty()) {
+            return this;
+        }
+        DataType dataType = field.getDataType();
+        FieldValue value = doc.getFieldValue(field);
+        boolean existed = (value != null);
+
+        // Apply all value updates to the same value, and set it in the document once
+        for (int i = 0; i < valueUpdates.size(); ) {
+            int end = endOfMergeableRun(i);
+            ValueUpdate vupd = (end - i > 1) ? merge(valueUpdates.subList(i, end)) : valueUpdates.get(i);
+            i = end;
+
+            if (value == null) {
+                value = dataType.createFieldValue();
             }
+            value = vupd.applyTo(value);
 
-            FieldValue newValue = vupd.applyTo(oldValue);
+            if (value != null && ! dataType.getValueClass().isAssignableFrom(value.getClass())) {
+                FieldValue converted = dataType.createFieldValue();
+                converted.assign(value);
+                value = converted;
+            }
+        }
 
-            if (newValue == null) {
-                if (existed) {
-                    doc.removeFieldValue(field);
-                }
-            } else {
-                doc.setFieldValue(field, newValue);
+        if (value == null) {
+            if (existed) {
+                doc.removeFieldValue(field);
             }
+        } else {
+            doc.setFieldValue(field, value);
         }
         return this;
     }
 
+    /**
+     * Returns the end of the run of value updates starting at the given index which can be merged to a single
+     * update. Such runs are merged because each tensor update rebuilds the whole tensor it is applied to.
+     */
+    private int endOfMergeableRun(int start) {
+        ValueUpdate first = valueUpdates.get(start);
+        int end = start + 1;
+        if (first instanceof TensorAddUpdate || first instanceof TensorRemoveUpdate) {
+            while (end < valueUpdates.size() && valueUpdates.get(end).getClass() == first.getClass()) {
+                end++;
+            }
+        } else if (first instanceof TensorModifyUpdate) {
+            while (end < valueUpdates.size() && valueUpdates.get(end) instanceof TensorModifyUpdate
+                   && TensorModifyUpdate.canMerge((TensorModifyUpdate) first, (TensorModifyUpdate) valueUpdates.get(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueUpdate merge(List<ValueUpdate> run) {
+        ValueUpdate first = run.get(0);
+        if (first instanceof TensorAddUpdate) {
+            return TensorAddUpdate.merge((List<TensorAddUpdate>) (List<?>) run);
+        } else if (first instanceof TensorRemoveUpdate) {
+            return TensorRemoveUpdate.merge((List<TensorRemoveUpdate>) (List<?>) run);
+        } else if (first instanceof TensorModifyUpdate) {
+            return TensorModifyUpdate.merge((List<TensorModifyUpdate>) (List<?>) run);
+        }
+        throw new IllegalArgumentException("Cannot merge updates of type " + first.getClass().getName());
+    }
+
     /**
      * Adds a value update to the list of value updates.
      *
@@ -7,7 +7,12 @@ import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.serialization.DocumentUpdateWriter;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -52,6 +57,24 @@ public class TensorAddUpdate extends ValueUpdate<TensorFieldValue> {
         return new TensorFieldValue(result);
     }
 
+    /** Returns a single update with the same effect as applying the given updates in order */
+    static TensorAddUpdate merge(List<TensorAddUpdate> updates) {
+        TensorType type = null;
+        Map<TensorAddress, Double> merged = new LinkedHashMap<>();
+        for (TensorAddUpdate update : updates) {
+            if ( ! update.tensor.getTensor().isPresent()) continue;
+
+            Tensor cells = update.tensor.getTensor().get();
+            type = cells.type();
+            merged.putAll(cells.cells()); // later updates replace earlier ones
+        }
+        if (type == null) return updates.get(0);
+
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        merged.forEach(builder::cell);
+        return new TensorAddUpdate(new TensorFieldValue(builder.build()));
+    }
+
     @Override
     public TensorFieldValue getValue() {
         return tensor;
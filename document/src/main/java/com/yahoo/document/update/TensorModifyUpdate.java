@@ -7,8 +7,12 @@ import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.serialization.DocumentUpdateWriter;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.DoubleBinaryOperator;
 
@@ -84,6 +88,33 @@ public class TensorModifyUpdate extends ValueUpdate<TensorFieldValue> {
         data.write(this);
     }
 
+    /**
+     * Returns whether the given updates can be merged to one. This is the case for replace updates only,
+     * as merging arithmetic updates would change the order in which operands are applied, and thereby the rounding.
+     */
+    static boolean canMerge(TensorModifyUpdate first, TensorModifyUpdate second) {
+        return first.operation == Operation.REPLACE && second.operation == Operation.REPLACE
+               && first.tensor.getDataType().equals(second.tensor.getDataType());
+    }
+
+    /** Returns a single update with the same effect as applying the given mergeable updates in order */
+    static TensorModifyUpdate merge(List<TensorModifyUpdate> updates) {
+        TensorType type = null;
+        Map<TensorAddress, Double> merged = new LinkedHashMap<>();
+        for (TensorModifyUpdate update : updates) {
+            if ( ! update.tensor.getTensor().isPresent()) continue;
+
+            Tensor cells = update.tensor.getTensor().get();
+            type = cells.type();
+            merged.putAll(cells.cells()); // later updates replace earlier ones
+        }
+        if (type == null) return updates.get(0);
+
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        merged.forEach(builder::cell);
+        return new TensorModifyUpdate(updates.get(0).operation, new TensorFieldValue(builder.build()));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
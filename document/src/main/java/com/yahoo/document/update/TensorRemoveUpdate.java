@@ -7,9 +7,13 @@ import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.serialization.DocumentUpdateWriter;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  *  An update used to remove cells from a sparse tensor (has only mapped dimensions).
@@ -67,6 +71,25 @@ public class TensorRemoveUpdate extends ValueUpdate<TensorFieldValue> {
         return new TensorFieldValue(result);
     }
 
+    /** Returns a single update with the same effect as applying the given updates in order */
+    static TensorRemoveUpdate merge(List<TensorRemoveUpdate> updates) {
+        TensorType type = null;
+        Set<TensorAddress> merged = new LinkedHashSet<>();
+        for (TensorRemoveUpdate update : updates) {
+            if ( ! update.tensor.getTensor().isPresent()) continue;
+
+            Tensor addresses = update.tensor.getTensor().get();
+            type = addresses.type();
+            merged.addAll(addresses.cells().keySet());
+        }
+        if (type == null) return updates.get(0);
+
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (TensorAddress address : merged)
+            builder.cell(address, 1.0);
+        return new TensorRemoveUpdate(new TensorFieldValue(builder.build()));
+    }
+
     @Override
     public TensorFieldValue getValue() {
         return tensor;
@@ -0,0 +1,121 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespaxmlparser;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.document.serialization.DocumentDeserializerFactory;
+import com.yahoo.io.GrowableByteBuffer;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads document operations in the binary V1 format, as written by {@link VespaV1FeedWriter}.
+ *
+ * Each operation is a 16 byte header with the size of the operation, its type and an xxhash64 of it, followed by
+ * the utf-8 test-and-set condition of the operation, and the document, document update or document id of it,
+ * serialized with the head serializer. Reading this only deserializes the operation, which is much cheaper
+ * than parsing it from json or xml. Operations larger than {@link #MAX_OPERATION_SIZE} are rejected.
+ *
+ * @see VespaV1FeedWriter
+ */
+public class VespaV1FeedReader implements FeedReader {
+
+    static final int HEADER_SIZE = 16;
+    static final int DOCUMENT = 1;
+    static final int UPDATE = 2;
+    static final int REMOVE = 3;
+
+    /** The largest operation, in bytes, accepted by this */
+    public static final int MAX_OPERATION_SIZE = 256 * 1024 * 1024;
+
+    private final InputStream in;
+    private final DocumentTypeManager docTypeManager;
+    private final byte[] header = new byte[HEADER_SIZE];
+
+    /** Creates a reader of the operations of the given stream, which contains nothing else */
+    public VespaV1FeedReader(InputStream in, DocumentTypeManager docTypeManager) {
+        this.in = in;
+        this.docTypeManager = docTypeManager;
+    }
+
+    @Override
+    public FeedOperation read() throws IOException {
+        Blob blob = readBlob();
+        return (blob != null) ? parse(blob) : FeedOperation.INVALID;
+    }
+
+    /**
+     * Returns the next operation without verifying or deserializing it, or null at the end of the stream.
+     * This allows the more expensive {@link #parse} to be done in other threads.
+     */
+    public Blob readBlob() throws IOException {
+        int read = in.readNBytes(header, 0, header.length);
+        if (read == 0) {
+            return null;
+        }
+        if (read != header.length) {
+            throw new IllegalArgumentException("Underflow, failed reading " + header.length + " byte header. Got " + read);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        int size = buffer.getInt();
+        int type = buffer.getInt();
+        long hash = buffer.getLong();
+        if (size < 0 || size > MAX_OPERATION_SIZE) {
+            throw new IllegalArgumentException("Invalid operation size " + size + ", must be between 0 and " + MAX_OPERATION_SIZE);
+        }
+        // Read in chunks rather than allocating the size up front, so a corrupt size can not make us allocate
+        // more than the stream actually contains
+        byte[] data = in.readNBytes(size);
+        if (data.length != size) {
+            throw new IllegalArgumentException("Underflow, failed reading " + size + " bytes. Got " + data.length);
+        }
+        return new Blob(type, hash, data);
+    }
+
+    /** Verifies and deserializes the given operation. This is thread safe. */
+    public FeedOperation parse(Blob blob) {
+        long computedHash = hash(blob.data, 0, blob.data.length);
+        if (computedHash != blob.hash) {
+            throw new IllegalArgumentException("Hash mismatch, expected " + blob.hash + ", got " + computedHash);
+        }
+        int type = blob.type;
+        GrowableByteBuffer buffer = GrowableByteBuffer.wrap(blob.data);
+        String condition = buffer.getUtf8String();
+        TestAndSetCondition testAndSetCondition = condition.isEmpty() ? TestAndSetCondition.NOT_PRESENT_CONDITION
+                                                                      : new TestAndSetCondition(condition);
+        DocumentDeserializer deserializer = DocumentDeserializerFactory.createHead(docTypeManager, buffer);
+        switch (type) {
+            case DOCUMENT: return new DocumentFeedOperation(new Document(deserializer), testAndSetCondition);
+            case UPDATE: return new DocumentUpdateFeedOperation(new DocumentUpdate(deserializer), testAndSetCondition);
+            case REMOVE: return new RemoveFeedOperation(new DocumentId(deserializer), testAndSetCondition);
+            default: throw new IllegalArgumentException("Unknown operation " + type);
+        }
+    }
+
+    static long hash(byte[] data, int offset, int length) {
+        return XXHashFactory.fastestJavaInstance().hash64().hash(data, offset, length, 0);
+    }
+
+    /** A single operation as read from the stream, before it is verified and deserialized */
+    public static class Blob {
+
+        private final int type;
+        private final long hash;
+        private final byte[] data;
+
+        Blob(int type, long hash, byte[] data) {
+            this.type = type;
+            this.hash = hash;
+            this.data = data;
+        }
+
+    }
+
+}
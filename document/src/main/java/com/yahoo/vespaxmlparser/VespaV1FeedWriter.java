@@ -0,0 +1,70 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespaxmlparser;
+
+import com.yahoo.document.serialization.DocumentSerializer;
+import com.yahoo.document.serialization.DocumentSerializerFactory;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes document operations in the binary V1 format read by {@link VespaV1FeedReader}. The serialization
+ * buffer is reused for all operations, so instances are not thread safe. Each operation is written to the
+ * output in a single call, however, so writers in different threads may share an output whose writes are atomic.
+ *
+ * @see VespaV1FeedReader
+ */
+public class VespaV1FeedWriter {
+
+    private final OutputStream out;
+    private final GrowableByteBuffer buffer = new GrowableByteBuffer(16384);
+
+    public VespaV1FeedWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Serializes the given operation and writes it to the output of this */
+    public void write(FeedOperation operation) throws IOException {
+        buffer.clear();
+        buffer.position(VespaV1FeedReader.HEADER_SIZE); // filled in when the size of the operation is known
+        buffer.putUtf8String(operation.getCondition().getSelection());
+        DocumentSerializer serializer = DocumentSerializerFactory.createHead(buffer);
+        int type;
+        switch (operation.getType()) {
+            case DOCUMENT:
+                serializer.write(operation.getDocument());
+                type = VespaV1FeedReader.DOCUMENT;
+                break;
+            case UPDATE:
+                serializer.write(operation.getDocumentUpdate());
+                type = VespaV1FeedReader.UPDATE;
+                break;
+            case REMOVE:
+                serializer.write(operation.getRemove());
+                type = VespaV1FeedReader.REMOVE;
+                break;
+            default:
+                throw new IllegalArgumentException("Can not write operation of type " + operation.getType());
+        }
+        int size = buffer.position() - VespaV1FeedReader.HEADER_SIZE;
+        buffer.putInt(0, size);
+        buffer.putInt(4, type);
+        buffer.putLong(8, VespaV1FeedReader.hash(buffer.array(), VespaV1FeedReader.HEADER_SIZE, size));
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    /** Returns the given operation serialized in the V1 format */
+    public static byte[] toByteArray(FeedOperation operation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new VespaV1FeedWriter(out).write(operation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -17,8 +17,10 @@ import java.util.regex.Pattern;
 import java.util.Arrays;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -258,4 +260,16 @@ public class DocumentIdTestCase {
         }
     }
 
+    @Test
+    public void testGlobalIdIsComputedOnceAndFollowsTheId() {
+        DocumentId docId = new DocumentId("id:ns:type::foo");
+        byte[] gid = docId.getGlobalId();
+        assertSame(gid, docId.getGlobalId());
+        assertArrayEquals(new GlobalId(docId.getScheme()).getRawId(), gid);
+
+        docId.setId(new DocumentId("id:ns:type::bar").getScheme());
+        assertArrayEquals(new DocumentId("id:ns:type::bar").getGlobalId(), docId.getGlobalId());
+        assertFalse(Arrays.equals(gid, docId.getGlobalId()));
+    }
+
 }
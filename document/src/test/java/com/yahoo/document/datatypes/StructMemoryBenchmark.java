@@ -0,0 +1,107 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.datatypes;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.serialization.DocumentSerializer;
+import com.yahoo.document.serialization.DocumentSerializerFactory;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap used by documents with a realistic mix of numeric and string fields, and a nested
+ * struct, compared to their serialized size. Run with a fixed heap, e.g. -Xms2g -Xmx2g, for stable numbers.
+ */
+public class StructMemoryBenchmark {
+
+    private static final int DOCUMENTS = 200_000;
+
+    private final DocumentType type = new DocumentType("product");
+    private final StructDataType price = new StructDataType("price");
+    private final Random random = new Random(42);
+
+    private StructMemoryBenchmark() {
+        price.addField(new Field("amount", DataType.DOUBLE));
+        price.addField(new Field("currency", DataType.STRING));
+        price.addField(new Field("discount", DataType.FLOAT));
+
+        type.addField(new Field("title", DataType.STRING));
+        type.addField(new Field("brand", DataType.STRING));
+        type.addField(new Field("category_id", DataType.INT));
+        type.addField(new Field("seller_id", DataType.LONG));
+        type.addField(new Field("stock", DataType.INT));
+        type.addField(new Field("rating", DataType.FLOAT));
+        type.addField(new Field("popularity", DataType.DOUBLE));
+        type.addField(new Field("created", DataType.LONG));
+        type.addField(new Field("updated", DataType.LONG));
+        type.addField(new Field("flags", DataType.BYTE));
+        type.addField(new Field("views", DataType.INT));
+        type.addField(new Field("sales", DataType.INT));
+        type.addField(new Field("price", price));
+    }
+
+    private Document createDocument(int i) {
+        Document document = new Document(type, new DocumentId("id:shop:product::" + i));
+        document.setFieldValue("title", new StringFieldValue("Product number " + i + " with a moderately long title"));
+        document.setFieldValue("brand", new StringFieldValue("brand" + random.nextInt(1000)));
+        document.setFieldValue("category_id", new IntegerFieldValue(random.nextInt(5000)));
+        document.setFieldValue("seller_id", new LongFieldValue(random.nextLong()));
+        document.setFieldValue("stock", new IntegerFieldValue(random.nextInt(100)));
+        document.setFieldValue("rating", new FloatFieldValue(random.nextFloat() * 5));
+        document.setFieldValue("popularity", new DoubleFieldValue(random.nextDouble()));
+        document.setFieldValue("created", new LongFieldValue(1_500_000_000_000L + random.nextInt()));
+        document.setFieldValue("updated", new LongFieldValue(1_500_000_000_000L + random.nextInt()));
+        document.setFieldValue("flags", new ByteFieldValue((byte) random.nextInt(128)));
+        document.setFieldValue("views", new IntegerFieldValue(random.nextInt()));
+        document.setFieldValue("sales", new IntegerFieldValue(random.nextInt(10000)));
+        Struct priceValue = new Struct(price);
+        priceValue.setFieldValue("amount", new DoubleFieldValue(random.nextDouble() * 1000));
+        priceValue.setFieldValue("currency", new StringFieldValue("USD"));
+        priceValue.setFieldValue("discount", new FloatFieldValue(random.nextFloat()));
+        document.setFieldValue("price", priceValue);
+        return document;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void run() throws InterruptedException {
+        long serializedBytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            GrowableByteBuffer buffer = new GrowableByteBuffer();
+            DocumentSerializer serializer = DocumentSerializerFactory.create6(buffer);
+            serializer.write(createDocument(i));
+            serializedBytes += buffer.position();
+        }
+
+        long before = usedHeap();
+        List<Document> documents = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents.add(createDocument(i));
+        }
+        long after = usedHeap();
+
+        double heapPerDocument = (after - before) / (double) documents.size();
+        double serializedPerDocument = serializedBytes / 1000.0;
+        System.out.printf("Heap per document: %.1f bytes, serialized: %.1f bytes, ratio: %.2f%n",
+                          heapPerDocument, serializedPerDocument, heapPerDocument / serializedPerDocument);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new StructMemoryBenchmark().run();
+    }
+
+}
@@ -353,4 +353,39 @@ public class StructTestCase {
         assertFalse(a.equals(b));
         assertFalse(b.equals(a));
     }
+
+    @Test
+    public void fieldsAreIteratedInFieldIdOrderIndependentOfInsertionOrder() {
+        StructDataType type = new StructDataType("test");
+        for (int i = 0; i < 10; i++)
+            type.addField(new Field("f" + i, i, DataType.INT));
+
+        Struct a = new Struct(type);
+        Struct b = new Struct(type);
+        for (int i = 0; i < 10; i++) {
+            a.setFieldValue("f" + i, new IntegerFieldValue(i));
+            b.setFieldValue("f" + (9 - i), new IntegerFieldValue(9 - i));
+        }
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        b.removeFieldValue("f5");
+        b.removeFieldValue("f0");
+        b.removeFieldValue("f9");
+        assertEquals(7, b.getFieldCount());
+        assertNull(b.getFieldValue("f5"));
+        int previous = -1;
+        for (Map.Entry<Field, FieldValue> entry : b.getFields()) {
+            assertTrue(entry.getKey().getId() > previous);
+            assertEquals(new IntegerFieldValue(entry.getKey().getId()), entry.getValue());
+            previous = entry.getKey().getId();
+        }
+        assertNotEquals(a, b);
+
+        Struct c = a.clone();
+        c.setFieldValue("f3", new IntegerFieldValue(33));
+        assertEquals(new IntegerFieldValue(3), a.getFieldValue("f3"));
+        assertEquals(new IntegerFieldValue(33), c.getFieldValue("f3"));
+    }
+
 }
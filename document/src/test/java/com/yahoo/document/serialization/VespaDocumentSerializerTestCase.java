@@ -20,7 +20,13 @@ import com.yahoo.io.GrowableByteBuffer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -44,6 +50,40 @@ public class VespaDocumentSerializerTestCase {
         assertEquals(buf.position(), VespaDocumentSerializerHead.getSerializedSize(doc));
     }
 
+    @Test
+    public void deserialized_strings_are_serialized_from_their_utf8_bytes() {
+        DocumentType docType = new DocumentType("my_type");
+        docType.addField("my_str", DataType.STRING);
+        docType.addField("my_other_str", DataType.STRING);
+        DocumentTypeManager manager = new DocumentTypeManager();
+        manager.registerDocumentType(docType);
+        Document doc = new Document(docType, "id:ns:my_type::");
+        doc.setFieldValue("my_str", new StringFieldValue("blåbærsyltetøy"));
+        doc.setFieldValue("my_other_str", new StringFieldValue("foo"));
+
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        doc.serialize(buf);
+        buf.flip();
+        Document deserialized = new Document(DocumentDeserializerFactory.create6(manager, buf));
+        StringFieldValue str = (StringFieldValue) deserialized.getFieldValue("my_str");
+        assertNotNull(str.getUtf8());
+        assertEquals(doc, deserialized);
+
+        GrowableByteBuffer reserialized = new GrowableByteBuffer();
+        deserialized.serialize(reserialized);
+        reserialized.flip();
+        assertArrayEquals(Arrays.copyOf(buf.array(), buf.limit()), Arrays.copyOf(reserialized.array(), reserialized.limit()));
+
+        // The value holds a copy of its own bytes only, so reusing the buffer does not change it
+        assertEquals("blåbærsyltetøy".getBytes(StandardCharsets.UTF_8).length, str.getUtf8().getByteLength());
+        Arrays.fill(buf.array(), (byte) 0);
+
+        deserialized.setFieldValue("my_other_str", new StringFieldValue("bar"));
+        StringFieldValue other = (StringFieldValue) deserialized.getFieldValue("my_other_str");
+        assertNull(other.getUtf8());
+        assertEquals("blåbærsyltetøy", str.getString());
+    }
+
     @Test
     public void predicate_field_values_are_serialized() {
         DocumentType docType = new DocumentType("my_type");
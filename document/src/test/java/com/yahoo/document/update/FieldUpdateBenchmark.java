@@ -0,0 +1,130 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.update;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.TensorDataType;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.TensorFieldValue;
+import com.yahoo.document.datatypes.WeightedSet;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures applying field updates with many value updates to large weighted sets and sparse tensors, both as
+ * one field update, and as one field update per value update, which is how each value update was applied before.
+ */
+public class FieldUpdateBenchmark {
+
+    private static final int ENTRIES = 10_000;
+    private static final int DOCUMENTS = 20;
+    private static final int ROUNDS = 10;
+
+    private final DocumentType type = new DocumentType("benchmark");
+    private final Field tags = new Field("tags", DataType.getWeightedSet(DataType.STRING));
+    private final TensorType tensorType = TensorType.fromSpec("tensor(x{})");
+    private final Field embedding = new Field("embedding", new TensorDataType(tensorType));
+
+    private FieldUpdateBenchmark() {
+        type.addField(tags);
+        type.addField(embedding);
+    }
+
+    private Document createDocument(int i) {
+        Document document = new Document(type, new DocumentId("id:test:benchmark::" + i));
+        WeightedSet<StringFieldValue> set = new WeightedSet<>(tags.getDataType());
+        for (int j = 0; j < ENTRIES; j++)
+            set.put(new StringFieldValue("tag" + j), j);
+        document.setFieldValue(tags, set);
+        document.setFieldValue(embedding, new TensorFieldValue(cells(0, ENTRIES, 1.0)));
+        return document;
+    }
+
+    private Tensor cells(int from, int to, double value) {
+        Tensor.Builder builder = Tensor.Builder.of(tensorType);
+        for (int j = from; j < to; j++)
+            builder.cell().label("x", "cell" + j).value(value);
+        return builder.build();
+    }
+
+    /** Increments 1000 existing entries, and adds 1000 new ones */
+    private List<ValueUpdate> weightedSetUpdates() {
+        List<ValueUpdate> updates = new ArrayList<>();
+        for (int j = 0; j < 1000; j++) {
+            updates.add(ValueUpdate.createIncrement(new StringFieldValue("tag" + j * 7), 1));
+            updates.add(ValueUpdate.createAdd(new StringFieldValue("new" + j), j));
+        }
+        return updates;
+    }
+
+    /** Adds or replaces 1000 cells, in 100 updates, and then removes 500 cells, in 50 updates */
+    private List<ValueUpdate> tensorUpdates() {
+        List<ValueUpdate> updates = new ArrayList<>();
+        for (int j = 0; j < 100; j++)
+            updates.add(new TensorAddUpdate(new TensorFieldValue(cells(ENTRIES - 500 + j * 10, ENTRIES - 490 + j * 10, 2.0))));
+        TensorType addressType = new TensorType.Builder().mapped("x").build();
+        for (int j = 0; j < 50; j++) {
+            Tensor.Builder addresses = Tensor.Builder.of(addressType);
+            for (int k = 0; k < 10; k++)
+                addresses.cell().label("x", "cell" + (j * 10 + k)).value(1);
+            updates.add(new TensorRemoveUpdate(new TensorFieldValue(addresses.build())));
+        }
+        return updates;
+    }
+
+    private static List<FieldUpdate> asOneFieldUpdate(Field field, List<ValueUpdate> updates) {
+        FieldUpdate update = FieldUpdate.create(field);
+        update.addValueUpdates(updates);
+        return List.of(update);
+    }
+
+    private static List<FieldUpdate> asFieldUpdatePerValueUpdate(Field field, List<ValueUpdate> updates) {
+        List<FieldUpdate> fieldUpdates = new ArrayList<>();
+        for (ValueUpdate update : updates)
+            fieldUpdates.add(FieldUpdate.create(field).addValueUpdate(update));
+        return fieldUpdates;
+    }
+
+    /** Returns the average time in milliseconds to apply the given field updates to a document */
+    private double measure(Supplier<List<FieldUpdate>> updates) {
+        List<FieldUpdate> fieldUpdates = updates.get();
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < DOCUMENTS; i++)
+                documents.add(createDocument(i));
+
+            long start = System.nanoTime();
+            for (Document document : documents)
+                for (FieldUpdate update : fieldUpdates)
+                    update.applyTo(document);
+            nanos += System.nanoTime() - start;
+        }
+        return nanos / 1e6 / (ROUNDS * DOCUMENTS);
+    }
+
+    private void run() {
+        for (int i = 0; i < 3; i++) { // The first pass is warmup
+            System.out.printf("Weighted set, one field update:              %8.3f ms%n",
+                              measure(() -> asOneFieldUpdate(tags, weightedSetUpdates())));
+            System.out.printf("Weighted set, one field update per value:    %8.3f ms%n",
+                              measure(() -> asFieldUpdatePerValueUpdate(tags, weightedSetUpdates())));
+            System.out.printf("Sparse tensor, one field update:             %8.3f ms%n",
+                              measure(() -> asOneFieldUpdate(embedding, tensorUpdates())));
+            System.out.printf("Sparse tensor, one field update per value:   %8.3f ms%n",
+                              measure(() -> asFieldUpdatePerValueUpdate(embedding, tensorUpdates())));
+        }
+    }
+
+    public static void main(String[] args) {
+        new FieldUpdateBenchmark().run();
+    }
+
+}
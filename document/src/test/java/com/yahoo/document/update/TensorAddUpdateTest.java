@@ -5,6 +5,8 @@ import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.tensor.Tensor;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class TensorAddUpdateTest {
@@ -22,4 +24,17 @@ public class TensorAddUpdateTest {
         assertEquals(Tensor.from(spec, expected), updated);
     }
 
+    @Test
+    public void merged_add_updates_have_the_effect_of_applying_each_in_order() {
+        String spec = "tensor(x{},y{})";
+        TensorFieldValue initial = new TensorFieldValue(Tensor.from(spec, "{{x:0,y:0}:1, {x:0,y:1}:2}"));
+        TensorAddUpdate first = new TensorAddUpdate(new TensorFieldValue(Tensor.from(spec, "{{x:0,y:1}:5, {x:0,y:2}:6}")));
+        TensorAddUpdate second = new TensorAddUpdate(new TensorFieldValue(Tensor.from(spec, "{{x:0,y:2}:3, {x:0,y:3}:4}")));
+        TensorAddUpdate merged = TensorAddUpdate.merge(List.of(first, second));
+        assertEquals(Tensor.from(spec, "{{x:0,y:0}:1, {x:0,y:1}:5, {x:0,y:2}:3, {x:0,y:3}:4}"),
+                     ((TensorFieldValue) merged.applyTo(initial)).getTensor().get());
+        assertEquals(((TensorFieldValue) second.applyTo(first.applyTo(initial))).getTensor().get(),
+                     ((TensorFieldValue) merged.applyTo(initial)).getTensor().get());
+    }
+
 }
@@ -9,7 +9,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TensorModifyUpdateTest {
 
@@ -54,4 +58,20 @@ public class TensorModifyUpdateTest {
         assertEquals(Tensor.from(spec, expected), updatedFieldValue.getTensor().get());
     }
 
+    @Test
+    public void only_replace_updates_are_merged() {
+        String spec = "tensor(x{},y{})";
+        TensorModifyUpdate first = new TensorModifyUpdate(Operation.REPLACE, new TensorFieldValue(Tensor.from(spec, "{{x:0,y:0}:5, {x:0,y:1}:6}")));
+        TensorModifyUpdate second = new TensorModifyUpdate(Operation.REPLACE, new TensorFieldValue(Tensor.from(spec, "{{x:0,y:1}:7}")));
+        TensorModifyUpdate add = new TensorModifyUpdate(Operation.ADD, new TensorFieldValue(Tensor.from(spec, "{{x:0,y:1}:7}")));
+        assertTrue(TensorModifyUpdate.canMerge(first, second));
+        assertFalse(TensorModifyUpdate.canMerge(first, add));
+        assertFalse(TensorModifyUpdate.canMerge(add, add));
+
+        TensorFieldValue initial = new TensorFieldValue(Tensor.from(spec, "{{x:0,y:0}:1, {x:0,y:1}:2, {x:0,y:2}:3}"));
+        TensorModifyUpdate merged = TensorModifyUpdate.merge(List.of(first, second));
+        assertEquals(Tensor.from(spec, "{{x:0,y:0}:5, {x:0,y:1}:7, {x:0,y:2}:3}"),
+                     ((TensorFieldValue) merged.applyTo(initial)).getTensor().get());
+    }
+
 }
@@ -5,6 +5,8 @@ import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.tensor.Tensor;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public class TensorRemoveUpdateTest {
@@ -22,4 +24,14 @@ public class TensorRemoveUpdateTest {
         assertEquals(Tensor.from(spec, expected), updatedFieldValue.getTensor().get());
     }
 
+    @Test
+    public void merged_remove_updates_remove_all_addresses() {
+        String spec = "tensor(x{},y{})";
+        TensorFieldValue initial = new TensorFieldValue(Tensor.from(spec, "{{x:0,y:0}:2, {x:0,y:1}:3, {x:0,y:2}:4}"));
+        TensorRemoveUpdate first = new TensorRemoveUpdate(new TensorFieldValue(Tensor.from(spec, "{{x:0,y:1}:1}")));
+        TensorRemoveUpdate second = new TensorRemoveUpdate(new TensorFieldValue(Tensor.from(spec, "{{x:0,y:2}:1, {x:0,y:3}:1}")));
+        TensorRemoveUpdate merged = TensorRemoveUpdate.merge(List.of(first, second));
+        assertEquals(Tensor.from(spec, "{{x:0,y:0}:2}"), ((TensorFieldValue) merged.applyTo(initial)).getTensor().get());
+    }
+
 }
@@ -0,0 +1,111 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespaxmlparser;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.Field;
+import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.update.FieldUpdate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class VespaV1FeedReaderTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType type = new DocumentType("music");
+
+    public VespaV1FeedReaderTestCase() {
+        type.addField(new Field("artist", DataType.STRING));
+        manager.registerDocumentType(type);
+    }
+
+    @Test
+    public void requireThatOperationsCanBeWrittenAndRead() throws Exception {
+        Document document = new Document(type, "id:ns:music::1");
+        document.setFieldValue("artist", new StringFieldValue("Bob"));
+        DocumentUpdate update = new DocumentUpdate(type, "id:ns:music::2");
+        update.addFieldUpdate(FieldUpdate.createAssign(type.getField("artist"), new StringFieldValue("Alice")));
+        DocumentId remove = new DocumentId("id:ns:music::3");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VespaV1FeedWriter writer = new VespaV1FeedWriter(out);
+        writer.write(new DocumentFeedOperation(document));
+        writer.write(new DocumentUpdateFeedOperation(update, new TestAndSetCondition("music.artist==\"Bob\"")));
+        writer.write(new RemoveFeedOperation(remove));
+
+        VespaV1FeedReader reader = new VespaV1FeedReader(new ByteArrayInputStream(out.toByteArray()), manager);
+        FeedOperation operation = reader.read();
+        assertEquals(FeedOperation.Type.DOCUMENT, operation.getType());
+        assertEquals(document, operation.getDocument());
+        assertSame(TestAndSetCondition.NOT_PRESENT_CONDITION, operation.getCondition());
+
+        operation = reader.read();
+        assertEquals(FeedOperation.Type.UPDATE, operation.getType());
+        assertEquals(update, operation.getDocumentUpdate());
+        assertEquals("music.artist==\"Bob\"", operation.getCondition().getSelection());
+
+        operation = reader.read();
+        assertEquals(FeedOperation.Type.REMOVE, operation.getType());
+        assertEquals(remove, operation.getRemove());
+
+        assertSame(FeedOperation.INVALID, reader.read());
+    }
+
+    @Test
+    public void requireThatCorruptOperationsAreRejected() throws Exception {
+        byte[] data = VespaV1FeedWriter.toByteArray(new RemoveFeedOperation(new DocumentId("id:ns:music::1")));
+        data[data.length - 1]++;
+        try {
+            new VespaV1FeedReader(new ByteArrayInputStream(data), manager).read();
+            fail("Expected hash mismatch");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Hash mismatch", e.getMessage().substring(0, 13));
+        }
+        try {
+            new VespaV1FeedReader(new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1)), manager).read();
+            fail("Expected underflow");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Underflow", e.getMessage().substring(0, 9));
+        }
+    }
+
+    @Test
+    public void requireThatInvalidSizesAreRejectedBeforeAllocating() throws Exception {
+        for (int size : new int[] { -1, VespaV1FeedReader.MAX_OPERATION_SIZE + 1 }) {
+            ByteBuffer header = ByteBuffer.allocate(VespaV1FeedReader.HEADER_SIZE);
+            header.putInt(size).putInt(VespaV1FeedReader.REMOVE).putLong(0);
+            try {
+                new VespaV1FeedReader(new ByteArrayInputStream(header.array()), manager).read();
+                fail("Expected invalid size");
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals("Invalid operation size " + size, e.getMessage().substring(0, 23 + Integer.toString(size).length()));
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(VespaV1FeedReader.HEADER_SIZE);
+        header.putInt(VespaV1FeedReader.MAX_OPERATION_SIZE).putInt(VespaV1FeedReader.REMOVE).putLong(0);
+        try {
+            new VespaV1FeedReader(new ByteArrayInputStream(header.array()), manager).read();
+            fail("Expected underflow");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Underflow, failed reading " + VespaV1FeedReader.MAX_OPERATION_SIZE + " bytes. Got 0", e.getMessage());
+        }
+    }
+
+}
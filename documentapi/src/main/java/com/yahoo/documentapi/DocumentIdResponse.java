@@ -53,6 +53,18 @@ public class DocumentIdResponse extends Response {
         this.documentId = documentId;
     }
 
+    /**
+     * Creates a response containing a textual message and/or a document id, with the given outcome
+     *
+     * @param documentId  the DocumentId to encapsulate in the Response
+     * @param textMessage the message to encapsulate in the Response
+     * @param outcome     the outcome of the call
+     */
+    public DocumentIdResponse(long requestId, DocumentId documentId, String textMessage, Outcome outcome) {
+        super(requestId, textMessage, outcome);
+        this.documentId = documentId;
+    }
+
 
     /**
      * Returns the document id of this response, or null if there is none
@@ -53,6 +53,18 @@ public class DocumentResponse extends Response {
         this.document = document;
     }
 
+    /**
+     * Creates a response containing a textual message and/or a document, with the given outcome
+     *
+     * @param document    the Document to encapsulate in the Response
+     * @param textMessage the message to encapsulate in the Response
+     * @param outcome     the outcome of the call
+     */
+    public DocumentResponse(long requestId, Document document, String textMessage, Outcome outcome) {
+        super(requestId, textMessage, outcome);
+        this.document = document;
+    }
+
 
     /**
      * Returns the document of this response, or null if there is none
@@ -51,6 +51,18 @@ public class DocumentUpdateResponse extends Response {
         this.documentUpdate = documentUpdate;
     }
 
+    /**
+     * Creates a response containing a textual message and/or a document update, with the given outcome
+     *
+     * @param documentUpdate the DocumentUpdate to encapsulate in the Response
+     * @param textMessage    the message to encapsulate in the Response
+     * @param outcome        the outcome of the call
+     */
+    public DocumentUpdateResponse(long requestId, DocumentUpdate documentUpdate, String textMessage, Outcome outcome) {
+        super(requestId, textMessage, outcome);
+        this.documentUpdate = documentUpdate;
+    }
+
 
     /**
      * Returns the document update of this response or null if there is none
@@ -11,9 +11,26 @@ package com.yahoo.documentapi;
  */
 public class Response {
 
+    /** The outcome of the operation a response is for */
+    public enum Outcome {
+
+        /** The operation was successful */
+        SUCCESS,
+
+        /** The test-and-set condition of the operation did not match the document */
+        CONDITION_FAILED,
+
+        /** The operation failed because the storage nodes were out of space */
+        INSUFFICIENT_STORAGE,
+
+        /** The operation failed for some other reason */
+        ERROR
+
+    }
+
     private final long requestId;
     private final String textMessage;
-    private final boolean success;
+    private final Outcome outcome;
 
     /** Creates a successful response containing no information */
     public Response(long requestId) {
@@ -36,9 +53,19 @@ public class Response {
      * @param success     true if the response represents a successful call
      */
     public Response(long requestId, String textMessage, boolean success) {
+        this(requestId, textMessage, success ? Outcome.SUCCESS : Outcome.ERROR);
+    }
+
+    /**
+     * Creates a response containing a textual message
+     *
+     * @param textMessage the message to encapsulate in the Response
+     * @param outcome     the outcome of the call
+     */
+    public Response(long requestId, String textMessage, Outcome outcome) {
         this.requestId = requestId;
         this.textMessage = textMessage;
-        this.success = success;
+        this.outcome = outcome;
     }
 
     /**
@@ -53,13 +80,16 @@ public class Response {
      *
      * @return true if success
      */
-    public boolean isSuccess() { return success; }
+    public boolean isSuccess() { return outcome == Outcome.SUCCESS; }
+
+    /** Returns the outcome of the call this is a response to */
+    public Outcome getOutcome() { return outcome; }
 
     public long getRequestId() { return requestId; }
 
     public int hashCode() {
         return (Long.valueOf(requestId).hashCode()) + (textMessage == null ? 0 : textMessage.hashCode()) +
-                (success ? 1 : 0);
+                outcome.hashCode();
     }
 
     public boolean equals(Object o) {
@@ -68,14 +98,14 @@ public class Response {
         }
         Response other = (Response) o;
 
-        return requestId == other.requestId && success == other.success && (
+        return requestId == other.requestId && outcome == other.outcome && (
                 textMessage == null && other.textMessage == null ||
                         textMessage != null && other.textMessage != null && textMessage.equals(other.textMessage));
     }
 
     public String toString() {
         return "Response " + requestId + (textMessage == null ? "" : textMessage) +
-                (success ? " SUCCESSFUL" : " UNSUCCESSFUL");
+                (isSuccess() ? " SUCCESSFUL" : " UNSUCCESSFUL");
     }
 
 }
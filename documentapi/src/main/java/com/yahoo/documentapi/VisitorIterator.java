@@ -10,6 +10,7 @@ import java.util.logging.Level;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Logger;
 
 /**
@@ -84,10 +85,20 @@ public class VisitorIterator {
         // Wouldn't need this if this were a non-static class, but do it for
         // the sake of keeping things identical in Java and C++
         private ProgressToken progressToken;
+        private final int slices;
+        private final int sliceId;
 
         public DistributionRangeBucketSource(int distributionBitCount,
                                              ProgressToken progress) {
+            this(distributionBitCount, progress, 1, 0);
+        }
+
+        public DistributionRangeBucketSource(int distributionBitCount,
+                                             ProgressToken progress,
+                                             int slices, int sliceId) {
             progressToken = progress;
+            this.slices = slices;
+            this.sliceId = sliceId;
 
             // New progress token (could also be empty, in which this is a
             // no-op anyway)
@@ -291,8 +302,35 @@ public class VisitorIterator {
             }
         }
 
+        /**
+         * Returns the first bucket position at or after the given one which belongs to
+         * this slice, or the end of the bucket space if there is none.
+         */
+        private long nextPositionInSlice(long position) {
+            // The initial single distribution bit is replaced by that of the cluster
+            // before any buckets are visited, so there is nothing to slice
+            if (distributionBitCount == 1) {
+                return position;
+            }
+            long next = position + Math.floorMod(sliceId - position, (long)slices);
+            return Math.min(next, 1L << distributionBitCount);
+        }
+
+        /**
+         * Moves the bucket cursor past the buckets of other slices, counting these
+         * as finished.
+         */
+        private void skipToSlice() {
+            long cursor = progressToken.getBucketCursor();
+            long next = nextPositionInSlice(cursor);
+            if (next != cursor) {
+                progressToken.setBucketCursor(next);
+                progressToken.setFinishedBucketCount(progressToken.getFinishedBucketCount() + next - cursor);
+            }
+        }
+
         public boolean hasNext() {
-            return progressToken.getBucketCursor() < (1L << distributionBitCount);
+            return nextPositionInSlice(progressToken.getBucketCursor()) < (1L << distributionBitCount);
         }
 
         public boolean shouldYield() {
@@ -311,6 +349,7 @@ public class VisitorIterator {
 
         public BucketProgress getNext() {
             assert(hasNext()) : "getNext() called with hasNext() == false";
+            skipToSlice();
             long currentPosition = progressToken.getBucketCursor();
             long key = ProgressToken.makeNthBucketKey(currentPosition, distributionBitCount);
             ++currentPosition;
@@ -413,6 +452,10 @@ public class VisitorIterator {
                     assert(progressToken.getDistributionBitCount() == distributionBitCount);
                 }
                 flushActive = false;
+                // Count the remaining buckets of other slices as finished
+                if (!hasNext()) {
+                    skipToSlice();
+                }
                 // Update #finished since we might have had inconsistent active
                 // buckets that have prevent us from getting a correct value. At
                 // this point, however, all pending buckets should presumably be
@@ -441,6 +484,14 @@ public class VisitorIterator {
         public ExplicitBucketSource(Set<BucketId> superbuckets,
                                     int distributionBitCount,
                                     ProgressToken progress) {
+            this(superbuckets, distributionBitCount, progress, 1, 0);
+        }
+
+        public ExplicitBucketSource(Set<BucketId> superbuckets,
+                                    int distributionBitCount,
+                                    ProgressToken progress,
+                                    int slices, int sliceId) {
+            superbuckets = slice(superbuckets, slices, sliceId);
             this.distributionBitCount = progress.getDistributionBitCount();
             this.totalBucketCount = superbuckets.size();
 
@@ -475,6 +526,21 @@ public class VisitorIterator {
             }
         }
 
+        /** Returns every slices'th of the given buckets, in bucket order, starting at sliceId */
+        private static Set<BucketId> slice(Set<BucketId> superbuckets, int slices, int sliceId) {
+            if (slices == 1) {
+                return superbuckets;
+            }
+            Set<BucketId> slice = new TreeSet<>();
+            int i = 0;
+            for (BucketId id : new TreeSet<>(superbuckets)) {
+                if (i++ % slices == sliceId) {
+                    slice.add(id);
+                }
+            }
+            return slice;
+        }
+
         public boolean hasNext() {
             return false;
         }
@@ -754,6 +820,33 @@ public class VisitorIterator {
             BucketIdFactory idFactory,
             int distributionBitCount,
             ProgressToken progress) throws ParseException {
+        return createFromDocumentSelection(documentSelection, idFactory, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance based on the given document
+     * selection string, which iterates over only one of the given number of disjoint
+     * slices of the buckets to visit.
+     *
+     * @param documentSelection Document selection string used to create the
+     * <code>VisitorIterator</code> instance
+     * @param idFactory {@link BucketId} factory specifying the number of distribution bits
+     * to use et al.
+     * @param progress A unique {@link ProgressToken} instance which is used for maintaining the state
+     * of the iterator. Must only be used for iterating over the same slice
+     * @param slices The number of slices to split the buckets into
+     * @param sliceId The slice to iterate over, in [0, slices)
+     * @return A new <code>VisitorIterator</code> instance
+     * @throws ParseException if <code>documentSelection</code> fails to properly parse
+     * @see VisitorParameters#slice(int, int)
+     */
+    public static VisitorIterator createFromDocumentSelection(
+            String documentSelection,
+            BucketIdFactory idFactory,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) throws ParseException {
         BucketSelector bucketSel = new BucketSelector(idFactory);
         Set<BucketId> rawBuckets = bucketSel.getBucketList(documentSelection);
         BucketSource src;
@@ -763,10 +856,10 @@ public class VisitorIterator {
         // bit-based range source
         if (rawBuckets == null) {
             // Range source
-            src = new DistributionRangeBucketSource(distributionBitCount, progress);
+            src = new DistributionRangeBucketSource(distributionBitCount, progress, slices, sliceId);
         } else {
             // Explicit source
-            src = new ExplicitBucketSource(rawBuckets, distributionBitCount, progress);
+            src = new ExplicitBucketSource(rawBuckets, distributionBitCount, progress, slices, sliceId);
         }
 
         return new VisitorIterator(progress, src);
@@ -790,9 +883,31 @@ public class VisitorIterator {
             Set<BucketId> bucketsToVisit,
             int distributionBitCount,
             ProgressToken progress) {
+        return createFromExplicitBucketSet(bucketsToVisit, distributionBitCount, progress, 1, 0);
+    }
+
+    /**
+     * Create a new <code>VisitorIterator</code> instance based on the given
+     * set of buckets, which iterates over only one of the given number of
+     * disjoint slices of these.
+     *
+     * @param bucketsToVisit The set of buckets that will be visited
+     * @param distributionBitCount Number of distribution bits to use
+     * @param progress A unique ProgressToken instance which is used for maintaining the state
+     * of the iterator. Must only be used for iterating over the same slice
+     * @param slices The number of slices to split the buckets into
+     * @param sliceId The slice to iterate over, in [0, slices)
+     * @return A new <code>VisitorIterator</code> instance
+     */
+    public static VisitorIterator createFromExplicitBucketSet(
+            Set<BucketId> bucketsToVisit,
+            int distributionBitCount,
+            ProgressToken progress,
+            int slices,
+            int sliceId) {
         // For obvious reasons, always create an explicit source here
         BucketSource src = new ExplicitBucketSource(bucketsToVisit,
-                distributionBitCount, progress);
+                distributionBitCount, progress, slices, sliceId);
         return new VisitorIterator(progress, src);
     }
 }
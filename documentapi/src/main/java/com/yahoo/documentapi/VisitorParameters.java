@@ -49,6 +49,8 @@ public class VisitorParameters extends Parameters {
     private int traceLevel = 0;
     private ThrottlePolicy throttlePolicy = null;
     private boolean skipBucketsOnFatalErrors = false;
+    private int slices = 1;
+    private int sliceId = 0;
 
     // Advanced parameter, only for internal use.
     Set<BucketId> bucketsToVisit = null;
@@ -100,6 +102,7 @@ public class VisitorParameters extends Parameters {
                 params.getDynamicMaxBucketsIncreaseFactor());
         setTraceLevel(params.getTraceLevel());
         skipBucketsOnFatalErrors(params.skipBucketsOnFatalErrors());
+        slice(params.getSlices(), params.getSliceId());
     }
 
     // Get functions
@@ -330,6 +333,33 @@ public class VisitorParameters extends Parameters {
 
     public void skipBucketsOnFatalErrors(boolean skipBucketsOnFatalErrors) { this.skipBucketsOnFatalErrors = skipBucketsOnFatalErrors; }
 
+    /**
+     * Restricts this visit to one of the given number of disjoint slices of the bucket space.
+     * Visits with the same parameters, but with each of the slice ids in [0, slices), together
+     * visit the same documents as a single visit which is not sliced, and may run concurrently,
+     * in one or several processes. The progress of each slice is tracked by its own
+     * {@link ProgressToken}, which may only be used to resume visiting of that same slice.
+     * Note that slices are only guaranteed to be disjoint and complete if the distribution bit
+     * count of the cluster does not change during visiting.
+     *
+     * @param slices the number of slices to split the visit into, which must be positive
+     * @param sliceId the slice to visit, in [0, slices)
+     */
+    public void slice(int slices, int sliceId) {
+        if (slices < 1)
+            throw new IllegalArgumentException("Number of slices must be positive, but was " + slices);
+        if (sliceId < 0 || sliceId >= slices)
+            throw new IllegalArgumentException("Slice id must be in [0, " + slices + "), but was " + sliceId);
+        this.slices = slices;
+        this.sliceId = sliceId;
+    }
+
+    /** Returns the number of slices the visit is split into, 1 if it is not sliced */
+    public int getSlices() { return slices; }
+
+    /** Returns the slice to visit, in [0, getSlices()) */
+    public int getSliceId() { return sliceId; }
+
     /**
      * Set whether or not max buckets per visitor value should be dynamically
      * increased when using orderdoc and visitors do not return at least half
@@ -378,6 +408,9 @@ public class VisitorParameters extends Parameters {
         sb.append("  Max total hits:     ").append(maxTotalHits).append('\n');
         sb.append("  Max buckets:        ").append(maxBucketsPerVisitor).append('\n');
         sb.append("  Priority:           ").append(getPriority().toString()).append('\n');
+        if (slices > 1) {
+            sb.append("  Slice:              ").append(sliceId).append(" of ").append(slices).append('\n');
+        }
         if (dynamicallyIncreaseMaxBucketsPerVisitor) {
             sb.append("  Dynamically increasing max buckets per visitor\n");
             sb.append("  Increase factor:    ")
@@ -34,6 +34,7 @@ import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.ThrottlePolicy;
 
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -143,7 +144,7 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
         return send(msg);
     }
 
-    private boolean mayOverrideWithGetOnlyRoute(Message msg) {
+    private boolean mayOverrideWithGetOnlyRoute(Message msg, String route) {
         // Only allow implicitly overriding the default Get route if the message is attempted sent
         // with the default route originally. Otherwise it's reasonable to assume that the caller
         // has some explicit idea of why the regular route is set to the value it is.
@@ -159,11 +160,23 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
      * @return the document api result object.
      */
     public Result send(Message msg) {
+        return send(msg, route);
+    }
+
+    /**
+     * Like {@link #send(Message)}, but sends the message to the given route rather than the route of this session.
+     * This allows messages to different routes to be sent through a single session.
+     *
+     * @param msg the message to send.
+     * @param route the route to send the message to, or null to send it to the route already set in the message.
+     * @return the document api result object.
+     */
+    public Result send(Message msg, String route) {
         try {
             long reqId = requestId.incrementAndGet();
             msg.setContext(reqId);
             msg.getTrace().setLevel(traceLevel);
-            String toRoute = (mayOverrideWithGetOnlyRoute(msg) ? routeForGet : route);
+            String toRoute = (mayOverrideWithGetOnlyRoute(msg, route) ? routeForGet : route);
             if (toRoute != null) {
                 return toResult(reqId, session.send(msg, toRoute, true));
             } else {
@@ -259,18 +272,30 @@ public class MessageBusAsyncSession implements MessageBusSession, AsyncSession {
     private static Response toError(Reply reply, long reqId) {
         Message msg = reply.getMessage();
         String err = getErrorMessage(reply);
+        Response.Outcome outcome = toOutcome(reply);
         switch (msg.getType()) {
         case DocumentProtocol.MESSAGE_PUTDOCUMENT:
-            return new DocumentResponse(reqId, ((PutDocumentMessage)msg).getDocumentPut().getDocument(), err, false);
+            return new DocumentResponse(reqId, ((PutDocumentMessage)msg).getDocumentPut().getDocument(), err, outcome);
         case DocumentProtocol.MESSAGE_UPDATEDOCUMENT:
-            return new DocumentUpdateResponse(reqId, ((UpdateDocumentMessage)msg).getDocumentUpdate(), err, false);
+            return new DocumentUpdateResponse(reqId, ((UpdateDocumentMessage)msg).getDocumentUpdate(), err, outcome);
         case DocumentProtocol.MESSAGE_REMOVEDOCUMENT:
-            return new DocumentIdResponse(reqId, ((RemoveDocumentMessage)msg).getDocumentId(), err, false);
+            return new DocumentIdResponse(reqId, ((RemoveDocumentMessage)msg).getDocumentId(), err, outcome);
         case DocumentProtocol.MESSAGE_GETDOCUMENT:
-            return new DocumentIdResponse(reqId, ((GetDocumentMessage)msg).getDocumentId(), err, false);
+            return new DocumentIdResponse(reqId, ((GetDocumentMessage)msg).getDocumentId(), err, outcome);
         default:
-            return new Response(reqId, err, false);
+            return new Response(reqId, err, outcome);
+        }
+    }
+
+    private static Response.Outcome toOutcome(Reply reply) {
+        Set<Integer> errorCodes = reply.getErrorCodes();
+        if (errorCodes.contains(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED)) {
+            return Response.Outcome.CONDITION_FAILED;
+        }
+        if (errorCodes.size() == 1 && errorCodes.contains(DocumentProtocol.ERROR_NO_SPACE)) {
+            return Response.Outcome.INSUFFICIENT_STORAGE;
         }
+        return Response.Outcome.ERROR;
     }
 
     private static Response toSuccess(Reply reply, long reqId) {
@@ -38,9 +38,12 @@ import com.yahoo.vdslib.VisitorStatistics;
 import com.yahoo.vdslib.state.ClusterState;
 
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
@@ -308,6 +311,11 @@ public class MessageBusVisitorSession implements VisitorSession {
 
     private static final Logger log = Logger.getLogger(MessageBusVisitorSession.class.getName());
 
+    /** The max number of tasks handling incoming messages concurrently, per session */
+    private static final int MAX_MESSAGE_TASKS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    /** The max number of messages handled by a task before it yields to other tasks of the executor */
+    private static final int MAX_MESSAGES_PER_TASK = 64;
+
     private static AtomicLong sessionCounter = new AtomicLong(0);
     private static long getNextSessionId() {
         return sessionCounter.incrementAndGet();
@@ -341,6 +349,13 @@ public class MessageBusVisitorSession implements VisitorSession {
      * because it is decremented before the message is actually processed.
      */
     private int pendingMessageCount = 0;
+    /**
+     * Incoming data and info messages, handled by up to MAX_MESSAGE_TASKS concurrent tasks.
+     * When all tasks are busy, new messages are picked up by the running tasks rather than
+     * submitted to the executor one by one.
+     */
+    private final Queue<Message> incomingMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeMessageTasks = new AtomicInteger(0);
 
     public MessageBusVisitorSession(VisitorParameters visitorParameters,
                                     AsyncTaskExecutor taskExecutor,
@@ -483,9 +498,36 @@ public class MessageBusVisitorSession implements VisitorSession {
 
     private MessageHandler createMessageHandler() {
         return (message) -> {
-            try {
-                taskExecutor.submitTask(new HandleMessageTask(message));
-            } catch (RejectedExecutionException e) {
+            incomingMessages.add(message);
+            submitHandleMessagesTaskIfApplicable();
+        };
+    }
+
+    private boolean tryStartMessageTask() {
+        int active;
+        do {
+            active = activeMessageTasks.get();
+            if (active >= MAX_MESSAGE_TASKS) {
+                return false;
+            }
+        } while ( ! activeMessageTasks.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    /**
+     * Submits a task to handle incoming messages, unless all tasks are already running, in which case
+     * one of the running tasks will pick up the messages once it is done with its current one.
+     */
+    private void submitHandleMessagesTaskIfApplicable() {
+        if (incomingMessages.isEmpty() || ! tryStartMessageTask()) {
+            return;
+        }
+        try {
+            taskExecutor.submitTask(new HandleMessagesTask());
+        } catch (RejectedExecutionException e) {
+            activeMessageTasks.decrementAndGet();
+            Message message;
+            while ((message = incomingMessages.poll()) != null) {
                 Reply reply = ((DocumentMessage)message).createReply();
                 message.swapState(reply);
                 reply.addError(new Error(
@@ -493,7 +535,7 @@ public class MessageBusVisitorSession implements VisitorSession {
                         "Visitor session has been aborted"));
                 receiver.reply(reply);
             }
-        };
+        }
     }
 
     private void initializeRoute(RoutingTable routingTable) {
@@ -572,7 +614,9 @@ public class MessageBusVisitorSession implements VisitorSession {
                     params.getDocumentSelection(),
                     bucketIdFactory,
                     1,
-                    progressToken);
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         } else {
             if (log.isLoggable(Level.FINE)) {
                 log.log(Level.FINE, "parameters specify explicit bucket set " +
@@ -586,7 +630,9 @@ public class MessageBusVisitorSession implements VisitorSession {
             visitorIterator = VisitorIterator.createFromExplicitBucketSet(
                     params.getBucketsToVisit(),
                     1,
-                    progressToken);
+                    progressToken,
+                    params.getSlices(),
+                    params.getSliceId());
         }
         return new VisitingProgress(visitorIterator, progressToken);
     }
@@ -747,15 +793,20 @@ public class MessageBusVisitorSession implements VisitorSession {
         }
     }
 
-    private class HandleMessageTask implements Runnable {
-        private Message message;
-
-        private HandleMessageTask(Message message) {
-            this.message = message;
-        }
+    private class HandleMessagesTask implements Runnable {
 
         @Override
         public void run() {
+            Message message;
+            for (int i = 0; i < MAX_MESSAGES_PER_TASK && (message = incomingMessages.poll()) != null; i++) {
+                handleMessage(message);
+            }
+            // Messages added after the loop above, while this task was still counted as active, are our responsibility
+            activeMessageTasks.decrementAndGet();
+            submitHandleMessagesTaskIfApplicable();
+        }
+
+        private void handleMessage(Message message) {
             if (log.isLoggable(Level.FINE)) {
                 log.log(Level.FINE, "Visitor session " + sessionName + ": Received message " + message);
             }
@@ -3,8 +3,21 @@ package com.yahoo.documentapi.messagebus.protocol;
 
 import com.yahoo.config.subscription.ConfigSubscriber;
 import com.yahoo.document.DocumentGet;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.Result;
+import com.yahoo.document.select.Visitor;
+import com.yahoo.document.select.rule.ArithmeticNode;
+import com.yahoo.document.select.rule.AttributeNode;
+import com.yahoo.document.select.rule.ComparisonNode;
+import com.yahoo.document.select.rule.DocumentNode;
+import com.yahoo.document.select.rule.EmbracedNode;
+import com.yahoo.document.select.rule.IdNode;
+import com.yahoo.document.select.rule.LiteralNode;
+import com.yahoo.document.select.rule.LogicNode;
+import com.yahoo.document.select.rule.NegationNode;
+import com.yahoo.document.select.rule.NowNode;
+import com.yahoo.document.select.rule.VariableNode;
 import java.util.logging.Level;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.routing.Route;
@@ -12,6 +25,8 @@ import com.yahoo.messagebus.routing.RoutingContext;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 
 /**
@@ -26,7 +41,7 @@ public class DocumentRouteSelectorPolicy
         implements DocumentProtocolRoutingPolicy, ConfigSubscriber.SingleSubscriber<DocumentrouteselectorpolicyConfig> {
 
     private static Logger log = Logger.getLogger(DocumentRouteSelectorPolicy.class.getName());
-    private Map<String, DocumentSelector> config;
+    private Map<String, RouteSelector> config;
     private String error = "Not configured.";
     private ConfigSubscriber subscriber;
 
@@ -59,7 +74,7 @@ public class DocumentRouteSelectorPolicy
     @Override
     public void configure(DocumentrouteselectorpolicyConfig cfg) {
         String error = null;
-        Map<String, DocumentSelector> config = new HashMap<>();
+        Map<String, RouteSelector> config = new HashMap<>();
         for (int i = 0; i < cfg.route().size(); i++) {
             DocumentrouteselectorpolicyConfig.Route route = cfg.route(i);
             if (route.selector().isEmpty()) {
@@ -74,7 +89,7 @@ public class DocumentRouteSelectorPolicy
                         e.getMessage();
                 break;
             }
-            config.put(route.name(), selector);
+            config.put(route.name(), new RouteSelector(selector));
         }
         synchronized (this) {
             this.config = config;
@@ -91,19 +106,21 @@ public class DocumentRouteSelectorPolicy
             return;
         }
 
-        // Invoke private select method for each candidate recipient.
+        // Invoke private select method for each candidate recipient, using the config at the time of the call.
+        Map<String, RouteSelector> config;
         synchronized (this) {
             if (error != null) {
                 context.setError(DocumentProtocol.ERROR_POLICY_FAILURE, error);
                 return;
             }
-            for (int i = 0; i < context.getNumRecipients(); ++i) {
-                Route recipient = context.getRecipient(i);
-                String routeName = recipient.toString();
-                if (select(context, routeName)) {
-                    Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
-                    context.addChild(route != null ? route : recipient);
-                }
+            config = this.config;
+        }
+        for (int i = 0; i < context.getNumRecipients(); ++i) {
+            Route recipient = context.getRecipient(i);
+            String routeName = recipient.toString();
+            if (select(context, config, routeName)) {
+                Route route = context.getMessageBus().getRoutingTable(DocumentProtocol.NAME).getRoute(routeName);
+                context.addChild(route != null ? route : recipient);
             }
         }
         context.setSelectOnRetry(false);
@@ -120,27 +137,34 @@ public class DocumentRouteSelectorPolicy
      * validates the location, this method returns true.
      *
      * @param context   the routing context that contains the necessary data.
+     * @param config    the selectors of the configured routes.
      * @param routeName the candidate route whose selector to run.
      * @return whether or not to send to the given recipient.
      */
-    private boolean select(RoutingContext context, String routeName) {
+    private static boolean select(RoutingContext context, Map<String, RouteSelector> config, String routeName) {
         if (config == null) {
             return true;
         }
-        DocumentSelector selector = config.get(routeName);
-        if (selector == null) {
+        RouteSelector routeSelector = config.get(routeName);
+        if (routeSelector == null) {
             return true;
         }
+        DocumentSelector selector = routeSelector.selector;
 
         // Select based on message content.
         Message msg = context.getMessage();
         switch (msg.getType()) {
 
-        case DocumentProtocol.MESSAGE_PUTDOCUMENT:
-            return selector.accepts(((PutDocumentMessage)msg).getDocumentPut()) == Result.TRUE;
-
-        case DocumentProtocol.MESSAGE_UPDATEDOCUMENT:
-            return selector.accepts(((UpdateDocumentMessage)msg).getDocumentUpdate()) != Result.FALSE;
+        case DocumentProtocol.MESSAGE_PUTDOCUMENT: {
+            PutDocumentMessage putMsg = (PutDocumentMessage)msg;
+            return routeSelector.acceptsPut(putMsg.getDocumentPut().getDocument().getDataType(),
+                                            () -> selector.accepts(putMsg.getDocumentPut()) == Result.TRUE);
+        }
+        case DocumentProtocol.MESSAGE_UPDATEDOCUMENT: {
+            UpdateDocumentMessage updateMsg = (UpdateDocumentMessage)msg;
+            return routeSelector.acceptsUpdate(updateMsg.getDocumentUpdate().getDocumentType(),
+                                               () -> selector.accepts(updateMsg.getDocumentUpdate()) != Result.FALSE);
+        }
 
         case DocumentProtocol.MESSAGE_REMOVEDOCUMENT: {
             RemoveDocumentMessage removeMsg = (RemoveDocumentMessage)msg;
@@ -165,6 +189,86 @@ public class DocumentRouteSelectorPolicy
         }
     }
 
+    /**
+     * The selector of a configured route. Selectors which depend only on the document type, which is the
+     * common case, give the same result for all documents of a type, so their results for puts and
+     * updates are cached per document type, rather than evaluated for every message. A new instance is
+     * made on every config change, which thus clears the cache.
+     */
+    private static class RouteSelector {
+
+        private final DocumentSelector selector;
+        private final boolean dependsOnlyOnDocumentType;
+        private final Map<String, TypeSelection> putSelections = new ConcurrentHashMap<>();
+        private final Map<String, TypeSelection> updateSelections = new ConcurrentHashMap<>();
+
+        RouteSelector(DocumentSelector selector) {
+            this.selector = selector;
+            DocumentTypeOnlyVisitor visitor = new DocumentTypeOnlyVisitor();
+            selector.visit(visitor);
+            this.dependsOnlyOnDocumentType = visitor.dependsOnlyOnDocumentType;
+        }
+
+        boolean acceptsPut(DocumentType type, BooleanSupplier evaluation) {
+            return accepts(putSelections, type, evaluation);
+        }
+
+        boolean acceptsUpdate(DocumentType type, BooleanSupplier evaluation) {
+            return accepts(updateSelections, type, evaluation);
+        }
+
+        private boolean accepts(Map<String, TypeSelection> selections, DocumentType type,
+                                BooleanSupplier evaluation) {
+            if ( ! dependsOnlyOnDocumentType || type == null) {
+                return evaluation.getAsBoolean();
+            }
+            TypeSelection selection = selections.get(type.getName());
+            if (selection == null || selection.type != type) { // Another instance of the type means a new document config
+                selection = new TypeSelection(type, evaluation.getAsBoolean());
+                selections.put(type.getName(), selection);
+            }
+            return selection.accepted;
+        }
+
+    }
+
+    /** The result of a selector for a document type */
+    private static class TypeSelection {
+
+        final DocumentType type;
+        final boolean accepted;
+
+        TypeSelection(DocumentType type, boolean accepted) {
+            this.type = type;
+            this.accepted = accepted;
+        }
+
+    }
+
+    /** Checks whether a selector refers to nothing but document types and literals */
+    private static class DocumentTypeOnlyVisitor implements Visitor {
+
+        boolean dependsOnlyOnDocumentType = true;
+
+        public void visit(ArithmeticNode node) { dependsOnlyOnDocumentType = false; }
+        public void visit(AttributeNode node) { dependsOnlyOnDocumentType = false; }
+        public void visit(ComparisonNode node) { dependsOnlyOnDocumentType = false; }
+        public void visit(DocumentNode node) { }
+        public void visit(EmbracedNode node) { node.getNode().accept(this); }
+        public void visit(IdNode node) { dependsOnlyOnDocumentType = false; }
+        public void visit(LiteralNode node) { }
+        public void visit(NegationNode node) { node.getNode().accept(this); }
+        public void visit(NowNode node) { dependsOnlyOnDocumentType = false; }
+        public void visit(VariableNode node) { dependsOnlyOnDocumentType = false; }
+
+        public void visit(LogicNode node) {
+            for (LogicNode.NodeItem item : node.getItems()) {
+                item.getNode().accept(this);
+            }
+        }
+
+    }
+
     @Override
     public void merge(RoutingContext context) {
         DocumentProtocol.merge(context);
@@ -18,6 +18,7 @@ import com.yahoo.messagebus.routing.RoutingContext;
 import com.yahoo.messagebus.routing.RoutingNodeIterator;
 import com.yahoo.messagebus.routing.VerbatimDirective;
 import com.yahoo.vdslib.distribution.Distribution;
+import com.yahoo.vdslib.distribution.Group;
 import com.yahoo.vdslib.state.ClusterState;
 import com.yahoo.vdslib.state.Node;
 import com.yahoo.vdslib.state.NodeType;
@@ -343,10 +344,41 @@ public class StoragePolicy extends SlobrokPolicy {
             }
         }
 
+        /**
+         * The ideal distributor of each super bucket, lazily computed for a single cluster state and distribution
+         * config. As the ideal distributor depends only on the distribution bits of a bucket, this saves computing
+         * the ideal state for every message, and a new cache is simply made whenever the state or config changes.
+         */
+        private static class IdealDistributorCache {
+
+            /** Caches for states with more distribution bits than this would use too much memory */
+            static final int MAX_DISTRIBUTION_BITS = 16;
+
+            private final ClusterState state;
+            private final Group rootGroup;
+            private final int[] distributors; // distributor index + 1, or 0 if not yet computed
+
+            IdealDistributorCache(ClusterState state, Group rootGroup) {
+                this.state = state;
+                this.rootGroup = rootGroup;
+                this.distributors = new int[1 << state.getDistributionBitCount()];
+            }
+
+            boolean isFor(ClusterState state, Group rootGroup) {
+                return this.state == state && this.rootGroup == rootGroup;
+            }
+
+            // Races with other threads are harmless, as they would all store the same value
+            int get(int superbucket) { return distributors[superbucket] - 1; }
+            void put(int superbucket, int distributor) { distributors[superbucket] = distributor + 1; }
+
+        }
+
         private final HostFetcher hostFetcher;
         private final Distribution distribution;
         private final InstabilityChecker persistentFailureChecker;
         private final AtomicReference<ClusterState> safeCachedClusterState = new AtomicReference<>(null);
+        private final AtomicReference<IdealDistributorCache> idealDistributorCache = new AtomicReference<>(null);
         private final AtomicInteger oldClusterVersionGottenCount = new AtomicInteger(0);
         private final int maxOldClusterVersionBeforeSendingRandom; // Reset cluster version protection
 
@@ -377,7 +409,7 @@ public class StoragePolicy extends SlobrokPolicy {
 
             if (cachedClusterState != null) { // If we have a cached cluster state (regular case), we use that to calculate correct node.
                 try{
-                    Integer target = distribution.getIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
+                    Integer target = getIdealDistributorNode(cachedClusterState, bucketId);
                     // If we have had too many failures towards existing node, reset failure count and send to random
                     if (persistentFailureChecker.tooManyFailures(target)) {
                         sendRandomReason = "Too many failures detected versus distributor " + target + ". Sending to random instead of using cached state.";
@@ -422,6 +454,28 @@ public class StoragePolicy extends SlobrokPolicy {
             return hostFetcher.getRandomTargetSpec(context);
         }
 
+        private int getIdealDistributorNode(ClusterState state, BucketId bucketId)
+                throws Distribution.TooFewBucketBitsInUseException, Distribution.NoDistributorsAvailableException {
+            int distributionBits = state.getDistributionBitCount();
+            if (distributionBits > IdealDistributorCache.MAX_DISTRIBUTION_BITS || bucketId.getUsedBits() < distributionBits) {
+                return distribution.getIdealDistributorNode(state, bucketId, owningBucketStates);
+            }
+            // Read before computing, so results for a new config may only end up in caches which are about to be replaced
+            Group rootGroup = distribution.getRootGroup();
+            IdealDistributorCache cache = idealDistributorCache.get();
+            if (cache == null || ! cache.isFor(state, rootGroup)) {
+                cache = new IdealDistributorCache(state, rootGroup);
+                idealDistributorCache.set(cache);
+            }
+            int superbucket = (int) (bucketId.getRawId() & ((1L << distributionBits) - 1));
+            int target = cache.get(superbucket);
+            if (target < 0) {
+                target = distribution.getIdealDistributorNode(state, bucketId, owningBucketStates);
+                cache.put(superbucket, target);
+            }
+            return target;
+        }
+
         private static MessageContext createRandomDistributorTargetContext() {
             return new MessageContext(null);
         }
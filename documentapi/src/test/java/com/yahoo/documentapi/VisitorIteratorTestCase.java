@@ -1557,6 +1557,61 @@ public class VisitorIteratorTestCase {
         assertTrue(caughtIt);
     }
 
+    @Test
+    public void testSlicedRangeSourceVisitsDisjointAndCompleteSlices() throws ParseException {
+        int distBits = 4;
+        int slices = 3;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> visited = new TreeSet<>();
+        for (int sliceId = 0; sliceId < slices; sliceId++) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", idFactory, distBits, p, slices, sliceId);
+            assertEquals(1 << distBits, p.getTotalBucketCount());
+            int count = 0;
+            while (iter.hasNext()) {
+                BucketId superbucket = iter.getNext().getSuperbucket();
+                assertTrue(visited.add(superbucket));
+                iter.update(superbucket, ProgressToken.FINISHED_BUCKET);
+                ++count;
+            }
+            assertEquals(sliceId == 0 ? 6 : 5, count);
+            assertTrue(iter.isDone());
+            assertTrue(p.isFinished());
+            assertEquals(p.getTotalBucketCount(), p.getFinishedBucketCount());
+        }
+        assertEquals(1 << distBits, visited.size());
+    }
+
+    @Test
+    public void testSlicedRangeSourceWithMoreSlicesThanBuckets() throws ParseException {
+        ProgressToken p = new ProgressToken();
+        VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                "id.group != \"yahoo.com\"", new BucketIdFactory(), 2, p, 8, 5);
+        assertFalse(iter.hasNext());
+        assertTrue(iter.isDone());
+    }
+
+    @Test
+    public void testSlicedExplicitSourceVisitsDisjointAndCompleteSlices() throws ParseException {
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> visited = new TreeSet<>();
+        for (int sliceId = 0; sliceId < 2; sliceId++) {
+            ProgressToken p = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.user == 1234 or id.user == 6789 or id.user == 8009", idFactory, 16, p, 2, sliceId);
+            assertEquals(sliceId == 0 ? 2 : 1, p.getTotalBucketCount());
+            while (iter.hasNext()) {
+                BucketId superbucket = iter.getNext().getSuperbucket();
+                assertTrue(visited.add(superbucket));
+                iter.update(superbucket, ProgressToken.FINISHED_BUCKET);
+            }
+            assertTrue(iter.isDone());
+            assertTrue(p.isFinished());
+        }
+        assertEquals(3, visited.size());
+    }
+
     @Test
     public void testBinaryProgressSerialization() {
         String input = "VDS bucket progress file (48.828125% completed)\n" +
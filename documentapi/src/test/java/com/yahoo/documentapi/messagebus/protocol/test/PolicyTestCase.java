@@ -617,6 +617,36 @@ public class PolicyTestCase {
         frame.destroy();
     }
 
+    @Test
+    public void requireThatRepeatedSelectionsGiveTheSameResults() {
+        PolicyTestFrame frame = new PolicyTestFrame(manager);
+        frame.setHop(new HopSpec("test", "[DocumentRouteSelector:raw:" +
+                                         "route[2]\n" +
+                                         "route[0].name \"foo\"\n" +
+                                         "route[0].selector \"testdoc or (other and not testdoc)\"\n" +
+                                         "route[0].feed \"myfeed\"\n" +
+                                         "route[1].name \"bar\"\n" +
+                                         "route[1].selector \"testdoc and testdoc.intfield > 10\"\n" +
+                                         "route[1].feed \"myfeed\"\n]").addRecipient("foo").addRecipient("bar"));
+
+        for (int i = 0; i < 3; i++) {
+            Document doc = new Document(manager.getDocumentType("testdoc"), new DocumentId("id:ns:testdoc::" + i));
+            doc.setFieldValue("intfield", i * 10);
+            frame.setMessage(new PutDocumentMessage(new DocumentPut(doc)));
+            frame.assertSelect(i * 10 > 10 ? Arrays.asList("foo", "bar") : Arrays.asList("foo"));
+
+            frame.setMessage(new PutDocumentMessage(new DocumentPut(new Document(manager.getDocumentType("other"),
+                                                                                 new DocumentId("id:ns:other::" + i)))));
+            frame.assertSelect(Arrays.asList("foo"));
+
+            frame.setMessage(new UpdateDocumentMessage(new DocumentUpdate(manager.getDocumentType("other"),
+                                                                          new DocumentId("id:ns:other::" + i))));
+            frame.assertSelect(Arrays.asList("foo"));
+        }
+
+        frame.destroy();
+    }
+
     @Test
     public void testDocumentRouteSelectorIgnore() {
         PolicyTestFrame frame = new PolicyTestFrame(manager);
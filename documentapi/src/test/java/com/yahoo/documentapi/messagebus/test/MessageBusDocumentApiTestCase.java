@@ -1,19 +1,30 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.documentapi.messagebus.test;
 
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.AsyncParameters;
 import com.yahoo.documentapi.DocumentAccess;
 import com.yahoo.documentapi.ProgressToken;
+import com.yahoo.documentapi.Response;
+import com.yahoo.documentapi.Result;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
+import com.yahoo.documentapi.messagebus.MessageBusAsyncSession;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
 import com.yahoo.documentapi.messagebus.MessageBusParams;
 import com.yahoo.documentapi.messagebus.protocol.CreateVisitorReply;
 import com.yahoo.documentapi.messagebus.protocol.DocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.test.AbstractDocumentApiTestCase;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.slobrok.server.Slobrok;
+import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.Reply;
 import com.yahoo.messagebus.SourceSessionParams;
@@ -22,6 +33,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -77,6 +90,12 @@ public class MessageBusDocumentApiTestCase extends AbstractDocumentApiTestCase {
                 CreateVisitorReply visitorReply = (CreateVisitorReply)reply;
                 visitorReply.setLastBucket(ProgressToken.FINISHED_BUCKET);
                 sendReply(reply);
+            } else if (msg.getType() == DocumentProtocol.MESSAGE_PUTDOCUMENT
+                       && ((PutDocumentMessage)msg).getDocumentPut().getCondition().isPresent()) {
+                Reply reply = ((DocumentMessage)msg).createReply();
+                msg.swapState(reply);
+                reply.addError(new Error(DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED, "Condition not met"));
+                sendReply(reply);
             } else {
                 super.handleMessage(msg);
             }
@@ -96,4 +115,20 @@ public class MessageBusDocumentApiTestCase extends AbstractDocumentApiTestCase {
         // TODO(vekterli): test remote-to-local message sending as well?
         // TODO(vekterli): test DocumentAccess shutdown during active ession?
     }
+
+    @Test
+    public void requireThatFailedResponsesHaveTheOutcomeOfTheReply() throws InterruptedException {
+        MessageBusAsyncSession session = ((MessageBusDocumentAccess)access).createAsyncSession(new AsyncParameters());
+        DocumentType type = access.getDocumentTypeManager().getDocumentType("music");
+        DocumentPut put = new DocumentPut(new Document(type, new DocumentId("id:ns:music::1")));
+        put.setCondition(new TestAndSetCondition("music.artist == \"Foo\""));
+
+        Result result = session.send(new PutDocumentMessage(put));
+        assertTrue(result.isSuccess());
+        Response response = session.getNext(60 * 1000);
+        assertEquals(result.getRequestId(), response.getRequestId());
+        assertFalse(response.isSuccess());
+        assertEquals(Response.Outcome.CONDITION_FAILED, response.getOutcome());
+        session.destroy();
+    }
 }
@@ -1127,6 +1127,29 @@ public class MessageBusVisitorSessionTestCase {
         assertTrue(mc.visitorSession.isDone());
     }
 
+    @Test
+    public void testMessagesArrivingWhileAllMessageTasksAreBusyAreHandledByRunningTasks() {
+        MockComponents mc = createDefaultMock("id.user=1234");
+        mc.visitorSession.start();
+        mc.executor.expectAndProcessTasks(1);
+
+        int maxTasks = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int numMessages = maxTasks + 200;
+        for (int i = 0; i < numMessages; i++) {
+            mc.receiver.send(new RemoveDocumentMessage(new DocumentId("id:ns:testdoc::" + i)));
+        }
+        assertEquals(maxTasks, mc.executor.getScheduledTaskCount());
+        while (mc.executor.getScheduledTaskCount() > 0) {
+            mc.executor.expectAndProcessTasks(mc.executor.getScheduledTaskCount(), 1);
+        }
+
+        assertEquals(numMessages, mc.dataHandler.getMessages().size());
+        for (int i = 0; i < numMessages; i++) {
+            RemoveDocumentMessage msg = (RemoveDocumentMessage)mc.dataHandler.getMessages().get(i).getMessage();
+            assertEquals("id:ns:testdoc::" + i, msg.getDocumentId().toString());
+        }
+    }
+
     @Test
     public void testCreateDefaultVisitorControlHandlerIfNoneGiven() {
         MockSender sender = new MockSender();
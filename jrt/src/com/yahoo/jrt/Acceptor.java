@@ -4,6 +4,7 @@ package com.yahoo.jrt;
 
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -100,8 +101,9 @@ public class Acceptor {
     private void run() {
         while (serverChannel.isOpen()) {
             try {
-                TransportThread tt = parent.selectThread();
-                tt.addConnection(new Connection(tt, owner, serverChannel.accept(), parent.getTcpNoDelay()));
+                SocketChannel channel = serverChannel.accept();
+                TransportThread tt = parent.selectConnectionThread();
+                tt.addConnection(new Connection(tt, owner, channel, parent.getTcpNoDelay()));
                 tt.sync();
             } catch (ClosedChannelException ignore) {
             } catch (Exception e) {
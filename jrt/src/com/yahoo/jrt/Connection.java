@@ -34,6 +34,8 @@ class Connection extends Target {
     private final Queue  myQueue = new Queue();
     private final Buffer input   = new Buffer(READ_SIZE * 2);
     private final Buffer output  = new Buffer(WRITE_SIZE * 2);
+    private GatherBuffer largeOutput = null;
+    private int pendingInput = 0;
     private int maxInputSize  = 64*1024;
     private int maxOutputSize = 64*1024;
     private final boolean tcpNoDelay;
@@ -272,6 +274,7 @@ class Connection extends Target {
         while (true) {
             PacketInfo info = PacketInfo.getPacketInfo(rb);
             if (info == null || info.packetLength() > rb.remaining()) {
+                pendingInput = (info == null) ? 0 : info.packetLength() - rb.remaining();
                 break;
             }
             owner.readPacket(info);
@@ -294,13 +297,24 @@ class Connection extends Target {
         }
     }
 
+    /**
+     * Returns the free space to make in the input buffer before reading. The rest of a large packet is
+     * made room for in steps no larger than what is already buffered, as its length is declared by the
+     * peer, so the buffer only grows in step with the bytes actually received.
+     */
+    static int readReserve(int readSize, int pendingInput, int buffered) {
+        return Math.max(readSize, Math.min(pendingInput, buffered));
+    }
+
     private void read() throws IOException {
         boolean doneRead = false;
         for (int i = 0; !doneRead && i < READ_REDO; i++) {
-            ByteBuffer wb = input.getChannelWritable(readSize);
-            if (socket.read(wb) == -1) {
+            ByteBuffer wb = input.getChannelWritable(readReserve(readSize, pendingInput, input.bytes()));
+            int bytes = socket.read(wb);
+            if (bytes == -1) {
                 throw new IOException("jrt: Connection closed by peer");
             }
+            parent.countIO(bytes);
             doneRead = (wb.remaining() > 0);
             handlePackets();
         }
@@ -327,27 +341,43 @@ class Connection extends Target {
             queue.flush(myQueue);
         }
         for (int i = 0; i < WRITE_REDO; i++) {
-            while (output.bytes() < WRITE_SIZE) {
+            while (largeOutput == null && output.bytes() < WRITE_SIZE) {
                 Packet packet = (Packet) myQueue.dequeue();
                 if (packet == null) {
                     break;
                 }
                 PacketInfo info = packet.getPacketInfo();
-                ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
-                info.encodePacket(packet, wb);
+                if (info.packetLength() > WRITE_SIZE) {
+                    // written after the output buffer, with large data values referenced rather than copied
+                    largeOutput = info.encodePacket(packet);
+                } else {
+                    ByteBuffer wb = output.getWritable(info.packetLength());
+                    info.encodePacket(packet, wb);
+                }
             }
             ByteBuffer rb = output.getChannelReadable();
-            if (rb.remaining() == 0) {
-                break;
-            }
-            socket.write(rb);
             if (rb.remaining() > 0) {
+                parent.countIO(socket.write(rb));
+                if (rb.remaining() > 0) {
+                    break;
+                }
+            } else if (largeOutput != null) {
+                long before = largeOutput.written();
+                boolean accepted = largeOutput.write(socket);
+                parent.countIO(largeOutput.written() - before);
+                if (largeOutput.isEmpty()) {
+                    largeOutput = null;
+                }
+                if ( ! accepted) {
+                    break;
+                }
+            } else {
                 break;
             }
         }
         int myWriteWork = 0;
-        if (output.bytes() > 0) {
+        if (output.bytes() > 0 || largeOutput != null) {
             myWriteWork++;
         }
         if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
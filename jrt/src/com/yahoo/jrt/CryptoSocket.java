@@ -82,6 +82,23 @@ public interface CryptoSocket {
      **/
     public int write(ByteBuffer src) throws IOException;
 
+    /**
+     * Called when the application has data in several buffers it
+     * wants to write. The semantics are the same as with a normal
+     * gathering socket write. The default implementation writes the
+     * buffers one at a time.
+     **/
+    default public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            written += write(srcs[i]);
+            if (srcs[i].hasRemaining()) {
+                break;
+            }
+        }
+        return written;
+    }
+
     public enum FlushResult { DONE, NEED_WRITE }
 
     /**
@@ -41,6 +41,15 @@ public class DataValue extends Value
         dst.putInt(value.length);
         dst.put(value);
     }
+    @Override
+    void encode(GatherBuffer dst) {
+        if (value.length < GatherBuffer.REFERENCE_LIMIT) {
+            super.encode(dst);
+            return;
+        }
+        dst.getWritable(4).putInt(value.length);
+        dst.addReference(value);
+    }
 
     public byte[] asData() { return value; }
 
@@ -0,0 +1,129 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A sequence of buffers holding an encoded packet, suitable for a
+ * gathering write. Small values are encoded into buffers owned by
+ * this object, while large data values are referenced as-is, so the
+ * payload of large packets is not copied before it is written to the
+ * socket.
+ **/
+class GatherBuffer {
+
+    /** Data values at least this large are referenced rather than copied */
+    static final int REFERENCE_LIMIT = 16384;
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current = null;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+    private ByteBuffer[] buffers = null;
+    private int next = 0;
+    private long written = 0;
+
+    private void finishCurrent() {
+        if (current != null) {
+            current.flip();
+            chunks.add(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Set the byte order used for values encoded after this call
+     *
+     * @param order the byte order
+     **/
+    void order(ByteOrder order) {
+        this.order = order;
+        if (current != null) {
+            current.order(order);
+        }
+    }
+
+    /**
+     * Obtain a buffer with room for at least the given number of
+     * bytes, to encode a value into
+     *
+     * @return a buffer to encode into
+     * @param minFree the number of bytes to be encoded
+     **/
+    ByteBuffer getWritable(int minFree) {
+        if (current == null || current.remaining() < minFree) {
+            finishCurrent();
+            current = ByteBuffer.allocate(Math.max(minFree, CHUNK_SIZE));
+            current.order(order);
+        }
+        return current;
+    }
+
+    /**
+     * Append the given bytes by reference. The array must not be
+     * modified until the buffer has been written.
+     *
+     * @param data the bytes to append
+     **/
+    void addReference(byte[] data) {
+        finishCurrent();
+        int off = 0;
+        do { // bound each buffer, as the channel copies all remaining bytes of heap buffers it writes
+            int len = Math.min(Buffer.MAX_IO, data.length - off);
+            chunks.add(ByteBuffer.wrap(data, off, len));
+            off += len;
+        } while (off < data.length);
+    }
+
+    /**
+     * Completes the encoding, after which only the isEmpty and write
+     * methods may be used.
+     **/
+    void flip() {
+        finishCurrent();
+        buffers = chunks.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     **/
+    long written() {
+        return written;
+    }
+
+    /**
+     * @return true if all bytes have been written
+     **/
+    boolean isEmpty() {
+        return next == buffers.length;
+    }
+
+    /**
+     * Write the next bytes to the given socket in a single gathering
+     * write, bounded by the maximum size of a single io operation.
+     *
+     * @return false if the socket did not accept all the bytes
+     * @param socket the socket to write to
+     **/
+    boolean write(CryptoSocket socket) throws IOException {
+        int end = next;
+        int ioBytes = 0;
+        while (end < buffers.length && ioBytes < Buffer.MAX_IO) {
+            ioBytes += buffers[end++].remaining();
+        }
+        if (end > next) {
+            written += socket.write(buffers, next, end - next);
+        }
+        while (next < buffers.length && ! buffers[next].hasRemaining()) {
+            next++;
+        }
+        return next == end;
+    }
+}
@@ -10,9 +10,10 @@ class InvocationServer {
     private int        replyKey;
     private boolean    noReply;
     private TieBreaker done;
+    private long       startTime;
 
     public InvocationServer(Connection conn, Request request, Method method,
-                            int replyKey, boolean noReply) {
+                            int replyKey, boolean noReply, int requestBytes) {
 
         this.conn = conn;
         this.request = request;
@@ -22,6 +23,10 @@ class InvocationServer {
         request.serverHandler(this);
 
         done = conn.startRequest();
+        if (method != null) {
+            method.metrics().requestStarted(requestBytes);
+            startTime = System.nanoTime();
+        }
     }
 
     public Target getTarget() {
@@ -32,6 +37,7 @@ class InvocationServer {
         if (method != null) {
             if (method.checkParameters(request)) {
                 method.invoke(request);
+                method.metrics().handlerDone(System.nanoTime() - startTime);
             } else {
                 request.setError(ErrorCode.WRONG_PARAMS, "Parameters in " + request + " does not match " + method);
             }
@@ -48,11 +54,18 @@ class InvocationServer {
             throw new IllegalStateException("Request already returned");
         }
         if (noReply) {
+            if (method != null) {
+                method.metrics().requestDone(System.nanoTime() - startTime, 0, request.isError());
+            }
             return;
         }
         if (!request.isError() && !method.checkReturnValues(request)) {
             request.setError(ErrorCode.WRONG_RETURN, "Return values in " + request + " does not match " + method);
         }
+        if (method != null) {
+            int replyBytes = request.isError() ? 0 : request.returnValues().bytes();
+            method.metrics().requestDone(System.nanoTime() - startTime, replyBytes, request.isError());
+        }
         if (request.isError()) {
             conn.postPacket(new ErrorPacket(0, replyKey,
                                             request.errorCode(),
@@ -128,6 +128,7 @@ public class MaybeTlsCryptoSocket implements CryptoSocket {
     @Override public int read(ByteBuffer dst) throws IOException { return socket.read(dst); }
     @Override public int drain(ByteBuffer dst) throws IOException { return socket.drain(dst); }
     @Override public int write(ByteBuffer src) throws IOException { return socket.write(src); }
+    @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return socket.write(srcs, offset, length); }
     @Override public FlushResult flush() throws IOException { return socket.flush(); }
     @Override public Optional<SecurityContext> getSecurityContext() { return Optional.ofNullable(socket).flatMap(CryptoSocket::getSecurityContext); }
 }
@@ -29,6 +29,7 @@ package com.yahoo.jrt;
 public class Method {
 
     private final MethodHandler            handler;
+    private MethodMetrics                  metrics;
 
     private String name;
     private String paramTypes;
@@ -45,6 +46,7 @@ public class Method {
 
     private void init(String name, String paramTypes, String returnTypes) {
         this.name = name;
+        this.metrics = TransportMetrics.getInstance().methodMetrics(name);
         this.paramTypes = paramTypes;
         this.returnTypes = returnTypes;
         desc = undocumented;
@@ -94,6 +96,15 @@ public class Method {
         return name;
     }
 
+    /**
+     * Obtain the metrics of this method
+     *
+     * @return method metrics
+     **/
+    MethodMetrics metrics() {
+        return metrics;
+    }
+
     /**
      * Obtain the parameter types of this method
      *
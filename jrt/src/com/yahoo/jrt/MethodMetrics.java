@@ -0,0 +1,171 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Metric values for the server side of a single RPC method, shared by
+ * all {@link Supervisor}s with a method of the same name. Updating
+ * the metrics does not allocate, and does not lock.
+ **/
+public class MethodMetrics {
+
+    private final String name;
+    private final AtomicLong inFlight = new AtomicLong(0);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final Distribution latency = new Distribution();
+    private final Distribution handlerTime = new Distribution();
+    private final Distribution requestSize = new Distribution();
+    private final Distribution replySize = new Distribution();
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    /** Returns the name of the method */
+    public String name() { return name; }
+
+    /** Returns the number of requests currently being handled */
+    public long inFlight() { return inFlight.get(); }
+
+    /** Returns the number of requests which were replied to with an error */
+    public long errors() { return errors.get(); }
+
+    /** Returns the time from requests are received until they are replied to, in microseconds */
+    public Distribution latency() { return latency; }
+
+    /** Returns the time spent in the method handler before it returns or detaches requests, in microseconds */
+    public Distribution handlerTime() { return handlerTime; }
+
+    /** Returns the encoded size of the requests, in bytes */
+    public Distribution requestSize() { return requestSize; }
+
+    /** Returns the encoded size of the replies, in bytes */
+    public Distribution replySize() { return replySize; }
+
+    void requestStarted(int requestBytes) {
+        inFlight.incrementAndGet();
+        requestSize.add(requestBytes);
+    }
+
+    void handlerDone(long nanos) {
+        handlerTime.add(nanos / 1000);
+    }
+
+    void requestDone(long nanos, int replyBytes, boolean error) {
+        inFlight.decrementAndGet();
+        latency.add(nanos / 1000);
+        if (error) {
+            errors.incrementAndGet();
+        } else {
+            replySize.add(replyBytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MethodMetrics{" +
+                "name=" + name +
+                ", inFlight=" + inFlight +
+                ", errors=" + errors +
+                ", latency=" + latency +
+                ", handlerTime=" + handlerTime +
+                ", requestSize=" + requestSize +
+                ", replySize=" + replySize +
+                '}';
+    }
+
+    /**
+     * A distribution of non-negative values, recorded in buckets
+     * whose upper bounds are powers of two. Quantiles are thus
+     * reported with a precision of a factor of two, which is enough
+     * to tell where time is spent, at the cost of a single atomic
+     * increment per bucket and value.
+     **/
+    public static class Distribution {
+
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong sum = new AtomicLong(0);
+        private final AtomicLong max = new AtomicLong(0);
+
+        void add(long value) {
+            value = Math.max(0, value);
+            counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && ! max.compareAndSet(current, value)) { }
+        }
+
+        /** Returns a copy of this, which is not changed by values recorded later */
+        public Distribution snapshot() {
+            return changesSince(new Distribution());
+        }
+
+        /**
+         * Returns the values recorded since the given snapshot of
+         * this distribution. The max is that of all recorded values.
+         *
+         * @param base an earlier snapshot of this distribution
+         * @return a distribution of the values recorded since the snapshot
+         **/
+        public Distribution changesSince(Distribution base) {
+            Distribution changes = new Distribution();
+            for (int i = 0; i < BUCKETS; i++) {
+                changes.counts.set(i, counts.get(i) - base.counts.get(i));
+            }
+            changes.sum.set(sum.get() - base.sum.get());
+            changes.max.set(max.get());
+            return changes;
+        }
+
+        /** Returns the number of recorded values */
+        public long count() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        /** Returns the sum of the recorded values */
+        public long sum() { return sum.get(); }
+
+        /** Returns the largest recorded value */
+        public long max() { return max.get(); }
+
+        /**
+         * Returns an upper bound for the given quantile of the
+         * recorded values, which is at most twice the actual value
+         *
+         * @param quantile the quantile, in the range [0, 1]
+         * @return an upper bound for the quantile, or 0 if no values are recorded
+         **/
+        public long quantile(double quantile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long)Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(max(), (i == 0) ? 0 : (1L << i) - 1);
+                }
+            }
+            return max();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count() + ", sum=" + sum() + ", max=" + max() +
+                   ", p50=" + quantile(0.5) + ", p99=" + quantile(0.99) + "}";
+        }
+    }
+
+}
@@ -44,6 +44,10 @@ abstract class Packet
     public abstract int packetCode();
     public abstract void encode(ByteBuffer dst);
 
+    void encode(GatherBuffer dst) {
+        encode(dst.getWritable(bytes() - headerLength));
+    }
+
     public PacketInfo getPacketInfo() {
         return new PacketInfo(bytes(), flags, packetCode(), requestId);
     }
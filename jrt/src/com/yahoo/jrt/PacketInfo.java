@@ -84,6 +84,21 @@ class PacketInfo
         }
     }
 
+    public GatherBuffer encodePacket(Packet packet) {
+        GatherBuffer dst = new GatherBuffer();
+        dst.getWritable(Packet.headerLength)
+           .putInt(packetLength - 4)
+           .putShort((short)flags)
+           .putShort((short)packetCode)
+           .putInt(requestId);
+        if (reverseByteOrder()) {
+            dst.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        packet.encode(dst);
+        dst.flip();
+        return dst;
+    }
+
     public void encodePacket(Packet packet, ByteBuffer dst) {
         int pos = dst.position();
         int end = pos + packetLength;
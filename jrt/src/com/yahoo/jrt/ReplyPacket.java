@@ -36,6 +36,11 @@ class ReplyPacket extends Packet
         returnValues.encode(dst);
     }
 
+    @Override
+    void encode(GatherBuffer dst) {
+        returnValues.encode(dst);
+    }
+
     public Values returnValues() {
         return returnValues;
     }
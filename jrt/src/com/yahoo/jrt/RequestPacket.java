@@ -42,6 +42,12 @@ class RequestPacket extends Packet
         parameters.encode(dst);
     }
 
+    @Override
+    void encode(GatherBuffer dst) {
+        methodName.encode(dst);
+        parameters.encode(dst);
+    }
+
     public String methodName() {
         return methodName.asString();
     }
@@ -259,6 +259,7 @@ public class Supervisor {
         Method method = methodMap().get(req.methodName());
         new InvocationServer(conn, req, method,
                              packet.requestId(),
-                             packet.noReply()).invoke();
+                             packet.noReply(),
+                             packet.bytes()).invoke();
     }
 }
@@ -4,6 +4,7 @@ package com.yahoo.jrt;
 
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -49,7 +50,7 @@ public class Transport {
         worker = new Worker(this);
         runCnt = new AtomicInteger(numThreads);
         for (int i = 0; i < numThreads; ++i) {
-            threads.add(new TransportThread(this));
+            threads.add(new TransportThread(this, i));
         }
     }
     public Transport(CryptoEngine cryptoEngine, int numThreads) { this(null, cryptoEngine, numThreads, true); }
@@ -66,6 +67,36 @@ public class Transport {
         return threads.get(rnd.nextInt(threads.size()));
     }
 
+    /**
+     * Select the least loaded transport thread to handle a new
+     * connection, and account for the connection in that thread.
+     *
+     * @return the transport thread to add the connection to
+     **/
+    synchronized TransportThread selectConnectionThread() {
+        TransportThread selected = threads.get(0);
+        for (TransportThread thread : threads) {
+            if (thread.isLessLoadedThan(selected)) {
+                selected = thread;
+            }
+        }
+        selected.assignConnection();
+        return selected;
+    }
+
+    /**
+     * Obtain the current load of each of the transport threads
+     *
+     * @return the load of each thread, in thread order
+     **/
+    public List<TransportMetrics.ThreadLoad> threadLoads() {
+        List<TransportMetrics.ThreadLoad> loads = new ArrayList<>();
+        for (TransportThread thread : threads) {
+            loads.add(thread.load());
+        }
+        return loads;
+    }
+
     boolean getTcpNoDelay() { return tcpNoDelay; }
 
     /**
@@ -132,7 +163,7 @@ public class Transport {
      * @param context application context for the new connection
      */
     Connection connect(Supervisor owner, Spec spec, Object context) {
-        Connection conn = new Connection(selectThread(), owner, spec, context, getTcpNoDelay());
+        Connection conn = new Connection(selectConnectionThread(), owner, spec, context, getTcpNoDelay());
         connector.connectLater(conn);
         return conn;
     }
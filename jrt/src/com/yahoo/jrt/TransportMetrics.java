@@ -1,6 +1,12 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jrt;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.ToLongFunction;
 
@@ -19,6 +25,8 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final Set<TransportThread> threads = ConcurrentHashMap.newKeySet();
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
 
     private TransportMetrics() {}
 
@@ -50,6 +58,35 @@ public class TransportMetrics {
 
     public Snapshot snapshot() { return new Snapshot(this); }
 
+    /** Returns the current load of each running transport thread, of all transports */
+    public List<ThreadLoad> threadLoads() {
+        List<ThreadLoad> loads = new ArrayList<>();
+        for (TransportThread thread : threads) {
+            loads.add(thread.load());
+        }
+        loads.sort(Comparator.comparingInt(ThreadLoad::index));
+        return loads;
+    }
+
+    /** Returns the metrics of each RPC method which has been registered in any supervisor, sorted by name */
+    public List<MethodMetrics> methodMetrics() {
+        List<MethodMetrics> metrics = new ArrayList<>(methods.values());
+        metrics.sort(Comparator.comparing(MethodMetrics::name));
+        return metrics;
+    }
+
+    MethodMetrics methodMetrics(String method) {
+        return methods.computeIfAbsent(method, MethodMetrics::new);
+    }
+
+    void addThread(TransportThread thread) {
+        threads.add(thread);
+    }
+
+    void removeThread(TransportThread thread) {
+        threads.remove(thread);
+    }
+
     void incrementTlsCertificateVerificationFailures() {
         tlsCertificateVerificationFailures.incrementAndGet();
     }
@@ -152,4 +189,44 @@ public class TransportMetrics {
                     '}';
         }
     }
+
+    /** The load of a single transport thread */
+    public static class ThreadLoad {
+
+        private final int index;
+        private final int connections;
+        private final int queueSize;
+        private final double bytesPerSecond;
+        private final double busyRatio;
+
+        ThreadLoad(int index, int connections, int queueSize, double bytesPerSecond, double busyRatio) {
+            this.index = index;
+            this.connections = connections;
+            this.queueSize = queueSize;
+            this.bytesPerSecond = bytesPerSecond;
+            this.busyRatio = busyRatio;
+        }
+
+        /** Returns the index of the thread within its transport */
+        public int index() { return index; }
+        /** Returns the number of open connections handled by the thread */
+        public int connections() { return connections; }
+        /** Returns the number of commands queued for the thread */
+        public int queueSize() { return queueSize; }
+        /** Returns the number of bytes read and written per second by the thread, over the last second */
+        public double bytesPerSecond() { return bytesPerSecond; }
+        /** Returns the fraction of the last second the thread spent working rather than waiting for events */
+        public double busyRatio() { return busyRatio; }
+
+        @Override
+        public String toString() {
+            return "ThreadLoad{" +
+                    "index=" + index +
+                    ", connections=" + connections +
+                    ", queueSize=" + queueSize +
+                    ", bytesPerSecond=" + bytesPerSecond +
+                    ", busyRatio=" + busyRatio +
+                    '}';
+        }
+    }
 }
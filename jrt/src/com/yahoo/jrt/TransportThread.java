@@ -7,6 +7,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -77,6 +78,14 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final int       index;
+
+    private final AtomicInteger connections = new AtomicInteger(0);
+    private long ioBytes = 0;
+    private long busyNanos = 0;
+    private long loadPeriodStart = System.nanoTime();
+    private volatile double bytesPerSecond = 0.0;
+    private volatile double busyRatio = 0.0;
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -95,6 +104,7 @@ public class TransportThread {
             return;
         }
         conn.fini();
+        connections.decrementAndGet();
         if (conn.hasSocket()) {
             parent.closeLater(conn);
         }
@@ -167,8 +177,9 @@ public class TransportThread {
         return true;
     }
 
-    TransportThread(Transport transport) {
+    TransportThread(Transport transport, int index) {
         parent    = transport;
+        this.index = index;
         thread    = new Thread(new Run(), "<jrt-transport>");
         queue     = new Queue();
         myQueue   = new Queue();
@@ -180,6 +191,7 @@ public class TransportThread {
             throw new Error("Could not open transport selector", e);
         }
         thread.setDaemon(true);
+        TransportMetrics.getInstance().addThread(this);
         thread.start();
     }
 
@@ -198,6 +210,53 @@ public class TransportThread {
         parent.handleFailure(problem, context);
     }
 
+    /**
+     * Account for a connection which will be added to this thread.
+     * The connection is counted until it is closed.
+     **/
+    void assignConnection() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * Account for bytes read or written by a connection handled by
+     * this thread. Invoked by the transport thread only.
+     *
+     * @param bytes the number of bytes read or written
+     **/
+    void countIO(long bytes) {
+        ioBytes += bytes;
+    }
+
+    /**
+     * Determine whether this thread is less loaded than another.
+     * Threads with fewer connections are less loaded, and ties are
+     * broken by the amount of data the threads are transferring.
+     *
+     * @return whether this thread is less loaded than the other
+     * @param other the thread to compare with
+     **/
+    boolean isLessLoadedThan(TransportThread other) {
+        int cmp = Integer.compare(connections.get(), other.connections.get());
+        if (cmp != 0) {
+            return cmp < 0;
+        }
+        return bytesPerSecond < other.bytesPerSecond;
+    }
+
+    /**
+     * Obtain a snapshot of the load of this thread
+     *
+     * @return the current load of this thread
+     **/
+    TransportMetrics.ThreadLoad load() {
+        int queueSize;
+        synchronized (this) {
+            queueSize = queue.size();
+        }
+        return new TransportMetrics.ThreadLoad(index, connections.get(), queueSize, bytesPerSecond, busyRatio);
+    }
+
     /**
      * Add a connection to the set of connections handled by this
      * TransportThread. Invoked by the {@link Connector} class.
@@ -299,6 +358,7 @@ public class TransportThread {
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
+            long busyStart = System.nanoTime();
 
             // handle internal events
             handleEvents();
@@ -316,10 +376,15 @@ public class TransportThread {
 
             // check scheduled tasks
             scheduler.checkTasks(System.currentTimeMillis());
+
+            long now = System.nanoTime();
+            busyNanos += now - busyStart;
+            updateLoad(now);
         }
         synchronized (this) {
             state = CLOSED;
         }
+        TransportMetrics.getInstance().removeThread(this);
         handleEvents();
         Iterator<SelectionKey> keys = selector.keys().iterator();
         while (keys.hasNext()) {
@@ -331,6 +396,18 @@ public class TransportThread {
         parent.notifyDone(this);
     }
 
+    private void updateLoad(long now) {
+        long elapsed = now - loadPeriodStart;
+        if (elapsed < 1_000_000_000L) {
+            return;
+        }
+        bytesPerSecond = ioBytes * 1e9 / elapsed;
+        busyRatio = (double)busyNanos / elapsed;
+        ioBytes = 0;
+        busyNanos = 0;
+        loadPeriodStart = now;
+    }
+
     private synchronized void handleShutdown() {
         if (state == OPEN) {
             state = CLOSING;
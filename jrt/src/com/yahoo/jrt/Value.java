@@ -100,6 +100,16 @@ public abstract class Value
      **/
     abstract void encode(ByteBuffer dst);
 
+    /**
+     * Encode this value into the given gather buffer. Values may
+     * reference their data rather than copying it.
+     *
+     * @param dst where to encode this value
+     **/
+    void encode(GatherBuffer dst) {
+        encode(dst.getWritable(bytes()));
+    }
+
     /**
      * Decode a value from the given buffer. This method also acts as
      * a factory for value objects
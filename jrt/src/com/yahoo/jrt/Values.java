@@ -110,6 +110,22 @@ public class Values
         }
     }
 
+    /**
+     * Encode this value sequence into the given gather buffer
+     *
+     * @param dst where to encode this value sequence
+     **/
+    void encode(GatherBuffer dst) {
+        byte[] types = new byte[values.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = get(i).type();
+        }
+        dst.getWritable(4 + types.length).putInt(types.length).put(types);
+        for (int i = 0; i < types.length; i++) {
+            get(i).encode(dst);
+        }
+    }
+
     /**
      * Decode a value sequence from the given buffer into this object
      *
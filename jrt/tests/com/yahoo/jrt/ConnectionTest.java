@@ -0,0 +1,46 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionTest {
+
+    @org.junit.Test
+    public void requireThatDeclaredPacketLengthDoesNotReserveInputUpFront() {
+        int readSize = 32768;
+        int declared = Integer.MAX_VALUE - 4;
+        Buffer input = new Buffer(readSize * 2);
+        ByteBuffer header = input.getWritable(12);
+        header.putInt(declared).putInt(0).putInt(0);
+
+        int pending = declared - 12;
+        assertEquals(readSize, Connection.readReserve(readSize, pending, input.bytes()));
+        ByteBuffer wb = input.getWritable(Connection.readReserve(readSize, pending, input.bytes()));
+        assertEquals(readSize * 2, wb.capacity());
+    }
+
+    @org.junit.Test
+    public void requireThatInputReserveGrowsWithReceivedBytes() {
+        int readSize = 32768;
+        assertEquals(readSize, Connection.readReserve(readSize, 0, 0));
+        assertEquals(readSize, Connection.readReserve(readSize, 1000, 1000));
+        assertEquals(100000, Connection.readReserve(readSize, 1 << 30, 100000));
+        assertEquals(200000, Connection.readReserve(readSize, 200000, 1 << 20));
+
+        Buffer input = new Buffer(readSize * 2);
+        int received = 0;
+        int packetLength = 10 << 20;
+        while (received < packetLength) {
+            ByteBuffer wb = input.getWritable(Connection.readReserve(readSize, packetLength - received, input.bytes()));
+            assertTrue(wb.capacity() <= 2 * Math.max(readSize * 2, received) + readSize * 2);
+            int bytes = Math.min(wb.remaining(), packetLength - received);
+            wb.position(wb.position() + bytes);
+            received += bytes;
+        }
+        assertEquals(packetLength, input.bytes());
+    }
+
+}
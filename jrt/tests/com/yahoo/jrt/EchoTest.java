@@ -96,6 +96,7 @@ public class EchoTest {
         acceptor = server.listen(new Spec(0));
         target   = client.connect(new Spec("localhost", acceptor.port()));
         server.addMethod(new Method("echo", "*", "*", this::rpc_echo));
+        server.addMethod(new Method("echoAll", "*", "*", this::rpc_echoAll));
         refValues = new Values();
         byte[]   dataValue   = { 1, 2, 3, 4 };
         byte[]   int8Array   = { 1, 2, 3, 4 };
@@ -149,6 +150,30 @@ public class EchoTest {
         securityContext = req.target().getSecurityContext().orElse(null);
     }
 
+    private void rpc_echoAll(Request req) {
+        Values p = req.parameters();
+        Values r = req.returnValues();
+        for (int i = 0; i < p.size(); i++) {
+            r.add(p.get(i));
+        }
+    }
+
+    @org.junit.Test
+    public void testEchoLargeData() {
+        byte[] large = new byte[5 * 1024 * 1024 + 7];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte)(i * 31);
+        }
+        Request req = new Request("echoAll");
+        req.parameters().add(new DataValue(large));
+        req.parameters().add(new StringValue("between"));
+        req.parameters().add(new DataValue(new byte[] { 1, 2, 3 }));
+        req.parameters().add(new DataValue(large));
+        target.invokeSync(req, 60.0);
+        assertTrue(req.checkReturnTypes("xsxx"));
+        assertTrue(Test.equals(req.returnValues(), req.parameters()));
+    }
+
     @org.junit.Test
     public void testEcho() {
         Request req = new Request("echo");
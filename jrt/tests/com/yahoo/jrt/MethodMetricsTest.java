@@ -0,0 +1,116 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MethodMetricsTest {
+
+    Supervisor server;
+    Supervisor client;
+    Acceptor   acceptor;
+    Target     target;
+    final CountDownLatch detached = new CountDownLatch(1);
+    Request    detachedRequest;
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        client   = new Supervisor(new Transport());
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        server.addMethod(new Method("metricsTest.echo", "x", "x", req -> req.returnValues().add(req.parameters().get(0))));
+        server.addMethod(new Method("metricsTest.fail", "", "", req -> req.setError(ErrorCode.METHOD_FAILED, "failed")));
+        server.addMethod(new Method("metricsTest.detach", "", "", req -> {
+            req.detach();
+            detachedRequest = req;
+            detached.countDown();
+        }));
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private static MethodMetrics metrics(String method) {
+        return TransportMetrics.getInstance().methodMetrics(method);
+    }
+
+    @org.junit.Test
+    public void requireThatRequestsAreMeasured() {
+        for (int i = 0; i < 10; i++) {
+            Request req = new Request("metricsTest.echo");
+            req.parameters().add(new DataValue(new byte[1000]));
+            target.invokeSync(req, 60.0);
+            assertTrue(req.errorMessage(), req.checkReturnTypes("x"));
+        }
+        Request req = new Request("metricsTest.fail");
+        target.invokeSync(req, 60.0);
+        assertEquals(ErrorCode.METHOD_FAILED, req.errorCode());
+
+        MethodMetrics echo = metrics("metricsTest.echo");
+        assertEquals(0, echo.inFlight());
+        assertEquals(0, echo.errors());
+        assertEquals(10, echo.latency().count());
+        assertEquals(10, echo.handlerTime().count());
+        assertEquals(10, echo.requestSize().count());
+        assertEquals(10, echo.replySize().count());
+        assertTrue(echo.replySize().quantile(0.5) >= 1000);
+        assertTrue(echo.replySize().quantile(0.5) < 2048);
+
+        MethodMetrics fail = metrics("metricsTest.fail");
+        assertEquals(1, fail.errors());
+        assertEquals(1, fail.latency().count());
+        assertEquals(0, fail.replySize().count());
+        assertTrue(TransportMetrics.getInstance().methodMetrics().contains(echo));
+    }
+
+    @org.junit.Test
+    public void requireThatDetachedRequestsAreInFlightUntilReturned() throws InterruptedException {
+        Request req = new Request("metricsTest.detach");
+        SingleRequestWaiter waiter = new SingleRequestWaiter();
+        target.invokeAsync(req, 60.0, waiter);
+        detached.await();
+        MethodMetrics detach = metrics("metricsTest.detach");
+        assertEquals(1, detach.inFlight());
+        assertEquals(0, detach.latency().count());
+
+        detachedRequest.returnRequest();
+        waiter.waitDone();
+        assertEquals(0, detach.inFlight());
+        assertEquals(1, detach.handlerTime().count());
+        assertEquals(1, detach.latency().count());
+    }
+
+    @org.junit.Test
+    public void requireThatDistributionQuantilesAreBoundedByPowersOfTwo() {
+        MethodMetrics.Distribution distribution = new MethodMetrics.Distribution();
+        assertEquals(0, distribution.quantile(0.5));
+        for (int i = 1; i <= 100; i++) {
+            distribution.add(i);
+        }
+        assertEquals(100, distribution.count());
+        assertEquals(5050, distribution.sum());
+        assertEquals(100, distribution.max());
+        assertEquals(63, distribution.quantile(0.5));
+        assertEquals(100, distribution.quantile(0.99));
+        assertEquals(1, distribution.quantile(0.01));
+
+        MethodMetrics.Distribution snapshot = distribution.snapshot();
+        distribution.add(1000);
+        MethodMetrics.Distribution changes = distribution.changesSince(snapshot);
+        assertEquals(1, changes.count());
+        assertEquals(1000, changes.sum());
+        assertEquals(1000, changes.quantile(0.5));
+    }
+
+}
@@ -122,4 +122,65 @@ public class PacketTest {
         assertEquals(errStr, ((ErrorPacket)packet2).errorMessage());
     }
 
+    @org.junit.Test
+    public void testGatheredRequestPacket() throws java.io.IOException {
+        byte[] large = new byte[3 * Buffer.MAX_IO + 17];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte)i;
+        }
+        Values params = new Values();
+        params.add(new Int32Value(123));
+        params.add(new DataValue(large));
+        params.add(new DataValue(new byte[] { 1, 2, 3 }));
+        params.add(new StringValue("foo"));
+        Packet packet = new RequestPacket(0, 42, "foobar", params);
+        PacketInfo info = packet.getPacketInfo();
+
+        ByteBuffer ref = ByteBuffer.allocate(info.packetLength());
+        info.encodePacket(packet, ref);
+        ref.flip();
+
+        GatherBuffer gathered = info.encodePacket(packet);
+        CollectingSocket socket = new CollectingSocket(info.packetLength(), 1000);
+        int writes = 0;
+        while ( ! gathered.isEmpty()) {
+            gathered.write(socket);
+            writes++;
+        }
+        assertTrue(writes > 1);
+        socket.collected.flip();
+        assertTrue(socket.collected.equals(ref));
+
+        Packet packet2 = PacketInfo.getPacketInfo(ref).decodePacket(ref);
+        Values params2 = ((RequestPacket)packet2).parameters();
+        assertTrue(java.util.Arrays.equals(large, params2.get(1).asData()));
+    }
+
+    /** A socket accepting a limited number of bytes per write */
+    private static class CollectingSocket implements CryptoSocket {
+
+        final ByteBuffer collected;
+        final int maxWrite;
+
+        CollectingSocket(int capacity, int maxWrite) {
+            this.collected = ByteBuffer.allocate(capacity);
+            this.maxWrite = maxWrite;
+        }
+
+        @Override public java.nio.channels.SocketChannel channel() { return null; }
+        @Override public HandshakeResult handshake() { return HandshakeResult.DONE; }
+        @Override public void doHandshakeWork() {}
+        @Override public int getMinimumReadBufferSize() { return 1; }
+        @Override public int read(ByteBuffer dst) { return 0; }
+        @Override public int drain(ByteBuffer dst) { return 0; }
+        @Override public FlushResult flush() { return FlushResult.DONE; }
+        @Override public int write(ByteBuffer src) {
+            int bytes = Math.min(maxWrite, src.remaining());
+            for (int i = 0; i < bytes; i++) {
+                collected.put(src.get());
+            }
+            return bytes;
+        }
+    }
+
 }
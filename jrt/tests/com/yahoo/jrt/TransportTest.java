@@ -0,0 +1,68 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransportTest {
+
+    Supervisor server;
+    Supervisor client;
+    Acceptor   acceptor;
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport(4));
+        client   = new Supervisor(new Transport(1));
+        acceptor = server.listen(new Spec(0));
+    }
+
+    @After
+    public void tearDown() {
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private void assertConnections(int expectedPerThread, Transport transport) {
+        List<TransportMetrics.ThreadLoad> loads = transport.threadLoads();
+        assertEquals(4, loads.size());
+        for (TransportMetrics.ThreadLoad load : loads) {
+            assertEquals(loads.toString(), expectedPerThread, load.connections());
+        }
+    }
+
+    @org.junit.Test
+    public void requireThatConnectionsAreSpreadEvenlyOverThreads() {
+        List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Target target = client.connect(new Spec("localhost", acceptor.port()));
+            Request req = new Request("frt.rpc.ping");
+            target.invokeSync(req, 60.0);
+            assertTrue(req.errorMessage(), req.checkReturnTypes(""));
+            targets.add(target);
+        }
+        assertConnections(2, server.transport());
+        assertTrue(TransportMetrics.getInstance().threadLoads().size() >= 5);
+
+        for (Target target : targets) {
+            target.close();
+        }
+        long end = System.currentTimeMillis() + 60000;
+        while (System.currentTimeMillis() < end) {
+            server.transport().sync();
+            if (server.transport().threadLoads().stream().allMatch(load -> load.connections() == 0)) {
+                break;
+            }
+            try { Thread.sleep(10); } catch (InterruptedException ignore) {}
+        }
+        assertConnections(0, server.transport());
+    }
+
+}
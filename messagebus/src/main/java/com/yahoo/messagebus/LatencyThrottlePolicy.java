@@ -0,0 +1,275 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.concurrent.SystemTimer;
+import com.yahoo.concurrent.Timer;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is an implementation of the {@link ThrottlePolicy} that sizes the window of pending messages of a
+ * {@link SourceSession} from the round trip latency of its replies, rather than from throughput.
+ *
+ * The policy tracks the smallest latency seen recently, which is taken as the latency of an idle destination.
+ * Once for every window of replies, the window grows by a fixed increment if the average latency is within the
+ * latency factor of this minimum, and shrinks in proportion to the excess latency otherwise. This keeps the queues
+ * of the destinations short, as queueing shows up as latency long before it shows up as reduced throughput.
+ *
+ * The minimum latency is measured anew periodically, by limiting the window to its minimum size until replies to
+ * messages sent after the queues had time to drain are received. This lets the policy adapt to destinations which
+ * become permanently slower, without mistaking its own queueing for such a change.
+ *
+ * <b>NOTE:</b> By context, "pending" is refering to the number of sent messages that have not been replied to yet.
+ */
+public class LatencyThrottlePolicy extends StaticThrottlePolicy {
+
+    private static final long IDLE_TIME_MILLIS = 60000;
+    private static final Logger log = Logger.getLogger(LatencyThrottlePolicy.class.getName());
+
+    private final Timer timer;
+    private double windowSizeIncrement = 20;
+    private double windowSize = windowSizeIncrement;
+    private double minWindowSize = windowSizeIncrement;
+    private double maxWindowSize = Integer.MAX_VALUE;
+    private double windowSizeBackOff = 0.5;
+    private double latencyFactor = 1.5;
+    private long minLatencyPeriodMillis = 10000;
+    private long timeOfLastMessage;
+
+    private long minLatency = Long.MAX_VALUE;
+    private long minLatencyPeriodStart;
+    private long probeStart = -1;
+    private long probeMinLatency = Long.MAX_VALUE;
+    private int numProbeSamples = 0;
+    private long latencySum = 0;
+    private int numSamples = 0;
+
+    /**
+     * Constructs a new instance of this policy and sets the appropriate default values of member data.
+     */
+    public LatencyThrottlePolicy() {
+        this(SystemTimer.INSTANCE);
+    }
+
+    /**
+     * Constructs a new instance of this class using the given clock to measure latency.
+     *
+     * @param timer the timer to use
+     */
+    public LatencyThrottlePolicy(Timer timer) {
+        this.timer = timer;
+        this.timeOfLastMessage = timer.milliTime();
+        this.minLatencyPeriodStart = timeOfLastMessage;
+    }
+
+    @Override
+    public boolean canSend(Message message, int pendingCount) {
+        if ( ! super.canSend(message, pendingCount)) {
+            return false;
+        }
+        long time = timer.milliTime();
+        if (time - timeOfLastMessage > IDLE_TIME_MILLIS) {
+            windowSize = Math.max(minWindowSize, Math.min(windowSize, pendingCount + windowSizeIncrement));
+        }
+        timeOfLastMessage = time;
+        if (isProbing()) {
+            return pendingCount < minWindowSize;
+        }
+        return pendingCount < windowSize;
+    }
+
+    @Override
+    public void processMessage(Message message) {
+        super.processMessage(message);
+        message.setContext(new SendContext((Integer)message.getContext(), timer.milliTime()));
+    }
+
+    @Override
+    public void processReply(Reply reply) {
+        SendContext context = (SendContext)reply.getContext();
+        reply.setContext(context.size);
+        super.processReply(reply);
+        if ( ! reply.hasErrors()) {
+            addLatencySample(context.sendTime, timer.milliTime());
+        }
+    }
+
+    private boolean isProbing() {
+        return probeStart >= 0;
+    }
+
+    private void addLatencySample(long sendTime, long time) {
+        long latency = time - sendTime;
+        minLatency = Math.min(minLatency, latency);
+        if (isProbing()) {
+            updateProbe(sendTime, latency, time);
+            return;
+        }
+        if (time - minLatencyPeriodStart >= minLatencyPeriodMillis) {
+            // Let the queues drain by sending at most the minimum window, so the latency without queueing can be observed
+            probeStart = time;
+            return;
+        }
+
+        latencySum += latency;
+        if (++numSamples < windowSize) {
+            return;
+        }
+        double averageLatency = (double)latencySum / numSamples;
+        latencySum = 0;
+        numSamples = 0;
+
+        double targetLatency = Math.max(1, minLatency) * latencyFactor;
+        if (averageLatency <= targetLatency) {
+            windowSize += windowSizeIncrement;
+        } else {
+            windowSize *= Math.max(windowSizeBackOff, targetLatency / averageLatency);
+        }
+        windowSize = Math.max(minWindowSize, windowSize);
+        windowSize = Math.min(maxWindowSize, windowSize);
+        if (log.isLoggable(Level.FINE)) {
+            log.log(Level.FINE, "windowSize " + windowSize + " latency " + averageLatency + " min latency " + minLatency);
+        }
+    }
+
+    private void updateProbe(long sendTime, long latency, long time) {
+        if (sendTime < probeStart) return; // sent before probing started, and possibly queued behind a full window
+
+        probeMinLatency = Math.min(probeMinLatency, latency);
+        if (++numProbeSamples < minWindowSize) return;
+
+        minLatency = probeMinLatency;
+        probeMinLatency = Long.MAX_VALUE;
+        numProbeSamples = 0;
+        probeStart = -1;
+        minLatencyPeriodStart = time;
+        latencySum = 0;
+        numSamples = 0;
+    }
+
+    /**
+     * Sets the factor of the minimum latency which the average latency may grow to before the window is shrunk.
+     * The larger the value, the more messages are allowed to queue up at the destinations.
+     *
+     * @param latencyFactor the factor to set, which must be larger than 1
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setLatencyFactor(double latencyFactor) {
+        if (latencyFactor <= 1)
+            throw new IllegalArgumentException("Latency factor must be larger than 1, but was " + latencyFactor);
+        this.latencyFactor = latencyFactor;
+        return this;
+    }
+
+    public double getLatencyFactor() {
+        return latencyFactor;
+    }
+
+    /**
+     * Sets how often the minimum latency is measured anew, by briefly limiting the window to its minimum size.
+     * This lets the window grow again when the destinations become permanently slower.
+     *
+     * @param millis the period to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setMinLatencyPeriod(long millis) {
+        this.minLatencyPeriodMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets the step size used when increasing window size.
+     *
+     * @param windowSizeIncrement the step size to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setWindowSizeIncrement(double windowSizeIncrement) {
+        this.windowSizeIncrement = windowSizeIncrement;
+        return this;
+    }
+
+    public double getWindowSizeIncrement() {
+        return windowSizeIncrement;
+    }
+
+    /**
+     * Sets the smallest factor the window size is multiplied by when it is shrunk, no matter how much
+     * the latency has grown. This value is capped to the [0, 1] range.
+     *
+     * @param windowSizeBackOff the back off to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setWindowSizeBackOff(double windowSizeBackOff) {
+        this.windowSizeBackOff = Math.max(0, Math.min(1, windowSizeBackOff));
+        return this;
+    }
+
+    public double getWindowSizeBackOff() {
+        return windowSizeBackOff;
+    }
+
+    /**
+     * Sets the maximium number of pending operations allowed at any time, in
+     * order to avoid using too much resources.
+     *
+     * @param max the max to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setMaxWindowSize(double max) {
+        this.maxWindowSize = max;
+        return this;
+    }
+
+    public double getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Sets the minimium number of pending operations allowed at any time, in
+     * order to keep a level of performance.
+     *
+     * @param min the min to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setMinWindowSize(double min) {
+        this.minWindowSize = min;
+        this.windowSize = Math.max(windowSize, min);
+        return this;
+    }
+
+    public double getMinWindowSize() {
+        return minWindowSize;
+    }
+
+    @Override
+    public LatencyThrottlePolicy setMaxPendingCount(int maxCount) {
+        super.setMaxPendingCount(maxCount);
+        maxWindowSize = maxCount;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of pending messages allowed.
+     *
+     * @return the max limit
+     */
+    @Override
+    public int getMaxPendingCount() {
+        return (int)windowSize;
+    }
+
+    /** The context of a sent message: its size, for the static policy, and the time it was sent */
+    private static class SendContext {
+
+        final int size;
+        final long sendTime;
+
+        SendContext(int size, long sendTime) {
+            this.size = size;
+            this.sendTime = sendTime;
+        }
+
+    }
+
+}
@@ -1,10 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -13,13 +12,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The state of each sequencing id is only changed atomically through its own map entry, so messages with
+ * different ids do not contend for a common lock.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    /** Marks a sequencing id with a message in flight and none queued. This is never modified */
+    private static final Queue<Message> NO_QUEUE = new ArrayDeque<>(0);
+
+    private final ConcurrentHashMap<Long, Queue<Message>> seqMap = new ConcurrentHashMap<>();
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -38,15 +43,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
-                        }
+            for (Long seqId : seqMap.keySet()) {
+                Queue<Message> queue = seqMap.remove(seqId);
+                if (queue != null) {
+                    for (Message msg : queue) {
+                        msg.discard();
                     }
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -65,23 +68,20 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.get(seqId);
-                if (queue == null) {
-                    queue = new LinkedList<>();
-                    seqMap.put(seqId, queue);
-                }
-                if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
-                    msg.getTrace().trace(TraceLevel.COMPONENT,
-                                         "Sequencer queued message with sequence id '" + seqId + "'.");
-                }
-                queue.add(msg);
-                return false;
+        if (seqMap.putIfAbsent(seqId, NO_QUEUE) == null) return true; // the common case of no message in flight
+
+        Queue<Message> queue = seqMap.compute(seqId, (id, current) -> {
+            if (current == null) return NO_QUEUE;
+
+            if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
+                msg.getTrace().trace(TraceLevel.COMPONENT,
+                                     "Sequencer queued message with sequence id '" + seqId + "'.");
             }
-            seqMap.put(seqId, null);
-        }
-        return true;
+            Queue<Message> pending = (current == NO_QUEUE) ? new ArrayDeque<>() : current;
+            pending.add(msg);
+            return pending;
+        });
+        return queue == NO_QUEUE;
     }
 
     /**
@@ -137,15 +137,18 @@ public class Sequencer implements MessageHandler, ReplyHandler {
             reply.getTrace().trace(TraceLevel.COMPONENT,
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
-        Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
-            if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
-            } else {
-                msg = queue.remove();
-            }
+        if (seqMap.remove(seqId, NO_QUEUE)) { // the common case of nothing queued
+            reply.popHandler().handleReply(reply);
+            return;
         }
+        Message[] next = new Message[1];
+        seqMap.computeIfPresent(seqId, (id, queue) -> {
+            if (queue.isEmpty()) return null; // nothing more to send with this id
+
+            next[0] = queue.remove();
+            return queue.isEmpty() ? NO_QUEUE : queue;
+        });
+        Message msg = next[0];
         if (msg != null) {
             sequencedSend(msg);
         }
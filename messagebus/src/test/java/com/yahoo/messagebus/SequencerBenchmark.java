@@ -0,0 +1,83 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of the sequencer when many threads send messages with sequence ids drawn from a large
+ * space, like the document ids of a feed, and every message is replied to immediately by the sending thread.
+ * The time spent is then dominated by the sequencer's own bookkeeping, so poor scaling with the number of
+ * threads shows contention in it.
+ */
+public class SequencerBenchmark {
+
+    private static final int MESSAGES_PER_THREAD = 1_000_000;
+    private static final long NUM_IDS = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[] { 1, 8, 32, 32 })
+            run(threads);
+    }
+
+    private static void run(int numThreads) throws Exception {
+        Sequencer sequencer = new Sequencer(msg -> {
+            Reply reply = new EmptyReply();
+            reply.swapState(msg);
+            reply.popHandler().handleReply(reply);
+        });
+        ReplyHandler done = reply -> { };
+        CyclicBarrier barrier = new CyclicBarrier(numThreads + 1);
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            senders.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                        Message msg = new SequencedMessage(random.nextLong(NUM_IDS));
+                        msg.pushHandler(done);
+                        sequencer.handleMessage(msg);
+                    }
+                    barrier.await();
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+        barrier.await();
+        long startNanos = System.nanoTime();
+        barrier.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        for (Thread sender : senders)
+            sender.join();
+
+        long messages = (long) numThreads * MESSAGES_PER_THREAD;
+        System.out.printf("%2d threads: %,d messages in %d ms, %,d messages/s%n",
+                          numThreads, messages, elapsedNanos / 1_000_000, messages * 1_000_000_000L / elapsedNanos);
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long seqId;
+
+        SequencedMessage(long seqId) {
+            super("benchmark");
+            this.seqId = seqId;
+        }
+
+        @Override
+        public boolean hasSequenceId() { return true; }
+
+        @Override
+        public long getSequenceId() { return seqId; }
+
+    }
+
+}
@@ -4,8 +4,18 @@ package com.yahoo.messagebus;
 import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -104,6 +114,51 @@ public class SequencerTestCase {
         assertEquals(0, dst.size());
     }
 
+    @Test
+    public void testConcurrentSendersKeepOrderPerId() throws InterruptedException {
+        int numThreads = 32, numIds = 16, numMessagesPerThread = 2000;
+        ExecutorService replier = Executors.newFixedThreadPool(4);
+        Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+        Map<String, Integer> lastSent = new ConcurrentHashMap<>();
+        AtomicInteger violations = new AtomicInteger();
+        CountDownLatch replies = new CountDownLatch(numThreads * numMessagesPerThread);
+
+        // Sends one message per id at a time, and replies to it later from another thread
+        Sequencer seq = new Sequencer(msg -> {
+            OrderedMessage ordered = (OrderedMessage)msg;
+            if ( ! inFlight.add(ordered.seqId)) violations.incrementAndGet();
+            Integer previous = lastSent.put(ordered.thread + "/" + ordered.seqId, ordered.index);
+            if (previous != null && previous >= ordered.index) violations.incrementAndGet();
+            replier.execute(() -> {
+                inFlight.remove(ordered.seqId);
+                Reply reply = new EmptyReply();
+                reply.swapState(msg);
+                reply.popHandler().handleReply(reply);
+            });
+        });
+
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int thread = t;
+            senders.add(new Thread(() -> {
+                for (int i = 0; i < numMessagesPerThread; i++) {
+                    Message msg = new OrderedMessage(thread, i % numIds, i);
+                    msg.pushHandler(reply -> replies.countDown());
+                    seq.handleMessage(msg);
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        assertTrue(replies.await(60, TimeUnit.SECONDS));
+        replier.shutdown();
+
+        assertEquals(0, violations.get());
+        assertTrue(inFlight.isEmpty());
+    }
+
     @SuppressWarnings("serial")
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
@@ -183,5 +238,28 @@ public class SequencerTestCase {
         }
     }
 
-}
+    private static class OrderedMessage extends SimpleMessage {
+
+        final int thread;
+        final long seqId;
+        final int index;
+
+        OrderedMessage(int thread, long seqId, int index) {
+            super("foo");
+            this.thread = thread;
+            this.seqId = seqId;
+            this.index = index;
+        }
+
+        @Override
+        public boolean hasSequenceId() {
+            return true;
+        }
+
+        @Override
+        public long getSequenceId() {
+            return seqId;
+        }
+    }
 
+}
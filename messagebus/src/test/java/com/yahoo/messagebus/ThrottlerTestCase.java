@@ -14,7 +14,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -204,6 +206,106 @@ public class ThrottlerTestCase {
         assertTrue(windowSize >= 40 && windowSize <= 50);
     }
 
+    @Test
+    public void testLatencyPolicyWithSession() {
+        SourceSessionParams params = new SourceSessionParams().setTimeout(600.0);
+        LatencyThrottlePolicy policy = new LatencyThrottlePolicy();
+        params.setThrottlePolicy(policy);
+
+        Receptor src_rr = new Receptor();
+        SourceSession src_s = src.mb.createSourceSession(src_rr, params);
+
+        QueueAdapter dst_q = new QueueAdapter();
+        DestinationSession dst_s = dst.mb.createDestinationSession("session", true, dst_q);
+        src.waitSlobrok("test/dst/session", 1);
+
+        for (int i = 0; i < policy.getMaxPendingCount(); i++) {
+            assertTrue(src_s.send(new SimpleMessage("msg"), "test").isAccepted());
+        }
+        assertFalse(src_s.send(new SimpleMessage("msg"), "test").isAccepted());
+        assertTrue(dst_q.waitSize(policy.getMaxPendingCount(), 60));
+        while ( ! dst_q.isEmpty()) {
+            dst_s.acknowledge((Message)dst_q.dequeue());
+            Reply reply = src_rr.getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.hasErrors());
+        }
+        assertEquals(0, policy.getPendingSize());
+
+        src_s.close();
+        dst_s.destroy();
+    }
+
+    @Test
+    public void testLatencyWindowSizeFollowsDestinationCapacity() {
+        CustomTimer timer = new CustomTimer();
+        LatencyThrottlePolicy policy = new LatencyThrottlePolicy(timer);
+        policy.setWindowSizeIncrement(5)
+              .setMinWindowSize(5)
+              .setLatencyFactor(1.5);
+
+        // Throughput is the same for all windows larger than the capacity, while latency grows with the queue
+        int windowSize = getWindowSize(policy, timer, 100, 1000);
+        assertTrue("Window size " + windowSize, windowSize >= 100 && windowSize <= 155);
+
+        windowSize = getWindowSize(policy, timer, 200, 1000);
+        assertTrue("Window size " + windowSize, windowSize >= 200 && windowSize <= 305);
+
+        windowSize = getWindowSize(policy, timer, 50, 1000);
+        assertTrue("Window size " + windowSize, windowSize >= 50 && windowSize <= 80);
+    }
+
+    @Test
+    public void testLatencyWindowSizeRecoversWhenDestinationBecomesSlower() {
+        CustomTimer timer = new CustomTimer();
+        LatencyThrottlePolicy policy = new LatencyThrottlePolicy(timer);
+        policy.setWindowSizeIncrement(5)
+              .setMinWindowSize(5)
+              .setMinLatencyPeriod(60 * 1000);
+
+        int windowSize = getWindowSize(policy, timer, 100, 1000);
+        assertTrue("Window size " + windowSize, windowSize >= 100 && windowSize <= 155);
+
+        // The destination becomes five times slower, which is not caused by queueing
+        windowSize = getWindowSize(policy, timer, 100, 5000);
+        assertTrue("Window size " + windowSize, windowSize >= 100 && windowSize <= 155);
+    }
+
+    @Test
+    public void testLatencyMaxWindowSize() {
+        CustomTimer timer = new CustomTimer();
+        LatencyThrottlePolicy policy = new LatencyThrottlePolicy(timer);
+        policy.setWindowSizeIncrement(5)
+              .setMaxWindowSize(50);
+
+        int windowSize = getWindowSize(policy, timer, 100, 1000);
+        assertEquals(50, windowSize);
+    }
+
+    /**
+     * Simulates a destination which handles the given number of messages in parallel with the given latency,
+     * and queues the rest, and returns the window size of the given policy after feeding it for a while.
+     */
+    private int getWindowSize(LatencyThrottlePolicy policy, CustomTimer timer, int capacity, long latency) {
+        Message msg = new SimpleMessage("foo");
+        Reply reply = new SimpleReply("bar");
+        for (int i = 0; i < 999; ++i) {
+            List<Object> contexts = new ArrayList<>();
+            while (policy.canSend(msg, contexts.size())) {
+                policy.processMessage(msg);
+                contexts.add(msg.getContext());
+            }
+
+            timer.millis += latency * Math.max(1, contexts.size() / (double) capacity);
+
+            for (Object context : contexts) {
+                reply.setContext(context);
+                policy.processReply(reply);
+            }
+        }
+        return policy.getMaxPendingCount();
+    }
+
     private int getWindowSize(DynamicThrottlePolicy policy, CustomTimer timer, int maxPending) {
         Message msg = new SimpleMessage("foo");
         Reply reply = new SimpleReply("bar");
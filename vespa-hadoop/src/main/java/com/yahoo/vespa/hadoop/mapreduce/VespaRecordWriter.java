@@ -5,6 +5,7 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.yahoo.vespa.hadoop.mapreduce.util.BucketOrder;
 import com.yahoo.vespa.hadoop.mapreduce.util.VespaConfiguration;
 import com.yahoo.vespa.hadoop.mapreduce.util.VespaCounters;
 import com.yahoo.vespa.hadoop.pig.VespaDocumentOperation;
@@ -29,6 +30,8 @@ import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.concurrent.ThreadLocalRandom;
@@ -37,6 +40,9 @@ import java.util.logging.Logger;
 /**
  * VespaRecordWriter sends the output &lt;key, value&gt; to one or more Vespa endpoints.
  *
+ * If {@link VespaConfiguration#BUCKET_SORT_BUFFER_SIZE} is set, operations are buffered and sent in the order
+ * of their buckets, see {@link BucketOrder}, so that the operations to each distributor are sent together.
+ *
  * @author lesters
  */
 @SuppressWarnings("rawtypes")
@@ -48,6 +54,8 @@ public class VespaRecordWriter extends RecordWriter {
     private FeedClient feedClient;
     private final VespaCounters counters;
     private final int progressInterval;
+    private final int bucketSortBufferSize;
+    private final List<Operation> bucketSortBuffer = new ArrayList<>();
 
     final VespaConfiguration configuration;
 
@@ -55,6 +63,7 @@ public class VespaRecordWriter extends RecordWriter {
         this.counters = counters;
         this.configuration = configuration;
         this.progressInterval = configuration.progressInterval();
+        this.bucketSortBufferSize = configuration.bucketSortBufferSize();
     }
 
 
@@ -70,11 +79,30 @@ public class VespaRecordWriter extends RecordWriter {
         String docId = DataFormat.JSON_UTF8.equals(configuration.dataFormat()) ? findDocId(doc)
                 : findDocIdFromXml(doc);
         if (docId != null && docId.length() >= 0) {
-            feedClient.stream(docId, doc);
-            counters.incrementDocumentsSent(1);
+            if (bucketSortBufferSize > 0) {
+                bucketSortBuffer.add(new Operation(docId, doc));
+                if (bucketSortBuffer.size() >= bucketSortBufferSize) {
+                    flushBucketSortBuffer();
+                }
+            } else {
+                stream(docId, doc);
+            }
         } else {
             counters.incrementDocumentsSkipped(1);
         }
+    }
+
+    private void flushBucketSortBuffer() {
+        bucketSortBuffer.sort(Comparator.comparing(operation -> operation.bucketKey, Long::compareUnsigned));
+        for (Operation operation : bucketSortBuffer) {
+            stream(operation.docId, operation.data);
+        }
+        bucketSortBuffer.clear();
+    }
+
+    private void stream(String docId, String doc) {
+        feedClient.stream(docId, doc);
+        counters.incrementDocumentsSent(1);
 
         if (counters.getDocumentsSent() % progressInterval == 0) {
             String progress = String.format("Feed progress: %d / %d / %d / %d (sent, ok, failed, skipped)",
@@ -91,6 +119,7 @@ public class VespaRecordWriter extends RecordWriter {
     @Override
     public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
         if (feedClient != null) {
+            flushBucketSortBuffer();
             feedClient.close();
         }
     }
@@ -203,6 +232,21 @@ public class VespaRecordWriter extends RecordWriter {
     }
 
 
+    private static class Operation {
+
+        final String docId;
+        final String data;
+        final long bucketKey;
+
+        Operation(String docId, String data) {
+            this.docId = docId;
+            this.data = data;
+            this.bucketKey = BucketOrder.key(docId);
+        }
+
+    }
+
+
     static class ResultCallback implements FeedClient.ResultCallback {
         final VespaCounters counters;
 
@@ -0,0 +1,67 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hadoop.mapreduce.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes keys which order document ids by the buckets they belong to in a content cluster.
+ *
+ * The location of a document is computed as by the document module: it is the number of an "n=" id,
+ * and otherwise the first 8 bytes of the MD5 of the group of a "g=" id, or of the local part of the id.
+ * The least significant bits of the location are the most significant bits of the bucket id, and decide
+ * the super bucket, and thus the distributor, of the document. Ordering by the reversed location bits
+ * therefore puts documents of the same super bucket, and of nearby buckets, next to each other, while
+ * operations on the same document keep their relative order when sorted by a stable sort.
+ */
+public class BucketOrder {
+
+    private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private BucketOrder() { }
+
+    /** Returns a key for the given document id, which must be compared with {@link Long#compareUnsigned} */
+    public static long key(String docId) {
+        return Long.reverse(location(docId));
+    }
+
+    /** Returns the location of the given document id, as computed by the document module for ids of the "id" scheme */
+    public static long location(String docId) {
+        // id:<namespace>:<type>:<key-value pairs>:<local id>
+        int namespaceEnd = docId.startsWith("id:") ? docId.indexOf(':', 3) : -1;
+        int typeEnd = namespaceEnd < 0 ? -1 : docId.indexOf(':', namespaceEnd + 1);
+        int keyValuesEnd = typeEnd < 0 ? -1 : docId.indexOf(':', typeEnd + 1);
+        if (keyValuesEnd < 0) { // Some other scheme, which is at least spread over all buckets like this
+            return hash(docId);
+        }
+        String keyValues = docId.substring(typeEnd + 1, keyValuesEnd);
+        if (keyValues.startsWith("n=")) {
+            try {
+                return Long.parseLong(keyValues.substring(2));
+            } catch (NumberFormatException e) { // Rejected when fed, so any order will do
+                return hash(docId);
+            }
+        }
+        if (keyValues.startsWith("g=")) {
+            return hash(keyValues.substring(2));
+        }
+        return hash(docId.substring(keyValuesEnd + 1));
+    }
+
+    private static long hash(String value) {
+        byte[] digest = md5.get().digest(value.getBytes(StandardCharsets.UTF_8));
+        long result = 0;
+        for (int i = 0; i < 8; ++i) {
+            result |= (digest[i] & 0xFFL) << (8 * i);
+        }
+        return result;
+    }
+
+}
@@ -27,6 +27,7 @@ public class VespaConfiguration {
     public static final String MAX_IN_FLIGHT_REQUESTS = "vespa.feed.max.in.flight.requests";
     public static final String RANDOM_STARTUP_SLEEP = "vespa.feed.random.startup.sleep.ms";
     public static final String NUM_RETRIES = "vespa.feed.num.retries";
+    public static final String BUCKET_SORT_BUFFER_SIZE = "vespa.feed.bucket.sort.buffer.size";
 
     private final Configuration conf;
     private final Properties override;
@@ -117,6 +118,12 @@ public class VespaConfiguration {
     }
 
 
+    /** Number of operations to buffer and send in bucket order, or 0 to send operations in the order they are written */
+    public int bucketSortBufferSize() {
+        return getInt(BUCKET_SORT_BUFFER_SIZE, 0);
+    }
+
+
     public FeedParams.DataFormat dataFormat() {
         String format = getString(DATA_FORMAT);
         if ("xml".equalsIgnoreCase(format)) {
@@ -189,6 +196,7 @@ public class VespaConfiguration {
         sb.append(MAX_IN_FLIGHT_REQUESTS + ": " +  maxInFlightRequests() +"\n");
         sb.append(RANDOM_STARTUP_SLEEP + ": " +  randomStartupSleepMs() +"\n");
         sb.append(NUM_RETRIES + ": " +  numRetries() +"\n");
+        sb.append(BUCKET_SORT_BUFFER_SIZE + ": " +  bucketSortBufferSize() +"\n");
         return sb.toString();
     }
 
@@ -0,0 +1,44 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hadoop.util;
+
+import com.yahoo.vespa.hadoop.mapreduce.util.BucketOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BucketOrderTest {
+
+    @Test
+    public void requireThatLocationIsComputedAsByTheDocumentModule() {
+        assertEquals(1234, BucketOrder.location("id:ns:type:n=1234:foo"));
+        assertEquals(6699318081062747564L, BucketOrder.location("id:ns:type::foo"));
+        assertEquals(6699318081062747564L, BucketOrder.location("id:ns:type:g=foo:bar"));
+        assertEquals(-7196491098932202461L, BucketOrder.location("id:ns:type::bar/baz"));
+        assertEquals(-7547654376595355293L, BucketOrder.location("id:other:type::naïve"));
+        assertEquals(BucketOrder.location("id:ns:type::foo:bar"), BucketOrder.location("id:ns:other::foo:bar"));
+    }
+
+    @Test
+    public void requireThatDocumentsInTheSameSuperBucketAreOrderedTogether() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add("id:ns:type::" + i);
+        }
+        ids.sort((a, b) -> Long.compareUnsigned(BucketOrder.key(a), BucketOrder.key(b)));
+
+        // The 16 least significant location bits decide the super bucket with the default 16 distribution bits
+        List<Long> superBuckets = new ArrayList<>();
+        for (String id : ids) {
+            long superBucket = BucketOrder.location(id) & 0xFFFF;
+            if (superBuckets.isEmpty() || superBuckets.get(superBuckets.size() - 1) != superBucket) {
+                assertTrue("Super bucket " + superBucket + " is contiguous", ! superBuckets.contains(superBucket));
+                superBuckets.add(superBucket);
+            }
+        }
+    }
+
+}
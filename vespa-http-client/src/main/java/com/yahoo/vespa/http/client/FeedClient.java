@@ -5,6 +5,7 @@ import com.yahoo.vespa.http.client.core.JsonReader;
 import com.yahoo.vespa.http.client.core.XmlFeedReader;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -66,6 +67,24 @@ public interface FeedClient extends AutoCloseable {
      */
     void stream(String documentId, String operationId, CharSequence documentData, Object context);
 
+    /**
+     * Issues a document operation which is already serialized in the binary
+     * {@link com.yahoo.vespa.http.client.config.FeedParams.DataFormat#VESPA_V1} format, which must be the
+     * data format of this client. This is otherwise like {@link #stream(String, String, CharSequence, Object)}.
+     *
+     * The default implementation passes the operation, decoded as UTF-8, to
+     * {@link #stream(String, String, CharSequence, Object)}, which is only lossless for operations which are
+     * valid UTF-8. The clients created by {@link FeedClientFactory} send the operation bytes unchanged.
+     *
+     * @param documentId the document id of the document
+     * @param operationId the id to use for this operation, or null to let the client decide an operation id
+     * @param operation the serialized operation, which must not be modified after this call
+     * @param context a context object which will be accessible in the result of the callback, or null if none
+     */
+    default void streamSerialized(String documentId, String operationId, byte[] operation, Object context) {
+        stream(documentId, operationId, new String(operation, StandardCharsets.UTF_8), context);
+    }
+
     /**
      * Waits for all results to arrive and closes the FeedClient. Don't call any other method after calling close().
      * Does not throw any exceptions.
@@ -38,7 +38,7 @@ public final class ConnectionParams {
         private int numPersistentConnectionsPerEndpoint = 1;
         private String proxyHost = null;
         private int proxyPort = 8080;
-        private boolean useCompression = false;
+        private Compression compression = Compression.NONE;
         private int maxRetries = 100;
         private long minTimeBetweenRetriesMs = 700;
         private boolean dryRun = false;
@@ -170,12 +170,27 @@ public final class ConnectionParams {
 
         /**
          * Set whether compression of document operations during communication to server should be enabled.
+         * This enables gzip compression.
          *
          * @param useCompression true if compression should be enabled.
          * @return pointer to builder.
          */
         public Builder setUseCompression(boolean useCompression) {
-            this.useCompression = useCompression;
+            this.compression = useCompression ? Compression.GZIP : Compression.NONE;
+            return this;
+        }
+
+        /**
+         * Set the compression of document operations during communication to server. LZ4 uses much less CPU
+         * than gzip, at the cost of a lower compression ratio, and requires org.lz4:lz4-java on the class path.
+         * It is used only against servers which accept it, and gzip is used otherwise.
+         * Default is no compression.
+         *
+         * @param compression the compression to use.
+         * @return pointer to builder.
+         */
+        public Builder setCompression(Compression compression) {
+            this.compression = Objects.requireNonNull(compression);
             return this;
         }
 
@@ -270,7 +285,7 @@ public final class ConnectionParams {
                     numPersistentConnectionsPerEndpoint,
                     proxyHost,
                     proxyPort,
-                    useCompression,
+                    compression,
                     maxRetries,
                     minTimeBetweenRetriesMs,
                     dryRun,
@@ -340,7 +355,7 @@ public final class ConnectionParams {
     private final int numPersistentConnectionsPerEndpoint;
     private final String proxyHost;
     private final int proxyPort;
-    private final boolean useCompression;
+    private final Compression compression;
     private final int maxRetries;
     private final long minTimeBetweenRetriesMs;
     private final boolean dryRun;
@@ -359,7 +374,7 @@ public final class ConnectionParams {
             int numPersistentConnectionsPerEndpoint,
             String proxyHost,
             int proxyPort,
-            boolean useCompression,
+            Compression compression,
             int maxRetries,
             long minTimeBetweenRetriesMs,
             boolean dryRun,
@@ -380,7 +395,7 @@ public final class ConnectionParams {
         this.numPersistentConnectionsPerEndpoint = numPersistentConnectionsPerEndpoint;
         this.proxyHost = proxyHost;
         this.proxyPort = proxyPort;
-        this.useCompression = useCompression;
+        this.compression = compression;
         this.maxRetries = maxRetries;
         this.minTimeBetweenRetriesMs = minTimeBetweenRetriesMs;
         this.dryRun = dryRun;
@@ -420,7 +435,11 @@ public final class ConnectionParams {
     }
 
     public boolean getUseCompression() {
-        return useCompression;
+        return compression != Compression.NONE;
+    }
+
+    public Compression getCompression() {
+        return compression;
     }
 
     public int getMaxRetries() {
@@ -463,6 +482,9 @@ public final class ConnectionParams {
      */
     public interface HeaderProvider { String getHeaderValue(); }
 
+    /** The compression to use for document operations sent to the server */
+    public enum Compression { NONE, GZIP, LZ4 }
+
     public Path getPrivateKey() { return privateKey; }
     public Path getCertificate() { return certificate; }
     public Path getCaCertificates() { return caCertificates; }
@@ -26,7 +26,13 @@ public final class FeedParams {
     public enum DataFormat {
         /** UTF-8-encoded XML. Preamble is not necessary. */
         XML_UTF8,
-        JSON_UTF8
+        JSON_UTF8,
+        /**
+         * Binary document operations, each as written by com.yahoo.vespaxmlparser.VespaV1FeedWriter in the
+         * document module, and fed with {@link com.yahoo.vespa.http.client.FeedClient#streamSerialized}.
+         * This saves the gateway from parsing the operations, but requires the client to have the document types.
+         */
+        VESPA_V1
     }
     /**
      * Mutable class used to instantiate a {@link FeedParams}.
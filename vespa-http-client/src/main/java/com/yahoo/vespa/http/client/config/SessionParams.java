@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Parameters given to a {@link com.yahoo.vespa.http.client.FeedClientFactory}
@@ -39,6 +40,7 @@ public final class SessionParams {
         private int clientQueueSize = 10000;
         private ErrorReporter errorReporter = null;
         private int throttlerMinSize = 0;
+        private long throttlerTargetLatencyMs = 0;
 
         /**
          * Add a Vespa installation for feeding documents into.
@@ -109,6 +111,25 @@ public final class SessionParams {
             return this;
         }
 
+        /**
+         * Sets the latency of operations the throttler should aim for. If this is zero, which is the default, the
+         * throttler sizes the number of parallel requests by throughput, as described in
+         * {@link #setThrottlerMinSize(int)}. Otherwise dynamic throttling is enabled, and the number of parallel
+         * requests is sized so that operations complete within roughly this time, between the min size of the
+         * throttler (or 1, if that is not set) and the clientQueueSize.
+         *
+         * @param latency the target latency, or zero to disable latency based throttling
+         * @param unit the unit of the latency
+         * @return pointer to the setter.
+         */
+        public Builder setThrottlerTargetLatency(long latency, TimeUnit unit) {
+            if (latency < 0) {
+                throw new IllegalArgumentException("Target latency cannot be negative.");
+            }
+            this.throttlerTargetLatencyMs = unit.toMillis(latency);
+            return this;
+        }
+
         /**
          * Instantiates a {@link SessionParams} that can be given to a {@link com.yahoo.vespa.http.client.FeedClientFactory}.
          *
@@ -116,7 +137,8 @@ public final class SessionParams {
          */
         public SessionParams build() {
             return new SessionParams(
-                    clusters, feedParams, connectionParams, clientQueueSize, errorReporter, throttlerMinSize);
+                    clusters, feedParams, connectionParams, clientQueueSize, errorReporter, throttlerMinSize,
+                    throttlerTargetLatencyMs);
         }
 
         public FeedParams getFeedParams() {
@@ -131,6 +153,9 @@ public final class SessionParams {
         public int getThrottlerMinSize() {
             return throttlerMinSize;
         }
+        public long getThrottlerTargetLatency(TimeUnit unit) {
+            return unit.convert(throttlerTargetLatencyMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     // NOTE! See toBuilder at the end of this class if you add fields here
@@ -141,6 +166,7 @@ public final class SessionParams {
     private final int clientQueueSize;
     private final ErrorReporter errorReport;
     private int throttlerMinSize;
+    private final long throttlerTargetLatencyMs;
 
     private SessionParams(
             Collection<Cluster> clusters,
@@ -148,13 +174,15 @@ public final class SessionParams {
             ConnectionParams connectionParams,
             int clientQueueSize,
             ErrorReporter errorReporter,
-            int throttlerMinSize) {
+            int throttlerMinSize,
+            long throttlerTargetLatencyMs) {
         this.clusters = Collections.unmodifiableList(new ArrayList<>(clusters));
         this.feedParams = feedParams;
         this.connectionParams = connectionParams;
         this.clientQueueSize = clientQueueSize;
         this.errorReport = errorReporter;
         this.throttlerMinSize = throttlerMinSize;
+        this.throttlerTargetLatencyMs = throttlerTargetLatencyMs;
     }
 
     public List<Cluster> getClusters() {
@@ -177,6 +205,10 @@ public final class SessionParams {
         return throttlerMinSize;
     }
 
+    public long getThrottlerTargetLatency(TimeUnit unit) {
+        return unit.convert(throttlerTargetLatencyMs, TimeUnit.MILLISECONDS);
+    }
+
     public ErrorReporter getErrorReport() {
         return errorReport;
     }
@@ -189,6 +221,7 @@ public final class SessionParams {
         b.setClientQueueSize(clientQueueSize);
         b.setErrorReporter(errorReport);
         b.setThrottlerMinSize(throttlerMinSize);
+        b.setThrottlerTargetLatency(throttlerTargetLatencyMs, TimeUnit.MILLISECONDS);
         return b;
     }
 
@@ -23,7 +23,12 @@ final public class Document {
     private long queueInsertTimestampMillis;
 
     public Document(String documentId, byte[] data, Object context) {
+        this(documentId, null, data, context);
+    }
+
+    public Document(String documentId, String operationId, byte[] data, Object context) {
         this.documentId = documentId;
+        this.operationId = operationId;
         this.context = context;
         this.data = ByteBuffer.wrap(data);
     }
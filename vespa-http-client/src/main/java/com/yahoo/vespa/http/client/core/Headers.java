@@ -25,6 +25,8 @@ public final class Headers {
     public static final String SHARDING_KEY = "X-Yahoo-Feed-Sharding-Key";
     public static final String PRIORITY = "X-Yahoo-Feed-Priority";
     public static final String TRACE_LEVEL = "X-Yahoo-Feed-Trace-Level";
+    // Set to "latency" to throttle the feed handler's session by latency rather than throughput
+    public static final String THROTTLE_POLICY = "X-Yahoo-Feed-Throttle-Policy";
 
     public static final int HTTP_NOT_ACCEPTABLE = 406;
 
@@ -33,5 +35,7 @@ public final class Headers {
     public static final String OUTSTANDING_REQUESTS = "X-Yahoo-Outstanding-Requests";
     public static final String HOSTNAME = "X-Yahoo-Hostname";
     public static final String SILENTUPGRADE = "X-Yahoo-Silent-Upgrade";
+    // The content encodings the server accepts for operations, separated by commas
+    public static final String ACCEPT_CONTENT_ENCODINGS = "Vespa-Feed-Accept-Content-Encodings";
 
 }
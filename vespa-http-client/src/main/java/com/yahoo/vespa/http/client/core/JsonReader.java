@@ -199,7 +199,7 @@ public class JsonReader {
      * @return doc id of document or null if no more docs.
      * @throws IOException on problems
      */
-    private static String parseOneDocument(JsonParser jParser) throws IOException {
+    static String parseOneDocument(JsonParser jParser) throws IOException {
         int objectLevel = 0;
         String documentId = null;
         boolean foundObject = false;
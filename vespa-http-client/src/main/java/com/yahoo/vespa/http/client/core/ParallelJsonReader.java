@@ -0,0 +1,227 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.yahoo.vespa.http.client.FeedClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a file of json documents, like {@link JsonReader}, but with the parsing done by several threads.
+ *
+ * The file is memory mapped, and split at the boundaries of the top level json objects by a scan which only
+ * tracks strings and curly braces. Batches of such objects are then parsed for their document ids in parallel,
+ * and the documents are sent to the feed client in the order they have in the file, so operations on the
+ * same document are sent in order.
+ */
+public class ParallelJsonReader {
+
+    private static final int segmentSize = 1 << 30;
+    private static final int maxOperationsPerBatch = 1000;
+    private static final int maxBytesPerBatch = 4 * 1024 * 1024;
+
+    // Intended to be used as static.
+    private ParallelJsonReader() {}
+
+    /**
+     * Reads all documents in the given file and sends them to the feed client.
+     *
+     * @param file file containing an array of json documents
+     * @param feedClient where data is sent
+     * @param numSent counter to be incremented for every document streamed
+     * @param threads the number of threads to parse documents in
+     */
+    public static void read(Path file, FeedClient feedClient, AtomicInteger numSent, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "json-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            MappedFile input = new MappedFile(file);
+            Deque<Future<List<Operation>>> pending = new ArrayDeque<>();
+            ObjectScanner scanner = new ObjectScanner();
+            List<long[]> batch = new ArrayList<>();
+            long batchBytes = 0;
+            for (ByteBuffer segment : input.segments) {
+                for (int i = 0, limit = segment.limit(); i < limit; i++) {
+                    long[] object = scanner.next(segment.get(i));
+                    if (object == null) continue;
+
+                    batch.add(object);
+                    batchBytes += object[1] - object[0];
+                    if (batch.size() == maxOperationsPerBatch || batchBytes >= maxBytesPerBatch) {
+                        submit(batch, input, executor, pending, threads, feedClient, numSent);
+                        batch = new ArrayList<>();
+                        batchBytes = 0;
+                    }
+                }
+            }
+            scanner.end();
+            if ( ! batch.isEmpty())
+                submit(batch, input, executor, pending, threads, feedClient, numSent);
+            while ( ! pending.isEmpty())
+                send(pending.poll(), feedClient, numSent);
+        }
+        catch (IOException e) {
+            System.err.println(e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Parses the given objects in the executor, after sending the oldest batch if too many are pending */
+    private static void submit(List<long[]> objects, MappedFile input, ExecutorService executor,
+                               Deque<Future<List<Operation>>> pending, int threads,
+                               FeedClient feedClient, AtomicInteger numSent) {
+        pending.add(executor.submit(() -> parse(objects, input)));
+        if (pending.size() > 2 * threads)
+            send(pending.poll(), feedClient, numSent);
+    }
+
+    private static void send(Future<List<Operation>> parsed, FeedClient feedClient, AtomicInteger numSent) {
+        try {
+            for (Operation operation : parsed.get()) {
+                feedClient.stream(operation.documentId, operation.data);
+                numSent.incrementAndGet();
+            }
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for documents to be parsed", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof IOException) throw new UncheckedIOException((IOException) e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static List<Operation> parse(List<long[]> objects, MappedFile input) throws IOException {
+        JsonFactory jfactory = new JsonFactory().disable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES);
+        List<Operation> operations = new ArrayList<>(objects.size());
+        for (long[] object : objects) {
+            String data = new String(input.read(object[0], object[1]), StandardCharsets.UTF_8);
+            String documentId;
+            try (JsonParser jParser = jfactory.createParser(data)) {
+                documentId = JsonReader.parseOneDocument(jParser);
+            }
+            if (documentId == null) {
+                int maxTruncatedLength = 500;
+                String truncated = data.length() > maxTruncatedLength ? data.substring(0, maxTruncatedLength) + "..." : data;
+                throw new IllegalArgumentException("Document is missing ID: '" + truncated + "'");
+            }
+            operations.add(new Operation(documentId, data));
+        }
+        return operations;
+    }
+
+    private static class Operation {
+
+        final String documentId;
+        final String data;
+
+        Operation(String documentId, String data) {
+            this.documentId = documentId;
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * Finds the start and end of top level json objects, one byte at a time. As json strings can not contain
+     * unescaped quotes or control characters, and multi-byte utf-8 characters never contain ascii bytes, it is
+     * sufficient to track whether we are inside a string, and the nesting level of curly braces outside strings.
+     * Between the top level objects, only the brackets, commas and whitespace of an enclosing array are allowed.
+     */
+    private static class ObjectScanner {
+
+        private long position = 0;
+        private long objectStart = -1;
+        private int depth = 0;
+        private boolean inString = false;
+        private boolean escaped = false;
+
+        /** Consumes the next byte, and returns the start and end (exclusive) positions of an object ending with it, if any */
+        long[] next(byte b) {
+            long current = position++;
+            if (inString) {
+                if (escaped) escaped = false;
+                else if (b == '\\') escaped = true;
+                else if (b == '"') inString = false;
+                return null;
+            }
+            if (depth == 0 && b != '{') {
+                if (b == '[' || b == ']' || b == ',' || Character.isWhitespace(b)) return null;
+                throw new IllegalArgumentException("Unexpected character '" + (char) b + "' between documents at position " + current);
+            }
+            switch (b) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                    if (depth++ == 0) objectStart = current;
+                    break;
+                case '}':
+                    if (--depth == 0) return new long[] { objectStart, current + 1 };
+                    break;
+            }
+            return null;
+        }
+
+        /** Verifies that all input has been consumed as complete objects */
+        void end() {
+            if (depth > 0 || inString)
+                throw new IllegalArgumentException("Unexpected end of input inside the document starting at position " + objectStart);
+        }
+
+    }
+
+    /** A read-only memory mapping of a file, in segments since a single mapping is limited to 2Gb */
+    private static class MappedFile {
+
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+        MappedFile(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                for (long start = 0; start < size; start += segmentSize)
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start)));
+            }
+        }
+
+        /** Returns a copy of the bytes from start to end (exclusive). This is thread safe. */
+        byte[] read(long start, long end) {
+            byte[] bytes = new byte[Math.toIntExact(end - start)];
+            for (int copied = 0; copied < bytes.length; ) {
+                long position = start + copied;
+                ByteBuffer segment = segments.get((int) (position / segmentSize)).duplicate();
+                segment.position((int) (position % segmentSize));
+                int length = Math.min(bytes.length - copied, segment.remaining());
+                segment.get(bytes, copied, length);
+                copied += length;
+            }
+            return bytes;
+        }
+
+    }
+
+}
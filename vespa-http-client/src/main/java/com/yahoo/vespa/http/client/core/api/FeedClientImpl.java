@@ -2,6 +2,7 @@
 package com.yahoo.vespa.http.client.core.api;
 
 import com.yahoo.vespa.http.client.FeedClient;
+import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.config.SessionParams;
 import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.ThrottlePolicy;
@@ -24,12 +25,14 @@ import java.util.concurrent.TimeUnit;
 public class FeedClientImpl implements FeedClient {
 
     private final OperationProcessor operationProcessor;
+    private final FeedParams.DataFormat dataFormat;
     private final long closeTimeoutMs;
     private final long sleepTimeMs = 500;
 
     public FeedClientImpl(SessionParams sessionParams,
                           ResultCallback resultCallback,
                           ScheduledThreadPoolExecutor timeoutExecutor) {
+        this.dataFormat = sessionParams.getFeedParams().getDataFormat();
         this.closeTimeoutMs = (10 + 3 * sessionParams.getConnectionParams().getMaxRetries()) * (
                 sessionParams.getFeedParams().getServerTimeout(TimeUnit.MILLISECONDS) +
                 sessionParams.getFeedParams().getClientTimeout(TimeUnit.MILLISECONDS));
@@ -38,7 +41,8 @@ public class FeedClientImpl implements FeedClient {
                         sessionParams.getThrottlerMinSize(),
                         sessionParams.getClientQueueSize(),
                         ()->System.currentTimeMillis(),
-                        new ThrottlePolicy()),
+                        new ThrottlePolicy(),
+                        sessionParams.getThrottlerTargetLatency(TimeUnit.MILLISECONDS)),
                 resultCallback,
                 sessionParams,
                 timeoutExecutor);
@@ -54,6 +58,14 @@ public class FeedClientImpl implements FeedClient {
         operationProcessor.sendDocument(document);
     }
 
+    @Override
+    public void streamSerialized(String documentId, String operationId, byte[] operation, Object context) {
+        if (dataFormat != FeedParams.DataFormat.VESPA_V1)
+            throw new IllegalStateException("Serialized operations require data format " + FeedParams.DataFormat.VESPA_V1 +
+                                            ", but this client uses " + dataFormat);
+        operationProcessor.sendDocument(new Document(documentId, operationId, operation, context));
+    }
+
     @Override
     public void close() {
         Instant lastOldestResultReceivedAt = Instant.now();
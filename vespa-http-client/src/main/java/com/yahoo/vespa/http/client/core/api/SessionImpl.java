@@ -12,6 +12,7 @@ import java.io.OutputStream;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class wires up the Session API using MultiClusterHandler and MultiClusterSessionOutputStream.
@@ -31,7 +32,8 @@ public class SessionImpl implements com.yahoo.vespa.http.client.Session {
                         sessionParams.getThrottlerMinSize(),
                         sessionParams.getClientQueueSize(),
                         ()->System.currentTimeMillis(),
-                        new ThrottlePolicy()),
+                        new ThrottlePolicy(),
+                        sessionParams.getThrottlerTargetLatency(TimeUnit.MILLISECONDS)),
                 new FeedClient.ResultCallback() {
                     @Override
                     public void onCompletion(String docId, Result documentResult) {
@@ -19,13 +19,13 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicHeader;
 
 import javax.net.ssl.SSLContext;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
@@ -42,7 +42,6 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Einar M R Rosenvinge
@@ -57,6 +56,7 @@ class ApacheGatewayConnection implements GatewayConnection {
     private static final byte[] END_OF_FEED_XML = "\n</vespafeed>\n".getBytes(StandardCharsets.UTF_8);
     private static final byte[] START_OF_FEED_JSON = "[".getBytes(StandardCharsets.UTF_8);
     private static final byte[] END_OF_FEED_JSON = "]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NO_ENVELOPE = new byte[0];
     private final byte[] startOfFeed;
     private final byte[] endOfFeed;
     private final Endpoint endpoint;
@@ -69,6 +69,8 @@ class ApacheGatewayConnection implements GatewayConnection {
     private int negotiatedVersion = -1;
     private final HttpClientFactory httpClientFactory;
     private final String shardingKey = UUID.randomUUID().toString().substring(0, 5);
+    private final RequestCompressor requestedCompressor;
+    private RequestCompressor compressor;
 
     ApacheGatewayConnection(
             Endpoint endpoint,
@@ -84,17 +86,29 @@ class ApacheGatewayConnection implements GatewayConnection {
         this.httpClientFactory = httpClientFactory;
         this.connectionParams = connectionParams;
         this.httpClient = null;
-        boolean isJson = feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8;
-        if (isJson) {
-            startOfFeed = START_OF_FEED_JSON;
-            endOfFeed = END_OF_FEED_JSON;
-        } else {
-            startOfFeed = START_OF_FEED_XML;
-            endOfFeed = END_OF_FEED_XML;
+        switch (feedParams.getDataFormat()) {
+            case JSON_UTF8:
+                startOfFeed = START_OF_FEED_JSON;
+                endOfFeed = END_OF_FEED_JSON;
+                break;
+            case VESPA_V1: // Binary operations are self-delimiting
+                startOfFeed = NO_ENVELOPE;
+                endOfFeed = NO_ENVELOPE;
+                break;
+            default:
+                startOfFeed = START_OF_FEED_XML;
+                endOfFeed = END_OF_FEED_XML;
         }
         this.clientId = clientId;
         if (this.clientId == null)
             throw new IllegalArgumentException("Got no client Id.");
+        this.requestedCompressor = connectionParams.getUseCompression()
+                                   ? RequestCompressor.create(connectionParams.getCompression())
+                                   : null;
+        // Until the server tells which encodings it accepts, use the one all servers accept
+        this.compressor = requestedCompressor == null || requestedCompressor instanceof RequestCompressor.Gzip
+                          ? requestedCompressor
+                          : new RequestCompressor.Gzip();
     }
 
     private static Endpoint validate(Endpoint endpoint) {
@@ -127,34 +141,19 @@ class ApacheGatewayConnection implements GatewayConnection {
         return httpClient != null;
     }
 
-    // Protected for easier testing only.
-    protected static InputStreamEntity zipAndCreateEntity(final InputStream inputStream) throws IOException {
-        byte[] buffer = new byte[4096];
-        GZIPOutputStream gzos = null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            gzos = new GZIPOutputStream(baos);
-            while (inputStream.available() > 0) {
-                int length = inputStream.read(buffer);
-                gzos.write(buffer, 0,length);
-            }
-        } finally {
-            if (gzos != null)  {
-                gzos.close();
-            }
-        }
-        byte[] fooGzippedBytes = baos.toByteArray();
-        return new InputStreamEntity(new ByteArrayInputStream(fooGzippedBytes), -1);
-    }
-
     private InputStream write(List<Document> docs, boolean drain, boolean useCompression)
             throws ServerResponseException, IOException {
         HttpPost httpPost = createPost(drain, useCompression, false);
 
         ByteBuffer[] buffers = getDataWithStartAndEndOfFeed(docs, negotiatedVersion);
-        InputStream inputStream = new ByteBufferInputStream(buffers);
-        InputStreamEntity reqEntity = useCompression ? zipAndCreateEntity(inputStream)
-                                                     : new InputStreamEntity(inputStream, -1);
+        AbstractHttpEntity reqEntity;
+        if (useCompression) {
+            ByteBuffer compressed = compressor.compress(buffers); // Valid until the next write, after this has returned
+            reqEntity = new ByteArrayEntity(compressed.array(), compressed.arrayOffset(), compressed.remaining());
+        }
+        else {
+            reqEntity = new InputStreamEntity(new ByteBufferInputStream(buffers), -1);
+        }
         reqEntity.setChunked(true);
         httpPost.setEntity(reqEntity);
         return executePost(httpPost);
@@ -207,11 +206,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             }
         }
         if (!isHandshake) {
-            if (feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8) {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.JSON_UTF8.name());
-            } else {
-                httpPost.setHeader(Headers.DATA_FORMAT, FeedParams.DataFormat.XML_UTF8.name());
-            }
+            httpPost.setHeader(Headers.DATA_FORMAT, feedParams.getDataFormat().name());
             if (feedParams.getPriority() != null) {
                 httpPost.setHeader(Headers.PRIORITY, feedParams.getPriority());
             }
@@ -238,7 +233,7 @@ class ApacheGatewayConnection implements GatewayConnection {
         });
 
         if (useCompression) {
-            httpPost.setHeader("Content-Encoding", "gzip");
+            httpPost.setHeader("Content-Encoding", compressor.contentEncoding());
         }
         return httpPost;
     }
@@ -261,6 +256,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             verifyServerResponseCode(response);
             verifyServerVersion(response.getFirstHeader(Headers.VERSION));
             verifySessionHeader(response.getFirstHeader(Headers.SESSION_ID));
+            negotiateCompression(response.getFirstHeader(Headers.ACCEPT_CONTENT_ENCODINGS));
         } catch (ServerResponseException e) {
             httpPost.abort();
             throw e;
@@ -326,6 +322,18 @@ class ApacheGatewayConnection implements GatewayConnection {
         }
     }
 
+    /** Uses the requested compression if the server accepts it, and gzip otherwise */
+    private void negotiateCompression(Header serverHeader) {
+        if (requestedCompressor == null || serverHeader == null || compressor == requestedCompressor) return;
+
+        for (String encoding : serverHeader.getValue().split(",")) {
+            if (encoding.trim().equalsIgnoreCase(requestedCompressor.contentEncoding())) {
+                log.fine("Server accepts " + encoding + ", using it to compress operations.");
+                compressor = requestedCompressor;
+            }
+        }
+    }
+
     private void verifyServerVersion(Header serverHeader) throws ServerResponseException {
         if (serverHeader == null) {
             throw new ServerResponseException("Got bad protocol version from server.");
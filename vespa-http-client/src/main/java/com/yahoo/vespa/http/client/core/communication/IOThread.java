@@ -45,6 +45,9 @@ class IOThread implements Runnable, AutoCloseable {
     private final long localQueueTimeOut;
     private final GatewayThrottler gatewayThrottler;
     private final Random random = new Random();
+    private static final long MIN_RESULT_POLL_WAIT_MS = 10;
+    private static final long MAX_RESULT_POLL_WAIT_MS = 300;
+    private long resultPollWaitMs = MIN_RESULT_POLL_WAIT_MS; // Only accessed by the thread of this
 
     private enum ThreadState { DISCONNECTED, CONNECTED, SESSION_SYNCED };
     private final AtomicInteger wrongSessionDetectedCounter = new AtomicInteger(0);
@@ -296,12 +299,17 @@ class IOThread implements Runnable, AutoCloseable {
 
         if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0) {
             try {
-                // Max outstanding document operations, no more results on server side, wait a bit before asking again
-                Thread.sleep(300);
+                // Max outstanding document operations, no more results on server side, wait a bit before asking again.
+                // Wait longer each time we get nothing, so we neither spin on a slow server, nor idle on a fast one.
+                Thread.sleep(resultPollWaitMs);
+                resultPollWaitMs = Math.min(2 * resultPollWaitMs, MAX_RESULT_POLL_WAIT_MS);
             } catch (InterruptedException e) {
                 // Ignore
             }
         }
+        else if (processResponse.processResultsCount > 0) {
+            resultPollWaitMs = MIN_RESULT_POLL_WAIT_MS;
+        }
         return processResponse;
     }
 
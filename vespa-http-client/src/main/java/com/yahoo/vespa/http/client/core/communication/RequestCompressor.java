@@ -0,0 +1,186 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.ConnectionParams;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the data of requests to a gateway. Each instance reuses its compressor state and output buffer
+ * for all requests, so compressing does not allocate once the buffer has grown to the size of a request.
+ * Instances are therefore not thread safe, and the data returned by {@link #compress} is only valid until
+ * the next call.
+ */
+abstract class RequestCompressor {
+
+    private final OutputBuffer out = new OutputBuffer();
+    private final byte[] input = new byte[8192];
+
+    /** Returns the value of the Content-Encoding header for data compressed by this */
+    abstract String contentEncoding();
+
+    /**
+     * Returns the given data compressed into a buffer owned by this, which is valid until the next call.
+     * The positions of the given buffers are not changed.
+     */
+    ByteBuffer compress(ByteBuffer[] data) {
+        out.reset();
+        begin(out);
+        for (ByteBuffer buffer : data) {
+            ByteBuffer remaining = buffer.duplicate();
+            while (remaining.hasRemaining()) {
+                int length = Math.min(remaining.remaining(), input.length);
+                remaining.get(input, 0, length);
+                update(input, length, out);
+            }
+        }
+        end(out);
+        return out.toByteBuffer();
+    }
+
+    abstract void begin(OutputBuffer out);
+
+    abstract void update(byte[] input, int length, OutputBuffer out);
+
+    abstract void end(OutputBuffer out);
+
+    /**
+     * Returns a compressor of the given type.
+     *
+     * @throws IllegalStateException if the libraries needed for the given compression are not available
+     */
+    static RequestCompressor create(ConnectionParams.Compression compression) {
+        switch (compression) {
+            case GZIP: return new Gzip();
+            case LZ4:
+                try {
+                    return new Lz4();
+                }
+                catch (NoClassDefFoundError e) {
+                    throw new IllegalStateException("LZ4 compression requires org.lz4:lz4-java on the class path", e);
+                }
+            default: throw new IllegalArgumentException("No compressor for " + compression);
+        }
+    }
+
+    /** A byte array output stream which exposes its buffer, which is kept when it is reset */
+    static class OutputBuffer extends ByteArrayOutputStream {
+
+        OutputBuffer() { super(8192); }
+
+        void writeIntLE(int value) {
+            write(value);
+            write(value >>> 8);
+            write(value >>> 16);
+            write(value >>> 24);
+        }
+
+        /** Returns a buffer which shares the content of this */
+        ByteBuffer toByteBuffer() { return ByteBuffer.wrap(buf, 0, count); }
+
+    }
+
+    /** The gzip format, as written by {@link java.util.zip.GZIPOutputStream}, but with a reused {@link Deflater} */
+    static class Gzip extends RequestCompressor {
+
+        private static final byte[] header = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] deflated = new byte[8192];
+
+        @Override
+        String contentEncoding() { return "gzip"; }
+
+        @Override
+        void begin(OutputBuffer out) {
+            deflater.reset();
+            crc.reset();
+            out.write(header, 0, header.length);
+        }
+
+        @Override
+        void update(byte[] input, int length, OutputBuffer out) {
+            crc.update(input, 0, length);
+            deflater.setInput(input, 0, length);
+            while ( ! deflater.needsInput())
+                out.write(deflated, 0, deflater.deflate(deflated));
+        }
+
+        @Override
+        void end(OutputBuffer out) {
+            deflater.finish();
+            while ( ! deflater.finished())
+                out.write(deflated, 0, deflater.deflate(deflated));
+            out.writeIntLE((int) crc.getValue());
+            out.writeIntLE((int) deflater.getBytesRead());
+        }
+
+    }
+
+    /** The LZ4 frame format, with independent 64k blocks, and no checksums of the content */
+    static class Lz4 extends RequestCompressor {
+
+        private static final int magic = 0x184D2204;
+        private static final int blockSize = 1 << 16;
+        private static final int uncompressedBlockFlag = 0x80000000;
+        private static final byte[] descriptor = { 0x60, 0x40 }; // Version 1 with independent blocks, and 64k max block size
+
+        private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        private final byte[] block = new byte[blockSize];
+        private final byte[] compressed = new byte[compressor.maxCompressedLength(blockSize)];
+        private final byte descriptorChecksum = (byte) (XXHashFactory.fastestInstance().hash32().hash(descriptor, 0, descriptor.length, 0) >> 8);
+        private int blockLength = 0;
+
+        @Override
+        String contentEncoding() { return "lz4"; }
+
+        @Override
+        void begin(OutputBuffer out) {
+            blockLength = 0;
+            out.writeIntLE(magic);
+            out.write(descriptor, 0, descriptor.length);
+            out.write(descriptorChecksum);
+        }
+
+        @Override
+        void update(byte[] input, int length, OutputBuffer out) {
+            for (int offset = 0; offset < length; ) {
+                int copied = Math.min(length - offset, blockSize - blockLength);
+                System.arraycopy(input, offset, block, blockLength, copied);
+                blockLength += copied;
+                offset += copied;
+                if (blockLength == blockSize)
+                    writeBlock(out);
+            }
+        }
+
+        @Override
+        void end(OutputBuffer out) {
+            if (blockLength > 0)
+                writeBlock(out);
+            out.writeIntLE(0); // End mark
+        }
+
+        private void writeBlock(OutputBuffer out) {
+            int compressedLength = compressor.compress(block, 0, blockLength, compressed, 0, compressed.length);
+            if (compressedLength < blockLength) {
+                out.writeIntLE(compressedLength);
+                out.write(compressed, 0, compressedLength);
+            }
+            else {
+                out.writeIntLE(blockLength | uncompressedBlockFlag);
+                out.write(block, 0, blockLength);
+            }
+            blockLength = 0;
+        }
+
+    }
+
+}
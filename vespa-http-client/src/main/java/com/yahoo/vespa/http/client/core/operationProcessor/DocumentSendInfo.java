@@ -18,6 +18,7 @@ class DocumentSendInfo {
     // This is lazily populated as normal cases does not require retries.
     private Map<Integer, Integer> attemptedRetriesByClusterId = null;
     private final StringBuilder localTrace;
+    private final long sendTimeMillis = System.currentTimeMillis();
 
     DocumentSendInfo(Document document, boolean traceThisDoc) {
         this.document = document;
@@ -41,6 +42,11 @@ class DocumentSendInfo {
         return true;
     }
 
+    /** Returns the time this operation was sent to the clusters */
+    long sendTimeMillis() {
+        return sendTimeMillis;
+    }
+
     int detailCount() {
         return detailByClusterId.size();
     }
@@ -25,6 +25,12 @@ import java.util.concurrent.ThreadLocalRandom;
  * In case the where the queue is moved to minimum size, it will now and then increase queue size to get
  * more sample data and possibly grow size.
  *
+ * Alternatively, when a target latency is given, the max in-flight is instead sized to keep the latency of
+ * operations close to that target: Latency is sampled in short periods, and smoothed over these. The window shrinks
+ * in proportion to how much the smoothed latency exceeds the target, or by a fixed fraction when operations fail,
+ * and grows by a fraction of its size when latency is well below the target and the window is fully used.
+ * Between these the window is left alone, so it stabilizes rather than oscillating around the optimum.
+ *
  * Class is fully thread safe, i.e. all public methods are thread safe.
  *
  * @author dybis
@@ -51,6 +57,23 @@ public class IncompleteResultsThrottler {
     private int minWindowSizeCounter = 0;
     private int minPermitsAvailable = 0;
 
+    // Statistics over the current sample period, which are always kept, and drive the latency targeting mode.
+    private final long targetLatencyMs;
+    private final long samplePeriodMs;
+    private long periodStartTimeMs = 0;
+    private int periodOk = 0;
+    private int periodFailed = 0;
+    private long periodLatencySumMs = 0;
+    private int periodLatencyCount = 0;
+    private double smoothedLatencyMs = 0;
+    private double throughput = 0;
+
+    static final double LATENCY_SMOOTHING = 0.3;
+    static final double MAX_FAILURE_RATE = 0.01;
+    static final double GROWTH_THRESHOLD = 0.9;
+    static final double GROWTH_FACTOR = 0.1;
+    static final double DECREASE_ON_FAILURE = 0.8;
+
     protected static int INITIAL_MAX_IN_FLIGHT_VALUE = 200;
     protected static int SECOND_MAX_IN_FLIGHT_VALUE = 270;
     private StringBuilder debugMessage = new StringBuilder();
@@ -63,12 +86,30 @@ public class IncompleteResultsThrottler {
      * @param policy is the algorithm for finding next value of the number of in-flight documents operations.
      */
     public IncompleteResultsThrottler(int minInFlightValue, int maxInFlightValue, Clock clock, ThrottlePolicy policy) {
+        this(minInFlightValue, maxInFlightValue, clock, policy, 0);
+    }
+
+    /**
+     * Creates the throttler.
+     * @param minInFlightValue the throttler will never throttle beyond this limit. If zero, this is 1 when a target
+     *                         latency is given, and the max value otherwise.
+     * @param maxInFlightValue the throttler will never throttle above this limit. If zero, no limit.
+     * @param clock use to calculate window size. Can be null if minWindowSize and maxInFlightValue are equal.
+     * @param policy is the algorithm for finding next value of the number of in-flight documents operations, when
+     *               no target latency is given.
+     * @param targetLatencyMs the latency of operations to size the window after, or zero to size it by throughput.
+     */
+    public IncompleteResultsThrottler(int minInFlightValue, int maxInFlightValue, Clock clock, ThrottlePolicy policy,
+                                      long targetLatencyMs) {
         this.maxInFlightValue = maxInFlightValue == 0 ? Integer.MAX_VALUE : maxInFlightValue;
-        this.minInFlightValue = minInFlightValue == 0 ? this.maxInFlightValue : minInFlightValue;
+        this.minInFlightValue = minInFlightValue == 0 ? (targetLatencyMs > 0 ? 1 : this.maxInFlightValue) : minInFlightValue;
         this.policy = policy;
         this.clock = clock;
-        if (minInFlightValue != maxInFlightValue) {
+        this.targetLatencyMs = targetLatencyMs;
+        this.samplePeriodMs = targetLatencyMs > 0 ? Math.max(100, targetLatencyMs) : 1000;
+        if (clock != null) {
             this.sampleStartTimeMs = clock.getTimeMillis();
+            this.periodStartTimeMs = sampleStartTimeMs;
         }
         setNewSemaphoreSize(INITIAL_MAX_IN_FLIGHT_VALUE);
     }
@@ -83,9 +124,12 @@ public class IncompleteResultsThrottler {
         } catch (InterruptedException e) {
             // Ignore
         }
-        if (maxInFlightValue != minInFlightValue) {
+        if (clock != null) {
             synchronized (monitor) {
-                adjustThrottling();
+                updateStatistics();
+                if (maxInFlightValue != minInFlightValue && targetLatencyMs == 0) {
+                    adjustThrottling();
+                }
             }
         }
     }
@@ -101,13 +145,60 @@ public class IncompleteResultsThrottler {
     }
 
     public void resultReady(boolean success) {
+        resultReady(success, -1);
+    }
+
+    /**
+     * Signals that an operation is done.
+     * @param success whether the operation was successful.
+     * @param latencyMs the time from the operation was sent until it was done, or negative if unknown.
+     */
+    public void resultReady(boolean success, long latencyMs) {
         blocker.operationDone();
-        if (!success) {
-            return;
+        synchronized (monitor) {
+            if (success) {
+                numOk++;
+                periodOk++;
+                minPermitsAvailable = Math.min(minPermitsAvailable, blocker.availablePermits());
+            }
+            else {
+                periodFailed++;
+            }
+            if (latencyMs >= 0) {
+                periodLatencySumMs += latencyMs;
+                periodLatencyCount++;
+            }
+            if (clock != null) {
+                updateStatistics();
+            }
+        }
+    }
+
+    /** Returns the current max number of operations in flight */
+    public int getMaxInFlight() {
+        synchronized (monitor) {
+            return maxInFlightNow;
         }
+    }
+
+    /** Returns the current number of operations in flight */
+    public int getInFlight() {
+        synchronized (monitor) {
+            return maxInFlightNow - blocker.availablePermits();
+        }
+    }
+
+    /** Returns the latency of operations, smoothed over recent sample periods, in milliseconds */
+    public double getLatencyMs() {
+        synchronized (monitor) {
+            return smoothedLatencyMs;
+        }
+    }
+
+    /** Returns the number of completed operations per second in the last sample period */
+    public double getThroughput() {
         synchronized (monitor) {
-            numOk++;
-            minPermitsAvailable = Math.min(minPermitsAvailable, blocker.availablePermits());
+            return throughput;
         }
     }
 
@@ -159,6 +250,49 @@ public class IncompleteResultsThrottler {
         this.minPermitsAvailable = maxInFlightNow;
     }
 
+    private void updateStatistics() {
+        long nowMs = clock.getTimeMillis();
+        if (nowMs < periodStartTimeMs + samplePeriodMs) {
+            return;
+        }
+        throughput = (periodOk + periodFailed) * 1000.0 / (nowMs - periodStartTimeMs);
+        if (periodLatencyCount > 0) {
+            double latencyMs = (double) periodLatencySumMs / periodLatencyCount;
+            smoothedLatencyMs = smoothedLatencyMs == 0 ? latencyMs
+                                                       : (1 - LATENCY_SMOOTHING) * smoothedLatencyMs + LATENCY_SMOOTHING * latencyMs;
+        }
+        if (targetLatencyMs > 0 && maxInFlightValue != minInFlightValue && periodOk + periodFailed > 0) {
+            adjustForLatency();
+        }
+        periodStartTimeMs = nowMs;
+        periodOk = 0;
+        periodFailed = 0;
+        periodLatencySumMs = 0;
+        periodLatencyCount = 0;
+    }
+
+    private void adjustForLatency() {
+        double failureRate = (double) periodFailed / (periodOk + periodFailed);
+        boolean windowFull = minPermitsAvailable < Math.max(2, maxInFlightNow * GROWTH_FACTOR);
+        int newMaxInFlight = maxInFlightNow;
+        if (failureRate > MAX_FAILURE_RATE) {
+            newMaxInFlight = (int) (maxInFlightNow * DECREASE_ON_FAILURE);
+        }
+        else if (smoothedLatencyMs > targetLatencyMs) {
+            newMaxInFlight = (int) (maxInFlightNow * Math.max(0.5, targetLatencyMs / smoothedLatencyMs));
+        }
+        else if (smoothedLatencyMs < GROWTH_THRESHOLD * targetLatencyMs && windowFull) {
+            newMaxInFlight = maxInFlightNow + (int) Math.max(1, maxInFlightNow * GROWTH_FACTOR);
+        }
+        debugMessage = new StringBuilder();
+        debugMessage.append("maxInFlightNow: " + maxInFlightNow
+                + " latencyMs: " + (long) smoothedLatencyMs + " targetLatencyMs: " + targetLatencyMs
+                + " failureRate: " + failureRate + " new size is: " + newMaxInFlight);
+        maxInFlightNow = Math.max(minInFlightValue, Math.min(newMaxInFlight, maxInFlightValue));
+        blocker.setMaxConcurrency(maxInFlightNow);
+        minPermitsAvailable = maxInFlightNow;
+    }
+
     private int tryBoostingSizeIfMinValueOverSeveralCycles(final int size) {
         if (size <= minInFlightValue) {
             minWindowSizeCounter++;
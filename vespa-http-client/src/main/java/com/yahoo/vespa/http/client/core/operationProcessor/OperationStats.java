@@ -55,6 +55,12 @@ public class OperationStats {
             jsonGenerator.writeEndArray();
             jsonGenerator.writeFieldName("sessionParams");
             jsonGenerator.writeRawValue(sessionParamsAsXmlString);
+            jsonGenerator.writeObjectFieldStart("throttler");
+            jsonGenerator.writeNumberField("maxInFlight", throttler.getMaxInFlight());
+            jsonGenerator.writeNumberField("inFlight", throttler.getInFlight());
+            jsonGenerator.writeNumberField("latencyMs", throttler.getLatencyMs());
+            jsonGenerator.writeNumberField("throughput", throttler.getThroughput());
+            jsonGenerator.writeEndObject();
             jsonGenerator.writeFieldName("throttleDebugMessage");
             jsonGenerator.writeRawValue("\"" + throttler.getDebugMessage() + "\"");
             jsonGenerator.writeEndObject();
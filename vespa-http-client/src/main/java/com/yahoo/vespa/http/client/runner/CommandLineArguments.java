@@ -91,6 +91,16 @@ public class CommandLineArguments {
             return null;
         }
 
+        if (cmdArgs.compressionArg != null && ! cmdArgs.compressionArg.matches("(?i)gzip|lz4")) {
+            System.err.println("Not valid value for compression. Allowed values are gzip and lz4.");
+            return null;
+        }
+
+        if (cmdArgs.parserThreads < 1) {
+            System.err.println("'--parserThreads' must be at least 1");
+            return null;
+        }
+
         return cmdArgs;
     }
 
@@ -160,10 +170,18 @@ public class CommandLineArguments {
             description = "Use compression over network.")
     private boolean useCompressionArg = false;
 
+    @Option(name = {"--compression"},
+            description = "Compression to use over network: gzip or lz4. Overrides --useCompression.")
+    private String compressionArg = null;
+
     @Option(name = {"--useDynamicThrottling"},
             description = "Try to maximize throughput by using dynamic throttling.")
     private boolean useDynamicThrottlingArg = false;
 
+    @Option(name = {"--targetLatencyMs"},
+            description = "Use dynamic throttling which keeps the latency of operations close to this value, in milliseconds.")
+    private long targetLatencyMsArg = 0;
+
     @Option(name = {"--maxpending"},
             description = "The maximum number of operations that are allowed " +
                     "to be pending at any given time.")
@@ -225,6 +243,11 @@ public class CommandLineArguments {
             description = "BETA! Use Vespa TLS configuration from environment if available. Other HTTPS/TLS configuration will be ignored if this is set.")
     private boolean useTlsConfigFromEnvironment = false;
 
+    @Option(name = {"--parserThreads"},
+            description = "(=1) Number of threads parsing the input. When larger than 1, a json file given by --file " +
+                          "is memory mapped and its documents parsed in parallel, but sent in the order of the file.")
+    private int parserThreads = 1;
+
     @Option(name = {"--connectionTimeToLive"},
             description = "Maximum time to live for persistent connections. Specified as integer, in seconds.")
     private long connectionTimeToLive = 15;
@@ -253,6 +276,8 @@ public class CommandLineArguments {
 
     public boolean getAddRootElementToXml() { return addRootElementToXml; }
 
+    public int getParserThreads() { return parserThreads; }
+
     SessionParams createSessionParams(boolean useJson) {
         int minThrottleValue = useDynamicThrottlingArg ? 10 : 0;
         Path privateKeyPath = Optional.ofNullable(this.privateKeyPath).map(Paths::get).orElse(null);
@@ -279,7 +304,10 @@ public class CommandLineArguments {
                         connectionParamsBuilder
                                 .setHostnameVerifier(insecure ? NoopHostnameVerifier.INSTANCE :
                                         SSLConnectionSocketFactory.getDefaultHostnameVerifier())
-                                .setUseCompression(useCompressionArg)
+                                .setCompression(compressionArg != null
+                                                ? ConnectionParams.Compression.valueOf(compressionArg.toUpperCase())
+                                                : useCompressionArg ? ConnectionParams.Compression.GZIP
+                                                                    : ConnectionParams.Compression.NONE)
                                 .setMaxRetries(noRetryArg ? 0 : 100)
                                 .setMinTimeBetweenRetries(retrydelayArg, TimeUnit.SECONDS)
                                 .setDryRun(validateArg)
@@ -295,6 +323,7 @@ public class CommandLineArguments {
                 )
                         // Enable dynamic throttling.
                 .setThrottlerMinSize(minThrottleValue)
+                .setThrottlerTargetLatency(targetLatencyMsArg, TimeUnit.MILLISECONDS)
                 .setClientQueueSize(maxPendingOperationCountArg);
         if (endpointArg != null) {
             try {
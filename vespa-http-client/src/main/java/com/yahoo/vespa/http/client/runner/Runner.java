@@ -5,11 +5,14 @@ import com.yahoo.vespa.http.client.FeedClient;
 import com.yahoo.vespa.http.client.FeedClientFactory;
 import com.yahoo.vespa.http.client.SimpleLoggerResultCallback;
 import com.yahoo.vespa.http.client.core.JsonReader;
+import com.yahoo.vespa.http.client.core.ParallelJsonReader;
 import com.yahoo.vespa.http.client.core.XmlFeedReader;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -48,7 +51,34 @@ public class Runner {
                 System.err.println("Stopped reading feed, got problems with XML: " + e.getMessage());
             }
         }
+        return close(feedClient, sendStartTime, numSent, verbose);
+    }
 
+    /**
+     * Feed json data from a file to session, parsing it in parallel.
+     *
+     * @param feedClient where to send data to
+     * @param jsonFile file containing an array of json documents
+     * @param parserThreads the number of threads to parse the file in
+     * @param numSent is updated while sending by this method
+     * @param verbose if true will print some information to stderr
+     * @return send time in ms, not including validating
+     */
+    public static long send(FeedClient feedClient,
+                            Path jsonFile,
+                            int parserThreads,
+                            AtomicInteger numSent,
+                            boolean verbose) {
+
+        if (verbose)
+            System.err.println("Now sending data, parsed by " + parserThreads + " threads.");
+
+        long sendStartTime = System.currentTimeMillis();
+        ParallelJsonReader.read(jsonFile, feedClient, numSent, parserThreads);
+        return close(feedClient, sendStartTime, numSent, verbose);
+    }
+
+    private static long close(FeedClient feedClient, long sendStartTime, AtomicInteger numSent, boolean verbose) {
         long sendTotalTime = System.currentTimeMillis() - sendStartTime;
 
         if (verbose)
@@ -80,11 +110,24 @@ public class Runner {
         FeedClient feedClient = FeedClientFactory.create(commandLineArgs.createSessionParams(formatInputStream.getFormat()== FormatInputStream.Format.JSON),
                                                          callback);
 
-        long sendTotalTimeMs = send(feedClient,
-                                    formatInputStream.getInputStream(),
-                                    formatInputStream.getFormat() == FormatInputStream.Format.JSON,
-                                    numSent,
-                                    commandLineArgs.getVerbose());
+        long sendTotalTimeMs;
+        if (   commandLineArgs.getParserThreads() > 1
+            && commandLineArgs.getFile() != null
+            && formatInputStream.getFormat() == FormatInputStream.Format.JSON) {
+            formatInputStream.getInputStream().close();
+            sendTotalTimeMs = send(feedClient,
+                                   Paths.get(commandLineArgs.getFile()),
+                                   commandLineArgs.getParserThreads(),
+                                   numSent,
+                                   commandLineArgs.getVerbose());
+        }
+        else {
+            sendTotalTimeMs = send(feedClient,
+                                   formatInputStream.getInputStream(),
+                                   formatInputStream.getFormat() == FormatInputStream.Format.JSON,
+                                   numSent,
+                                   commandLineArgs.getVerbose());
+        }
 
         if (commandLineArgs.getVerbose()) {
             System.err.println(feedClient.getStatsAsJson());
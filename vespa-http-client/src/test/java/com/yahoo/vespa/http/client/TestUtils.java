@@ -47,10 +47,13 @@ public class TestUtils {
     }
 
     public static String zipStreamToString(InputStream inputStream) throws IOException {
-        GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
+        return streamToString(new GZIPInputStream(inputStream));
+    }
+
+    public static String streamToString(InputStream inputStream) throws IOException {
         final StringBuilder rawContent = new StringBuilder();
         while (true) {
-            int x = gzipInputStream.read();
+            int x = inputStream.read();
             if (x < 0) {
                 break;
             }
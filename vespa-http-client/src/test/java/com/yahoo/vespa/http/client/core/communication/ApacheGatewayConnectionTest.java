@@ -16,24 +16,27 @@ import org.apache.http.ParseException;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.message.BasicHeader;
+import net.jpountz.lz4.LZ4FrameInputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.any;
@@ -172,14 +175,34 @@ public class ApacheGatewayConnectionTest {
     }
 
     @Test
-    public void testZipAndCreateEntity() throws IOException {
-        final String testString = "Hello world";
-        InputStream stream = new ByteArrayInputStream(testString.getBytes(StandardCharsets.UTF_8));
-        // Send in test data to method.
-        InputStreamEntity inputStreamEntity = ApacheGatewayConnection.zipAndCreateEntity(stream);
-        // Verify zipped data by comparing unzipped data with test data.
-        final String rawContent = TestUtils.zipStreamToString(inputStreamEntity.getContent());
-        assert(testString.equals(rawContent));
+    public void testVespaV1OperationsAreSentWithoutEnvelope() throws Exception {
+        Endpoint endpoint = Endpoint.create("localhost", 666, false);
+        FeedParams feedParams = new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.VESPA_V1).build();
+        ConnectionParams connectionParams = new ConnectionParams.Builder().setUseCompression(false).build();
+        byte[] operation = { 0, 0, 0, 1, 0, 0, 0, 3, 1, 2, 3, 4, 5, 6, 7, 8, 42 };
+        Document document = new Document("id:ns:type::1", "op1", operation, null);
+
+        AtomicInteger requestsReceived = new AtomicInteger(0);
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            if (requestsReceived.incrementAndGet() == 1)
+                return httpResponse("clientId", "3");
+
+            assertThat(post.getFirstHeader(Headers.DATA_FORMAT).getValue(), is(FeedParams.DataFormat.VESPA_V1.name()));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            post.getEntity().writeTo(body);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write(("op1 " + Integer.toHexString(operation.length) + "\n").getBytes(StandardCharsets.US_ASCII));
+            expected.write(operation);
+            assertArrayEquals(expected.toByteArray(), body.toByteArray());
+            return httpResponse("clientId", "3");
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(endpoint, feedParams, "", connectionParams, mockFactory, "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(document));
+        assertThat(requestsReceived.get(), is(2));
     }
 
     /**
@@ -236,6 +259,43 @@ public class ApacheGatewayConnectionTest {
         apacheGatewayConnection.writeOperations(documents);
     }
 
+    @Test
+    public void testLz4IsUsedOnlyWhenAcceptedByServer() throws Exception {
+        final Endpoint endpoint = Endpoint.create("localhost", 666, false);
+        final FeedParams feedParams = new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.XML_UTF8).build();
+        final ConnectionParams connectionParams = new ConnectionParams.Builder()
+                .setCompression(ConnectionParams.Compression.LZ4)
+                .build();
+        final Document doc = createDoc("42", "Hello, I am the document data.", false);
+        final List<String> contentEncodings = new ArrayList<>();
+        final List<String> contents = new ArrayList<>();
+
+        ApacheGatewayConnection.HttpClientFactory mockFactory = mockHttpClientFactory(post -> {
+            final Header header = post.getFirstHeader("Content-Encoding");
+            if (header != null) {
+                contentEncodings.add(header.getValue());
+                InputStream content = post.getEntity().getContent();
+                contents.add(header.getValue().equals("lz4") ? TestUtils.streamToString(new LZ4FrameInputStream(content))
+                                                             : TestUtils.zipStreamToString(content));
+            }
+            HttpResponse response = httpResponse("clientId", "3");
+            if (contentEncodings.size() > 0)
+                addMockedHeader(response, Headers.ACCEPT_CONTENT_ENCODINGS, "gzip, lz4", null);
+            return response;
+        });
+
+        ApacheGatewayConnection apacheGatewayConnection =
+                new ApacheGatewayConnection(endpoint, feedParams, "", connectionParams, mockFactory, "clientId");
+        apacheGatewayConnection.connect();
+        apacheGatewayConnection.handshake();
+        apacheGatewayConnection.writeOperations(Collections.singletonList(doc));
+        apacheGatewayConnection.writeOperations(Collections.singletonList(doc));
+
+        assertEquals(Arrays.asList("gzip", "lz4"), contentEncodings);
+        String expected = doc.getOperationId() + " 38\n<vespafeed>\nHello, I am the document data.\n</vespafeed>\n";
+        assertEquals(Arrays.asList(expected, expected), contents);
+    }
+
     @Test
     public void dynamic_headers_are_added_to_the_response() throws IOException, ServerResponseException {
         ConnectionParams.HeaderProvider headerProvider = mock(ConnectionParams.HeaderProvider.class);
@@ -0,0 +1,71 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.ConnectionParams.Compression;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestCompressorTest {
+
+    @Test
+    public void requireThatGzipCompressedDataCanBeDecompressed() throws IOException {
+        RequestCompressor compressor = RequestCompressor.create(Compression.GZIP);
+        assertEquals("gzip", compressor.contentEncoding());
+        assertRoundTrips(compressor, false);
+    }
+
+    @Test
+    public void requireThatLz4CompressedDataCanBeDecompressed() throws IOException {
+        RequestCompressor compressor = RequestCompressor.create(Compression.LZ4);
+        assertEquals("lz4", compressor.contentEncoding());
+        assertRoundTrips(compressor, true);
+    }
+
+    private static void assertRoundTrips(RequestCompressor compressor, boolean lz4) throws IOException {
+        Random random = new Random(42);
+        byte[] text = new byte[200_000];
+        for (int i = 0; i < text.length; i++)
+            text[i] = (byte) ('a' + random.nextInt(4));
+        byte[] noise = new byte[100_000];
+        random.nextBytes(noise);
+
+        // Reuse the compressor, with data spanning several buffers and blocks, and data which does not compress
+        for (byte[][] data : new byte[][][] { { text }, { new byte[0] }, { text, noise, "short".getBytes() }, { noise } }) {
+            ByteBuffer[] buffers = new ByteBuffer[data.length];
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            for (int i = 0; i < data.length; i++) {
+                buffers[i] = ByteBuffer.wrap(data[i]);
+                expected.write(data[i]);
+            }
+            ByteBuffer compressed = compressor.compress(buffers);
+            for (ByteBuffer buffer : buffers)
+                assertEquals(0, buffer.position());
+            if (data[0] == text)
+                assertTrue(compressed.remaining() < expected.size());
+
+            InputStream in = new ByteArrayInputStream(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+            assertArrayEquals(expected.toByteArray(), readAll(lz4 ? new LZ4FrameInputStream(in) : new GZIPInputStream(in)));
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) != -1; )
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+}
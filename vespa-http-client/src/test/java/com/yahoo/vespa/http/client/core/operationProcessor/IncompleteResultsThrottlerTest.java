@@ -6,8 +6,10 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -211,6 +213,55 @@ public class IncompleteResultsThrottlerTest {
                 is(MAX_SIZE));
     }
 
+    /**
+     * Simulates a server which completes 10 operations per ms, with a minimum latency of 20 ms, such that
+     * a latency of 100 ms is reached with 1000 operations in flight.
+     */
+    @Test
+    public void testWindowConvergesToTargetLatencyWithoutOscillating() {
+        AtomicLong timeMs = new AtomicLong(0);
+        IncompleteResultsThrottler throttler =
+                new IncompleteResultsThrottler(0, 50000, timeMs::get, new ThrottlePolicy(), 100);
+        PriorityQueue<long[]> operations = new PriorityQueue<>(Comparator.comparingLong(operation -> operation[0]));
+        int minWindow = Integer.MAX_VALUE, maxWindow = 0;
+        for (long time = 0; time < 60_000; time++) {
+            timeMs.set(time);
+            while ( ! operations.isEmpty() && operations.peek()[0] <= time) {
+                throttler.resultReady(true, time - operations.poll()[1]);
+            }
+            while (throttler.availableCapacity() > 0) {
+                throttler.operationStart();
+                operations.add(new long[] { time + Math.max(20, operations.size() / 10), time });
+            }
+            if (time > 30_000) {
+                minWindow = Math.min(minWindow, throttler.getMaxInFlight());
+                maxWindow = Math.max(maxWindow, throttler.getMaxInFlight());
+            }
+        }
+        assertTrue("Window " + minWindow + " is close to the optimal 1000", minWindow > 800);
+        assertTrue("Window " + maxWindow + " is close to the optimal 1000", maxWindow < 1200);
+        assertTrue("Latency " + throttler.getLatencyMs() + " is close to the target",
+                   throttler.getLatencyMs() > 70 && throttler.getLatencyMs() < 110);
+        assertTrue("Throughput " + throttler.getThroughput() + " is close to the capacity of the server",
+                   throttler.getThroughput() > 8000);
+    }
+
+    @Test
+    public void testWindowShrinksOnFailures() {
+        AtomicLong timeMs = new AtomicLong(0);
+        IncompleteResultsThrottler throttler =
+                new IncompleteResultsThrottler(0, 50000, timeMs::get, new ThrottlePolicy(), 100);
+        int initialWindow = throttler.getMaxInFlight();
+        for (int i = 0; i < 10; i++) {
+            throttler.operationStart();
+            throttler.resultReady(false, 10);
+        }
+        timeMs.addAndGet(100);
+        throttler.operationStart();
+        throttler.resultReady(false, 10);
+        assertThat(throttler.getMaxInFlight(), is((int) (initialWindow * IncompleteResultsThrottler.DECREASE_ON_FAILURE)));
+    }
+
     private long inversesU(int size, int sweetSpot) {
         // Peak performance at sweetSPot.
         int distance = Math.abs(sweetSpot - size);
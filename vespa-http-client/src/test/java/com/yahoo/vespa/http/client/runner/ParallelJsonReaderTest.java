@@ -0,0 +1,103 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.runner;
+
+import com.yahoo.vespa.http.client.FeedClient;
+import com.yahoo.vespa.http.client.core.JsonReader;
+import com.yahoo.vespa.http.client.core.ParallelJsonReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.yahoo.vespa.http.client.JsonTestHelper.inputJson;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelJsonReaderTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static class TestFeedClient implements FeedClient {
+
+        final List<String> documentIds = new ArrayList<>();
+        final List<String> datas = new ArrayList<>();
+
+        @Override
+        public void stream(String documentId, String operationId, CharSequence documentData, Object context) {
+            documentIds.add(documentId);
+            datas.add(documentData.toString());
+        }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public String getStatsAsJson() { return null; }
+
+    }
+
+    @Test
+    public void testDocumentsAreSentInFileOrder() throws IOException {
+        StringBuilder feed = new StringBuilder("[\n");
+        int documents = 5000;
+        for (int i = 0; i < documents; i++) {
+            // Reuse document ids, and put braces, brackets and escaped quotes in strings, to trigger potential bugs
+            feed.append(inputJson("{ 'put': 'id:unittest:smoke::doc" + (i % 100) + "', 'fields': { ",
+                                  "  'text': '} { ] [ \\\" \\\\ naïve" + i + "', 'array': [ { 'a': 1 }, 2 ] } }"));
+            feed.append(i + 1 < documents ? ",\n" : "\n]\n");
+        }
+
+        TestFeedClient expected = new TestFeedClient();
+        AtomicInteger expectedSent = new AtomicInteger(0);
+        JsonReader.read(new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)), expected, expectedSent);
+
+        TestFeedClient actual = new TestFeedClient();
+        AtomicInteger actualSent = new AtomicInteger(0);
+        ParallelJsonReader.read(write(feed.toString()), actual, actualSent, 4);
+
+        assertThat(actualSent.get(), is(documents));
+        assertThat(expectedSent.get(), is(documents));
+        assertThat(actual.documentIds, is(expected.documentIds));
+        assertThat(actual.datas, is(expected.datas));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        TestFeedClient client = new TestFeedClient();
+        ParallelJsonReader.read(write("  "), client, new AtomicInteger(0), 2);
+        assertThat(client.documentIds.size(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsOnMissingId() throws IOException {
+        ParallelJsonReader.read(write(inputJson("[{'fields':{ 'something': 'smoketest', 'nalle': 'bamse' }}]")),
+                                new TestFeedClient(), new AtomicInteger(0), 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsOnGarbage() throws IOException {
+        ParallelJsonReader.read(write("garbage"), new TestFeedClient(), new AtomicInteger(0), 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsOnTruncatedDocument() throws IOException {
+        ParallelJsonReader.read(write(inputJson("[{'put': 'id:unittest:smoke::doc', 'fields': {")),
+                                new TestFeedClient(), new AtomicInteger(0), 2);
+    }
+
+    private Path write(String feed) throws IOException {
+        Path file = tmpFolder.newFile().toPath();
+        Files.write(file, feed.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
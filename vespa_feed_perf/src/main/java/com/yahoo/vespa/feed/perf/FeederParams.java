@@ -40,9 +40,13 @@ class FeederParams {
     private double windowDecrementFactor = 1.2;
     private double windowResizeRate = 3;
     private int windowIncrementSize = 20;
+    private double windowLatencyFactor = 0;
 
     private int numConnectionsPerTarget = 1;
     private long numMessagesToSend = Long.MAX_VALUE;
+    private boolean pipelined = false;
+    private double maxOperationsPerSecond = 0;
+    private OutputStream histogramStream = null;
     private List<InputStream> inputStreams = new ArrayList<>();
 
     FeederParams() {
@@ -109,6 +113,11 @@ class FeederParams {
         return windowIncrementSize;
     }
 
+    /** Returns the latency factor to use for latency based throttling, or 0 to use throughput based throttling */
+    public double getWindowLatencyFactor() {
+        return windowLatencyFactor;
+    }
+
     int getNumConnectionsPerTarget() { return numConnectionsPerTarget; }
 
     long getNumMessagesToSend() { return numMessagesToSend; }
@@ -128,6 +137,27 @@ class FeederParams {
         return this;
     }
 
+    /** Returns whether operations are read and deserialized in the dispatch threads, rather than in the main thread */
+    boolean isPipelined() { return pipelined; }
+    FeederParams setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    /** Returns the max number of operations to send per second, or 0 if unlimited */
+    double getMaxOperationsPerSecond() { return maxOperationsPerSecond; }
+    FeederParams setMaxOperationsPerSecond(double maxOperationsPerSecond) {
+        this.maxOperationsPerSecond = maxOperationsPerSecond;
+        return this;
+    }
+
+    /** Returns the stream to write latency histograms to when done, or null if they should not be written */
+    OutputStream getHistogramStream() { return histogramStream; }
+    FeederParams setHistogramStream(OutputStream histogramStream) {
+        this.histogramStream = histogramStream;
+        return this;
+    }
+
     int getNumDispatchThreads() { return numDispatchThreads; }
     int getMaxPending() { return maxPending; }
     boolean isBenchmarkMode() { return benchmarkMode; }
@@ -147,6 +177,13 @@ class FeederParams {
         opts.addOption("wd", "window_decrementfactor", true, "Dynamic window decrement step size factor. default = " + windowDecrementFactor);
         opts.addOption("wb", "window_backoffactor", true, "Dynamic window backoff factor. default = " + windowSizeBackOff);
         opts.addOption("wr", "window_resizerate", true, "Dynamic window resize rate. default = " + windowResizeRate);
+        opts.addOption("wl", "window_latencyfactor", true, "Size the dynamic window by latency instead of throughput, " +
+                                                           "shrinking it when latency exceeds this factor of its minimum. Suggested value is 1.5");
+        opts.addOption("pl", "pipelined", false, "Read, deserialize and send operations in parallel in the numthreads dispatch threads, " +
+                                                 "instead of reading them in the main thread. This bypasses sequencing by document id.");
+        opts.addOption("rl", "ratelimit", true, "Max number of operations per second, which are sent with even pacing. " +
+                                                "Latency is then measured from when each operation was due. Default is unlimited.");
+        opts.addOption("hg", "histograms", true, "File to write latency histograms per operation type to, as JSON, when done.");
 
         CommandLine cmd = new DefaultParser().parse(opts, args);
 
@@ -171,6 +208,9 @@ class FeederParams {
         if (cmd.hasOption("wr")) {
             windowResizeRate = Double.valueOf(cmd.getOptionValue("wr").trim());
         }
+        if (cmd.hasOption("wl")) {
+            windowLatencyFactor = Double.valueOf(cmd.getOptionValue("wl").trim());
+        }
         if (cmd.hasOption('r')) {
             route = Route.parse(cmd.getOptionValue('r').trim());
         }
@@ -192,6 +232,14 @@ class FeederParams {
             numMessagesToSend = Long.valueOf(cmd.getOptionValue('l').trim());
         }
 
+        pipelined = cmd.hasOption("pl");
+        if (cmd.hasOption("rl")) {
+            maxOperationsPerSecond = Double.valueOf(cmd.getOptionValue("rl").trim());
+        }
+        if (cmd.hasOption("hg")) {
+            histogramStream = new FileOutputStream(new File(cmd.getOptionValue("hg").trim()));
+        }
+
         if ( !cmd.getArgList().isEmpty()) {
             inputStreams.clear();
             for (String fileName : cmd.getArgList()) {
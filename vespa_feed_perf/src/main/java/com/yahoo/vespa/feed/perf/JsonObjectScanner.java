@@ -0,0 +1,49 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.feed.perf;
+
+/**
+ * Finds the boundaries of the operations in a json array, one byte at a time, by tracking only strings and the
+ * nesting of curly braces. This is enough since multi-byte utf-8 characters never contain ascii bytes.
+ */
+class JsonObjectScanner {
+
+    private long position = 0;
+    private long objectStart = -1;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    /** Consumes the next byte, and returns the start and end (exclusive) positions of an object ending with it, if any */
+    long[] next(byte b) {
+        long current = position++;
+        if (inString) {
+            if (escaped) escaped = false;
+            else if (b == '\\') escaped = true;
+            else if (b == '"') inString = false;
+            return null;
+        }
+        if (depth == 0 && b != '{') {
+            if (b == '[' || b == ']' || b == ',' || Character.isWhitespace(b)) return null;
+            throw new IllegalArgumentException("Unexpected character '" + (char) b + "' between operations at position " + current);
+        }
+        switch (b) {
+            case '"':
+                inString = true;
+                break;
+            case '{':
+                if (depth++ == 0) objectStart = current;
+                break;
+            case '}':
+                if (--depth == 0) return new long[] { objectStart, current + 1 };
+                break;
+        }
+        return null;
+    }
+
+    /** Verifies that all input has been consumed as complete objects */
+    void end() {
+        if (depth > 0 || inString)
+            throw new IllegalArgumentException("Unexpected end of input inside the operation starting at position " + objectStart);
+    }
+
+}
@@ -0,0 +1,86 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.feed.perf;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.yahoo.vespaxmlparser.FeedOperation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms with microsecond resolution per operation type, which may be recorded to by any thread.
+ * These are written as json with the common percentiles, and each full histogram in the base64 encoded,
+ * compressed format of HdrHistogram, which can be decoded by {@link Histogram#decodeFromCompressedByteBuffer}.
+ */
+class LatencyHistograms {
+
+    private static final double[] percentiles = { 50, 90, 99, 99.9, 99.99 };
+
+    private final Map<FeedOperation.Type, Histogram> histograms = new EnumMap<>(FeedOperation.Type.class);
+
+    LatencyHistograms() {
+        for (FeedOperation.Type type : Arrays.asList(FeedOperation.Type.DOCUMENT, FeedOperation.Type.UPDATE, FeedOperation.Type.REMOVE))
+            histograms.put(type, new ConcurrentHistogram(3));
+    }
+
+    void record(FeedOperation.Type type, long latencyNanos) {
+        Histogram histogram = histograms.get(type);
+        if (histogram != null)
+            histogram.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    /** Returns a copy of the histogram of the given operation type */
+    Histogram get(FeedOperation.Type type) {
+        return histograms.get(type).copy();
+    }
+
+    /** Writes all histograms to the given stream, as json */
+    void write(OutputStream out) throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("unit", "microseconds");
+            for (Map.Entry<FeedOperation.Type, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue().copy();
+                generator.writeObjectFieldStart(name(entry.getKey()));
+                generator.writeNumberField("count", histogram.getTotalCount());
+                generator.writeNumberField("min", histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue());
+                generator.writeNumberField("mean", histogram.getMean());
+                generator.writeNumberField("max", histogram.getMaxValue());
+                generator.writeObjectFieldStart("percentiles");
+                for (double percentile : percentiles)
+                    generator.writeNumberField(Double.toString(percentile), histogram.getValueAtPercentile(percentile));
+                generator.writeEndObject();
+                generator.writeStringField("histogram", encode(histogram));
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static String name(FeedOperation.Type type) {
+        switch (type) {
+            case DOCUMENT: return "put";
+            case UPDATE: return "update";
+            case REMOVE: return "remove";
+            default: throw new IllegalArgumentException("No histogram for " + type);
+        }
+    }
+
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+
+}
@@ -0,0 +1,34 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.feed.perf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces operations evenly at a fixed rate, shared by any number of threads. Each operation is given a slot,
+ * which is due at an exact offset from the start, so oversleeping does not make the rate drift, and operations
+ * which are late are sent at once to catch up. The due time is returned, so that latency can be measured from
+ * when an operation should have been sent, rather than from when a stalled sender got around to sending it.
+ */
+class RateLimiter {
+
+    private final double nanosPerOperation;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong slots = new AtomicLong();
+
+    /** Creates a rate limiter for the given number of operations per second, which is unlimited if not positive */
+    RateLimiter(double operationsPerSecond) {
+        this.nanosPerOperation = operationsPerSecond > 0 ? 1e9 / operationsPerSecond : 0;
+    }
+
+    /** Waits until the next operation is due, and returns the {@link System#nanoTime()} when it was due */
+    long acquire() {
+        if (nanosPerOperation == 0) return System.nanoTime();
+
+        long due = startNanos + (long) (slots.getAndIncrement() * nanosPerOperation);
+        for (long wait; (wait = due - System.nanoTime()) > 0; )
+            LockSupport.parkNanos(wait);
+        return due;
+    }
+
+}
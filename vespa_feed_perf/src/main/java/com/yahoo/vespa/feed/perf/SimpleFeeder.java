@@ -1,27 +1,20 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.feed.perf;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.yahoo.concurrent.ThreadFactoryFactory;
-import com.yahoo.document.Document;
-import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentTypeManager;
-import com.yahoo.document.DocumentUpdate;
-import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.json.JsonFeedReader;
 import com.yahoo.document.json.JsonWriter;
-import com.yahoo.document.serialization.DocumentDeserializer;
-import com.yahoo.document.serialization.DocumentDeserializerFactory;
-import com.yahoo.document.serialization.DocumentSerializer;
-import com.yahoo.document.serialization.DocumentSerializerFactory;
-import com.yahoo.document.serialization.DocumentWriter;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
-import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.messagebus.DynamicThrottlePolicy;
 import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.LatencyThrottlePolicy;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.MessageBusParams;
 import com.yahoo.messagebus.RPCMessageBus;
@@ -32,21 +25,24 @@ import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.network.rpc.RPCNetworkParams;
 import com.yahoo.messagebus.routing.Route;
-import com.yahoo.vespaxmlparser.ConditionalFeedOperation;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.FeedOperation;
-import com.yahoo.vespaxmlparser.RemoveFeedOperation;
+import com.yahoo.vespaxmlparser.VespaV1FeedReader;
+import com.yahoo.vespaxmlparser.VespaV1FeedWriter;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
-import net.jpountz.xxhash.XXHashFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -70,7 +66,13 @@ public class SimpleFeeder implements ReplyHandler {
     private final long numMessagesToSend;
     private final Destination destination;
     private final boolean benchmarkMode;
+    private final boolean pipelined;
+    private final OutputStream histogramStream;
+    private final LatencyHistograms histograms = new LatencyHistograms();
     private final static long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+    private final static int OPERATIONS_PER_CHUNK = 100;
+    /** Starts files in the vespa V1 format, to tell them apart from json and xml */
+    private final static byte [] VESPA_V1_MAGIC = { 'V', '1' };
     private final long startTime = System.currentTimeMillis();
     private final AtomicReference<Throwable> failure = new AtomicReference<>(null);
     private final AtomicLong numReplies = new AtomicLong(0);
@@ -116,6 +118,188 @@ public class SimpleFeeder implements ReplyHandler {
         }
     }
 
+    /**
+     * Feeds with all the work but the splitting of the input into chunks of raw operations done in the dispatch
+     * threads, so that deserializing, as well as serializing, scales with the number of threads. Operations are
+     * therefore sent in no particular order.
+     */
+    static class PipelinedMetrics {
+
+        private final Destination destination;
+        private final ChunkReader reader;
+        private final Executor executor;
+        private final long messagesToSend;
+        private final AtomicLong messagesSent;
+        private final AtomicReference<Throwable> failure;
+
+        PipelinedMetrics(Destination destination, ChunkReader reader, Executor executor, AtomicReference<Throwable> failure,
+                         long messagesToSend, AtomicLong messagesSent) {
+            this.destination = destination;
+            this.reader = reader;
+            this.executor = executor;
+            this.messagesToSend = messagesToSend;
+            this.messagesSent = messagesSent;
+            this.failure = failure;
+        }
+
+        void feed() throws Throwable {
+            Callable<List<FeedOperation>> chunk;
+            while ((failure.get() == null) && (messagesSent.get() < messagesToSend) && ((chunk = reader.read()) != null)) {
+                Callable<List<FeedOperation>> operations = chunk;
+                executor.execute(() -> sendOperations(operations));
+            }
+        }
+
+        private void sendOperations(Callable<List<FeedOperation>> chunk) {
+            try {
+                for (FeedOperation op : chunk.call()) {
+                    if (failure.get() != null || ! reserveMessage()) {
+                        return;
+                    }
+                    destination.send(op);
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private boolean reserveMessage() {
+            for (long sent = messagesSent.get(); sent < messagesToSend; sent = messagesSent.get()) {
+                if (messagesSent.compareAndSet(sent, sent + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Reads chunks of operations, which are deserialized when called, so this may be done by other threads */
+    interface ChunkReader {
+        /** Returns the next chunk of operations, or null if there are no more */
+        Callable<List<FeedOperation>> read() throws Exception;
+    }
+
+    /** Returns the operations of the given reader, until it returns an invalid operation */
+    private static List<FeedOperation> readAll(FeedReader reader, int maxOperations) throws Exception {
+        List<FeedOperation> operations = new ArrayList<>();
+        while (operations.size() < maxOperations) {
+            FeedOperation op = reader.read();
+            if (op.getType() == FeedOperation.Type.INVALID) {
+                break;
+            }
+            operations.add(op);
+        }
+        return operations;
+    }
+
+    /** Splits a json array of operations into chunks of whole operations, leaving all parsing to the callers of the chunks */
+    static class JsonChunkReader implements ChunkReader {
+        private final InputStream in;
+        private final DocumentTypeManager mgr;
+        private final JsonObjectScanner scanner = new JsonObjectScanner();
+        private final byte[] buffer = new byte[0x10000];
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream(); // Read bytes of an unfinished operation
+        private long bufferStart = 0; // Position of the buffer in the input
+        private int position = 0;
+        private int end = 0;
+
+        JsonChunkReader(InputStream in, DocumentTypeManager mgr) {
+            this.in = in;
+            this.mgr = mgr;
+        }
+
+        @Override
+        public Callable<List<FeedOperation>> read() throws IOException {
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            chunk.write('[');
+            int numOperations = 0;
+            while (numOperations < OPERATIONS_PER_CHUNK) {
+                if ( ! fill()) {
+                    scanner.end();
+                    break;
+                }
+                int start = position;
+                while ((position < end) && (numOperations < OPERATIONS_PER_CHUNK)) {
+                    long[] operation = scanner.next(buffer[position++]);
+                    if (operation == null) continue;
+
+                    if (numOperations++ > 0) chunk.write(',');
+                    int offset = (int) (operation[0] - bufferStart);
+                    if (offset >= start) {
+                        chunk.write(buffer, offset, position - offset);
+                    } else {
+                        // The pending bytes end at the start of this buffer, and start with what preceded the operation
+                        pending.write(buffer, start, position - start);
+                        byte[] bytes = pending.toByteArray();
+                        int pendingOffset = bytes.length - (int) (operation[1] - operation[0]);
+                        chunk.write(bytes, pendingOffset, bytes.length - pendingOffset);
+                    }
+                    pending.reset();
+                    start = position;
+                }
+                pending.write(buffer, start, position - start);
+            }
+            if (numOperations == 0) {
+                return null;
+            }
+            chunk.write(']');
+            byte[] operations = chunk.toByteArray();
+            return () -> readAll(new JsonFeedReader(new ByteArrayInputStream(operations), mgr), Integer.MAX_VALUE);
+        }
+
+        private boolean fill() throws IOException {
+            if (position < end) {
+                return true;
+            }
+            bufferStart += end;
+            position = 0;
+            end = Math.max(0, in.read(buffer));
+            return end > 0;
+        }
+    }
+
+    /** Reads chunks of operations in the vespa V1 format, which are verified and deserialized when called */
+    static class VespaV1ChunkReader implements ChunkReader {
+        private final VespaV1FeedReader reader;
+
+        VespaV1ChunkReader(VespaV1FeedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Callable<List<FeedOperation>> read() throws IOException {
+            List<VespaV1FeedReader.Blob> blobs = new ArrayList<>(OPERATIONS_PER_CHUNK);
+            for (VespaV1FeedReader.Blob blob; (blobs.size() < OPERATIONS_PER_CHUNK) && ((blob = reader.readBlob()) != null); ) {
+                blobs.add(blob);
+            }
+            if (blobs.isEmpty()) {
+                return null;
+            }
+            return () -> {
+                List<FeedOperation> operations = new ArrayList<>(blobs.size());
+                for (VespaV1FeedReader.Blob blob : blobs) {
+                    operations.add(reader.parse(blob));
+                }
+                return operations;
+            };
+        }
+    }
+
+    /** Reads chunks of operations from a reader which must parse them sequentially, like the xml reader */
+    static class SequentialChunkReader implements ChunkReader {
+        private final FeedReader reader;
+
+        SequentialChunkReader(FeedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Callable<List<FeedOperation>> read() throws Exception {
+            List<FeedOperation> operations = readAll(reader, OPERATIONS_PER_CHUNK);
+            return operations.isEmpty() ? null : () -> operations;
+        }
+    }
+
 
     public static void main(String[] args) throws Throwable {
         new SimpleFeeder(new FeederParams().parseArgs(args)).run().close();
@@ -126,17 +310,30 @@ public class SimpleFeeder implements ReplyHandler {
         void close() throws Exception;
     }
 
+    /** The context of a message, for measuring its latency */
+    private static class SendContext {
+        private final FeedOperation.Type type;
+        private final long startNanos;
+        SendContext(FeedOperation.Type type, long startNanos) {
+            this.type = type;
+            this.startNanos = startNanos;
+        }
+    }
+
     private static class MbusDestination implements Destination {
         private final PrintStream err;
         private final Route route;
         private final SourceSession session;
         private final long timeoutMS;
+        private final RateLimiter rateLimiter;
         private final AtomicReference<Throwable> failure;
-        MbusDestination(SourceSession session, Route route, double timeoutS, AtomicReference<Throwable> failure, PrintStream err) {
+        MbusDestination(SourceSession session, Route route, double timeoutS, RateLimiter rateLimiter,
+                        AtomicReference<Throwable> failure, PrintStream err) {
             this.route = route;
             this.err = err;
             this.session = session;
             this.timeoutMS = (long)(timeoutS * 1000.0);
+            this.rateLimiter = rateLimiter;
             this.failure = failure;
         }
         public void send(FeedOperation op) {
@@ -146,7 +343,7 @@ public class SimpleFeeder implements ReplyHandler {
                 return;
             }
             msg.setTimeRemaining(timeoutMS);
-            msg.setContext(System.currentTimeMillis());
+            msg.setContext(new SendContext(op.getType(), rateLimiter.acquire()));
             msg.setRoute(route);
             try {
                 Error err = session.sendBlocking(msg).getError();
@@ -160,15 +357,26 @@ public class SimpleFeeder implements ReplyHandler {
         }
     }
 
+    /** Serializes documents in the sending thread, into a buffer per thread, and writes them to the output in turn */
     private static class JsonDestination implements Destination {
         private final OutputStream outputStream;
-        private final DocumentWriter writer;
+        private final ThreadLocal<JsonSerializer> serializers = ThreadLocal.withInitial(JsonSerializer::new);
         private final AtomicLong numReplies;
         private final AtomicReference<Throwable> failure;
         private boolean isFirst = true;
+        private static class JsonSerializer {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            private final JsonWriter writer;
+            JsonSerializer() {
+                try {
+                    writer = new JsonWriter(new JsonFactory().createGenerator(buffer, JsonEncoding.UTF8).setRootValueSeparator(null));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
         JsonDestination(OutputStream outputStream, AtomicReference<Throwable> failure, AtomicLong numReplies) {
             this.outputStream = outputStream;
-            writer = new JsonWriter(outputStream);
             this.numReplies = numReplies;
             this.failure = failure;
             try {
@@ -180,20 +388,27 @@ public class SimpleFeeder implements ReplyHandler {
         }
         public void send(FeedOperation op) {
             if (op.getType() == FeedOperation.Type.DOCUMENT) {
-                if (!isFirst) {
-                    try {
-                        outputStream.write(',');
-                        outputStream.write('\n');
-                    } catch (IOException e) {
-                        failure.set(e);
-                    }
-                } else {
-                    isFirst = false;
+                JsonSerializer serializer = serializers.get();
+                serializer.writer.write(op.getDocument());
+                try {
+                    write(serializer.buffer);
+                } catch (IOException e) {
+                    failure.set(e);
                 }
-                writer.write(op.getDocument());
+                serializer.buffer.reset();
             }
             numReplies.incrementAndGet();
         }
+        private synchronized void write(ByteArrayOutputStream document) throws IOException {
+            if (!isFirst) {
+                outputStream.write(',');
+                outputStream.write('\n');
+                outputStream.write(' ');
+            } else {
+                isFirst = false;
+            }
+            document.writeTo(outputStream);
+        }
         public void close() throws Exception {
             outputStream.write('\n');
             outputStream.write(']');
@@ -201,52 +416,33 @@ public class SimpleFeeder implements ReplyHandler {
         }
     }
 
-    static private final int NONE = 0;
-    static private final int DOCUMENT = 1;
-    static private final int UPDATE = 2;
-    static private final int REMOVE = 3;
+    /** Serializes operations in the sending thread, with a writer per thread, and writes them to the output in turn */
     private static class VespaV1Destination implements Destination {
         private final OutputStream outputStream;
-        GrowableByteBuffer buffer = new GrowableByteBuffer(16384);
-        ByteBuffer header = ByteBuffer.allocate(16);
+        private final ThreadLocal<VespaV1FeedWriter> writers;
         private final AtomicLong numReplies;
         private final AtomicReference<Throwable> failure;
         VespaV1Destination(OutputStream outputStream, AtomicReference<Throwable> failure, AtomicLong numReplies) {
             this.outputStream = outputStream;
             this.numReplies = numReplies;
             this.failure = failure;
+            // Each writer writes an operation in a single call, so synchronizing that call keeps operations whole
+            OutputStream synchronizedOutput = new FilterOutputStream(outputStream) {
+                @Override
+                public synchronized void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+            };
+            this.writers = ThreadLocal.withInitial(() -> new VespaV1FeedWriter(synchronizedOutput));
             try {
-                outputStream.write('V');
-                outputStream.write('1');
+                outputStream.write(VESPA_V1_MAGIC);
             } catch (IOException e) {
                 failure.set(e);
             }
         }
         public void send(FeedOperation op) {
-            TestAndSetCondition cond = op.getCondition();
-            buffer.putUtf8String(cond.getSelection());
-            DocumentSerializer writer = DocumentSerializerFactory.createHead(buffer);
-            int type = NONE;
-            if (op.getType() == FeedOperation.Type.DOCUMENT) {
-                writer.write(op.getDocument());
-                type = DOCUMENT;
-            } else if (op.getType() == FeedOperation.Type.UPDATE) {
-                writer.write(op.getDocumentUpdate());
-                type = UPDATE;
-            } else if (op.getType() == FeedOperation.Type.REMOVE) {
-                writer.write(op.getRemove());
-                type = REMOVE;
-            }
-            int sz = buffer.position();
-            long hash = hash(buffer.array(), sz);
             try {
-                header.putInt(sz);
-                header.putInt(type);
-                header.putLong(hash);
-                outputStream.write(header.array(), 0, header.position());
-                outputStream.write(buffer.array(), 0, buffer.position());
-                header.clear();
-                buffer.clear();
+                writers.get().write(op);
             } catch (IOException e) {
                 failure.set(e);
             }
@@ -255,88 +451,20 @@ public class SimpleFeeder implements ReplyHandler {
         public void close() throws Exception {
             outputStream.close();
         }
-        static long hash(byte [] buf, int length) {
-            return XXHashFactory.fastestJavaInstance().hash64().hash(buf, 0, length, 0);
-        }
     }
 
     private static int readExact(InputStream in, byte [] buf) throws IOException {
         return in.readNBytes(buf, 0, buf.length);
     }
 
-    static class VespaV1FeedReader implements FeedReader {
-        private final InputStream in;
-        private final DocumentTypeManager mgr;
-        private final byte[] prefix = new byte[16];
-        VespaV1FeedReader(InputStream in, DocumentTypeManager mgr) throws IOException {
-            this.in = in;
-            this.mgr = mgr;
-            byte [] header = new byte[2];
-            int read = readExact(in, header);
-            if ((read != header.length) || (header[0] != 'V') || (header[1] != '1')) {
-                throw new IllegalArgumentException("Invalid Header " + Arrays.toString(header));
-            }
-        }
-
-        static class LazyDocumentOperation extends ConditionalFeedOperation {
-            private final DocumentDeserializer deserializer;
-            LazyDocumentOperation(DocumentDeserializer deserializer, TestAndSetCondition condition) {
-                super(Type.DOCUMENT, condition);
-                this.deserializer = deserializer;
-            }
-
-            @Override
-            public Document getDocument() {
-                return new Document(deserializer);
-            }
-        }
-        static class LazyUpdateOperation extends ConditionalFeedOperation {
-            private final DocumentDeserializer deserializer;
-            LazyUpdateOperation(DocumentDeserializer deserializer, TestAndSetCondition condition) {
-                super(Type.UPDATE, condition);
-                this.deserializer = deserializer;
-            }
-
-            @Override
-            public DocumentUpdate getDocumentUpdate() {
-                return new DocumentUpdate(deserializer);
-            }
-        }
-        @Override
-        public FeedOperation read() throws Exception {
-            int read = readExact(in, prefix);
-            if (read != prefix.length) {
-                return FeedOperation.INVALID;
-            }
-            ByteBuffer header = ByteBuffer.wrap(prefix);
-            int sz = header.getInt();
-            int type = header.getInt();
-            long hash = header.getLong();
-            byte [] blob = new byte[sz];
-            read = readExact(in, blob);
-            if (read != blob.length) {
-                throw new IllegalArgumentException("Underflow, failed reading " + blob.length + "bytes. Got " + read);
-            }
-            long computedHash = VespaV1Destination.hash(blob, blob.length);
-            if (computedHash != hash) {
-                throw new IllegalArgumentException("Hash mismatch, expected " + hash + ", got " + computedHash);
-            }
-            GrowableByteBuffer buf = GrowableByteBuffer.wrap(blob);
-            String condition = buf.getUtf8String();
-            DocumentDeserializer deser = DocumentDeserializerFactory.createHead(mgr, buf);
-            TestAndSetCondition testAndSetCondition = condition.isEmpty()
-                    ? TestAndSetCondition.NOT_PRESENT_CONDITION
-                    : new TestAndSetCondition(condition);
-            if (type == DOCUMENT) {
-                return new LazyDocumentOperation(deser, testAndSetCondition);
-            } else if (type == UPDATE) {
-                return new LazyUpdateOperation(deser, testAndSetCondition);
-            } else if (type == REMOVE) {
-                return new RemoveFeedOperation(new DocumentId(deser), testAndSetCondition);
-            } else {
-                throw new IllegalArgumentException("Unknown operation " + type);
-            }
+    /** Returns a reader of the operations of the given vespa V1 input, after verifying its magic */
+    private static VespaV1FeedReader createVespaV1FeedReader(InputStream in, DocumentTypeManager docTypeMgr) throws IOException {
+        byte [] header = new byte[VESPA_V1_MAGIC.length];
+        int read = readExact(in, header);
+        if ( ! Arrays.equals(header, VESPA_V1_MAGIC)) {
+            throw new IllegalArgumentException("Invalid Header " + Arrays.toString(Arrays.copyOf(header, read)));
         }
+        return new VespaV1FeedReader(in, docTypeMgr);
     }
 
     private Destination createDumper(FeederParams params) {
@@ -354,13 +482,17 @@ public class SimpleFeeder implements ReplyHandler {
         session = newSession(mbus, this, params);
         docTypeMgr.configure(params.getConfigId());
         benchmarkMode = params.isBenchmarkMode();
+        pipelined = params.isPipelined();
+        histogramStream = params.getHistogramStream();
         destination = (params.getDumpStream() != null)
                 ? createDumper(params)
-                : new MbusDestination(session, params.getRoute(), params.getTimeout(), failure, params.getStdErr());
+                : new MbusDestination(session, params.getRoute(), params.getTimeout(),
+                                      new RateLimiter(params.getMaxOperationsPerSecond()), failure, params.getStdErr());
     }
 
     SourceSession getSourceSession() { return session; }
-    private FeedReader createFeedReader(InputStream in) throws Exception {
+    LatencyHistograms getHistograms() { return histograms; }
+    private static byte [] peekFormat(InputStream in) throws IOException {
         in.mark(8);
         byte [] b = new byte[2];
         int numRead = readExact(in, b);
@@ -368,10 +500,24 @@ public class SimpleFeeder implements ReplyHandler {
         if (numRead != b.length) {
             throw new IllegalArgumentException("Need to read " + b.length + " bytes to detect format. Got " + numRead + " bytes.");
         }
+        return b;
+    }
+    private ChunkReader createChunkReader(InputStream in) throws Exception {
+        byte [] b = peekFormat(in);
+        if (b[0] == '[') {
+            return new JsonChunkReader(in, docTypeMgr);
+        } else if (Arrays.equals(b, VESPA_V1_MAGIC)) {
+            return new VespaV1ChunkReader(createVespaV1FeedReader(in, docTypeMgr));
+        } else {
+            return new SequentialChunkReader(new VespaXMLFeedReader(in, docTypeMgr));
+        }
+    }
+    private FeedReader createFeedReader(InputStream in) throws Exception {
+        byte [] b = peekFormat(in);
         if (b[0] == '[') {
             return new JsonFeedReader(in, docTypeMgr);
-        } else if ((b[0] == 'V') && (b[1] == '1')) {
-            return new VespaV1FeedReader(in, docTypeMgr);
+        } else if (Arrays.equals(b, VESPA_V1_MAGIC)) {
+            return createVespaV1FeedReader(in, docTypeMgr);
         } else {
              return new VespaXMLFeedReader(in, docTypeMgr);
         }
@@ -389,17 +535,27 @@ public class SimpleFeeder implements ReplyHandler {
     }
 
     SimpleFeeder run() throws Throwable {
-        ExecutorService executor = (numThreads > 1)
+        ExecutorService executor = (numThreads > 1 || pipelined)
                 ? new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.SECONDS,
-                                         new ArrayBlockingQueue<>(numThreads*100),
+                                         new ArrayBlockingQueue<>(pipelined ? numThreads * 2 : numThreads * 100),
                                          ThreadFactoryFactory.getDaemonThreadFactory("perf-feeder"),
                                          new RetryExecutionhandler())
                 : null;
         printHeader(out);
         long numMessagesSent = 0;
-        for (InputStream in : inputStreams) {
-            Metrics m = new Metrics(destination, createFeedReader(in), executor, failure, numMessagesToSend);
-            numMessagesSent += m.feed();
+        if (pipelined) {
+            AtomicLong messagesSent = new AtomicLong(0);
+            for (InputStream in : inputStreams) {
+                new PipelinedMetrics(destination, createChunkReader(in), executor, failure, numMessagesToSend, messagesSent).feed();
+            }
+            executor.shutdown();
+            while ( ! executor.awaitTermination(1, TimeUnit.SECONDS)) { }
+            numMessagesSent = messagesSent.get();
+        } else {
+            for (InputStream in : inputStreams) {
+                Metrics m = new Metrics(destination, createFeedReader(in), executor, failure, numMessagesToSend);
+                numMessagesSent += m.feed();
+            }
         }
         while (failure.get() == null && numReplies.get() < numMessagesSent) {
             Thread.sleep(100);
@@ -408,6 +564,9 @@ public class SimpleFeeder implements ReplyHandler {
             throw failure.get();
         }
         printReport(out);
+        if (histogramStream != null) {
+            histograms.write(histogramStream);
+        }
         return this;
     }
 
@@ -447,10 +606,11 @@ public class SimpleFeeder implements ReplyHandler {
             failure.compareAndSet(null, new IOException(formatErrors(reply)));
             return;
         }
-        long now = System.currentTimeMillis();
-        long latency = now - (long) reply.getContext();
+        SendContext context = (SendContext) reply.getContext();
+        long latencyNanos = System.nanoTime() - context.startNanos;
+        histograms.record(context.type, latencyNanos);
         numReplies.incrementAndGet();
-        accumulateReplies(now, latency);
+        accumulateReplies(System.currentTimeMillis(), TimeUnit.NANOSECONDS.toMillis(latencyNanos));
     }
     private synchronized void accumulateReplies(long now, long latency) {
         minLatency = Math.min(minLatency, latency);
@@ -492,6 +652,11 @@ public class SimpleFeeder implements ReplyHandler {
         params.setReplyHandler(replyHandler);
         if (feederParams.getMaxPending() > 0) {
             params.setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(feederParams.getMaxPending()));
+        } else if (feederParams.getWindowLatencyFactor() > 0) {
+            LatencyThrottlePolicy throttlePolicy = new LatencyThrottlePolicy()
+                    .setWindowSizeIncrement(feederParams.getWindowIncrementSize())
+                    .setLatencyFactor(feederParams.getWindowLatencyFactor());
+            params.setThrottlePolicy(throttlePolicy);
         } else {
             DynamicThrottlePolicy throttlePolicy = new DynamicThrottlePolicy()
                     .setWindowSizeIncrement(feederParams.getWindowIncrementSize())
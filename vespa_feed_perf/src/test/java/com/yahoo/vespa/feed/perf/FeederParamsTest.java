@@ -133,6 +133,26 @@ public class FeederParamsTest {
         assertEquals(0.97, new FeederParams().parseArgs("--window_backoff", "0.97").getWindowSizeBackOff(), EPSILON);
     }
 
+    @Test
+    public void requireThatWindowLatencyFactorIsParsed() throws ParseException, FileNotFoundException {
+        assertEquals(0.0, new FeederParams().getWindowLatencyFactor(), EPSILON);
+        assertEquals(1.5, new FeederParams().parseArgs("--window_latencyfactor", "1.5").getWindowLatencyFactor(), EPSILON);
+    }
+
+    @Test
+    public void requireThatPipeliningOptionsAreParsed() throws ParseException, IOException {
+        assertFalse(new FeederParams().isPipelined());
+        assertTrue(new FeederParams().parseArgs("--pipelined").isPipelined());
+        assertEquals(0.0, new FeederParams().getMaxOperationsPerSecond(), EPSILON);
+        assertEquals(2500.0, new FeederParams().parseArgs("--ratelimit", "2500").getMaxOperationsPerSecond(), EPSILON);
+        assertNull(new FeederParams().getHistogramStream());
+
+        FeederParams p = new FeederParams().parseArgs("--histograms", TESTFILE_JSON);
+        assertNotNull(p.getHistogramStream());
+        p.getHistogramStream().close();
+        assertTrue(new File(TESTFILE_JSON).delete());
+    }
+
     @Test
     public void requireThatDumpStreamAreParsed() throws ParseException, IOException {
         assertNull(new FeederParams().getDumpStream());
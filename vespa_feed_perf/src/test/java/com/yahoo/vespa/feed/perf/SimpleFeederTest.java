@@ -13,6 +13,7 @@ import com.yahoo.messagebus.MessageHandler;
 import com.yahoo.messagebus.Reply;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.ThrottlePolicy;
+import com.yahoo.vespaxmlparser.FeedOperation;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -23,9 +24,12 @@ import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -188,6 +192,121 @@ public class SimpleFeederTest {
                         "\\s*\\d+,\\s*3,.+\n");
     }
 
+    @Test
+    public void requireThatPipelinedJsonFeederWorks() throws Throwable {
+        StringBuilder feed = new StringBuilder("[\n");
+        int numOperations = 250;
+        for (int i = 0; i < numOperations; ++i) {
+            // Braces, brackets and escaped quotes in strings must not confuse the splitting of the input
+            feed.append(i % 5 == 0 ? "  { \"update\": \"id:simple:simple::" + i + "\", \"fields\": { \"my_str\": { \"assign\":\"}{ ]\"}}}"
+                                   : "  { \"put\": \"id:simple:simple::" + i + "\", \"fields\": { \"my_str\":\"} [ \\\" \\\\ {" + i + "\"}}")
+                .append(i + 1 < numOperations ? ",\n" : "\n]");
+        }
+        AtomicInteger received = new AtomicInteger();
+        ByteArrayOutputStream histograms = new ByteArrayOutputStream();
+        TestDriver driver = new TestDriver(new FeederParams().parseArgs("-n", "4", "--pipelined").setHistogramStream(histograms),
+                                           feed.toString(),
+                                           new MessageHandler() {
+
+                                               @Override
+                                               public void handleMessage(Message msg) {
+                                                   received.incrementAndGet();
+                                                   Reply reply = ((DocumentMessage)msg).createReply();
+                                                   reply.swapState(msg);
+                                                   reply.popHandler().handleReply(reply);
+                                               }
+                                           });
+        driver.run();
+        assertMatches("(.+\n)+" + "\\s*\\d+,\\s*250,.+\n", new String(driver.out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(numOperations, received.get());
+        assertEquals(200, driver.feeder.getHistograms().get(FeedOperation.Type.DOCUMENT).getTotalCount());
+        assertEquals(50, driver.feeder.getHistograms().get(FeedOperation.Type.UPDATE).getTotalCount());
+        assertEquals(0, driver.feeder.getHistograms().get(FeedOperation.Type.REMOVE).getTotalCount());
+        String json = new String(histograms.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json, Pattern.compile("\"put\" : \\{\\s*\"count\" : 200,").matcher(json).find());
+        assertTrue(json, Pattern.compile("\"update\" : \\{\\s*\"count\" : 50,").matcher(json).find());
+        assertTrue(json.contains("\"99.9\""));
+        assertTrue(driver.close());
+    }
+
+    @Test
+    public void requireThatPipelinedFeederDumpsTheSameOperations() throws Throwable {
+        String feed = "<vespafeed>" +
+                      "    <document documenttype='simple' documentid='id:simple:simple::0'>" +
+                      "        <my_str>foo</my_str>" +
+                      "    </document>" +
+                      "    <update documenttype='simple' documentid='id:simple:simple::1'>" +
+                      "        <assign field='my_str'>bar</assign>" +
+                      "    </update>" +
+                      "    <remove documenttype='simple' documentid='id:simple:simple::2'/>" +
+                      "</vespafeed>";
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        assertFeed(new FeederParams().setDumpStream(expected).setDumpFormat(FeederParams.DumpFormat.VESPA),
+                   feed, null, "", "(.+\n)+" + "\\s*\\d+,\\s*3,.+\n");
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        assertFeed(new FeederParams().parseArgs("-n", "2", "--pipelined").setDumpStream(dump).setDumpFormat(FeederParams.DumpFormat.VESPA),
+                   feed, null, "", "(.+\n)+" + "\\s*\\d+,\\s*3,.+\n");
+        assertArrayEquals(expected.toByteArray(), dump.toByteArray());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        assertFeed(new FeederParams().parseArgs("-n", "2", "--pipelined").setDumpStream(json),
+                   new ByteArrayInputStream(dump.toByteArray()), null, "", "(.+\n)+" + "\\s*\\d+,\\s*3,.+\n");
+        assertEquals("[\n{\"id\":\"id:simple:simple::0\",\"fields\":{\"my_str\":\"foo\"}}\n]", json.toString());
+    }
+
+    @Test
+    public void requireThatPipelinedFeederSendsAtMostTheGivenNumberOfOperations() throws Throwable {
+        StringBuilder feed = new StringBuilder("[");
+        for (int i = 0; i < 1000; ++i) {
+            feed.append(i > 0 ? "," : "").append("{\"remove\": \"id:simple:simple::").append(i).append("\"}");
+        }
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        assertFeed(new FeederParams().parseArgs("-n", "3", "--pipelined", "-l", "123").setDumpStream(dump),
+                   feed.append("]").toString(), null, "", "(.+\n)+" + "\\s*\\d+,\\s*123,.+\n");
+    }
+
+    @Test
+    public void requireThatPipelinedFeederReadsOperationsSpanningSeveralReads() throws Throwable {
+        String value = "{\\\"}".repeat(1000);
+        StringBuilder feed = new StringBuilder("[");
+        for (int i = 0; i < 200; ++i) {
+            feed.append(i > 0 ? ",\n" : "").append("{\"put\": \"id:simple:simple::").append(i)
+                .append("\", \"fields\": { \"my_str\": \"").append(value).append("\" }}");
+        }
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        assertFeed(new FeederParams().parseArgs("--pipelined").setDumpStream(dump),
+                   feed.append("]").toString(), null, "", "(.+\n)+" + "\\s*\\d+,\\s*200,.+\n");
+        assertEquals(201, dump.toString(StandardCharsets.UTF_8).split(Pattern.quote(value), -1).length);
+    }
+
+    @Test
+    public void requireThatPipelinedParseFailuresThrowInMainThread() throws Throwable {
+        TestDriver driver = new TestDriver(new FeederParams().parseArgs("--pipelined"),
+                                           "[{\"put\": \"id:simple:simple::0\", \"fields\": {",
+                                           null);
+        try {
+            driver.run();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unexpected end of input inside the operation starting at position 1", e.getMessage());
+        }
+        assertTrue(driver.close());
+    }
+
+    @Test
+    public void requireThatRateLimiterPacesOperationsEvenly() {
+        RateLimiter limiter = new RateLimiter(1000);
+        long first = limiter.acquire();
+        long last = first;
+        for (int i = 1; i <= 50; ++i) {
+            long due = limiter.acquire();
+            assertEquals(first + i * 1_000_000L, due, 1);
+            assertFalse(System.nanoTime() < due);
+            last = due;
+        }
+        assertEquals(50_000_000L, last - first, 50);
+    }
+
     @Test
     public void requireThatParseFailuresThrowInMainThread() throws Throwable {
         TestDriver driver = new TestDriver(new FeederParams(),
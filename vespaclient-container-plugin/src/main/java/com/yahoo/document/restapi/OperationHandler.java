@@ -1,9 +1,12 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.restapi;
 
+import com.yahoo.jdisc.handler.CompletionHandler;
 import com.yahoo.vespaxmlparser.FeedOperation;
 
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract the backend stuff for the REST API, such as retrieving or updating documents.
@@ -30,6 +33,8 @@ public interface OperationHandler {
         public final Optional<String> fieldSet;
         public final Optional<Integer> concurrency;
         public final Optional<String> bucketSpace;
+        public final Optional<Integer> slices;
+        public final Optional<Integer> sliceId;
 
         private VisitOptions(Builder builder) {
             this.cluster = Optional.ofNullable(builder.cluster);
@@ -38,6 +43,8 @@ public interface OperationHandler {
             this.fieldSet = Optional.ofNullable(builder.fieldSet);
             this.concurrency = Optional.ofNullable(builder.concurrency);
             this.bucketSpace = Optional.ofNullable(builder.bucketSpace);
+            this.slices = Optional.ofNullable(builder.slices);
+            this.sliceId = Optional.ofNullable(builder.sliceId);
         }
 
         public static class Builder {
@@ -47,6 +54,8 @@ public interface OperationHandler {
             String fieldSet;
             Integer concurrency;
             String bucketSpace;
+            Integer slices;
+            Integer sliceId;
 
             public Builder cluster(String cluster) {
                 this.cluster = cluster;
@@ -78,6 +87,16 @@ public interface OperationHandler {
                 return this;
             }
 
+            public Builder slices(Integer slices) {
+                this.slices = slices;
+                return this;
+            }
+
+            public Builder sliceId(Integer sliceId) {
+                this.sliceId = sliceId;
+                return this;
+            }
+
             public VisitOptions build() {
                 return new VisitOptions(this);
             }
@@ -88,8 +107,32 @@ public interface OperationHandler {
         }
     }
 
+    /** Receives the documents of a streaming visit as they arrive */
+    interface VisitStream {
+
+        /**
+         * Called with each visited document, as JSON. May be called concurrently from multiple threads.
+         * Visiting is held back until the given handler is completed, and aborted if it fails, so
+         * documents are not visited faster than they can be consumed.
+         *
+         * @param json the document as JSON, which is owned by the stream after this call
+         * @param handler the handler to complete when the document is consumed
+         */
+        void onDocument(byte[] json, CompletionHandler handler);
+
+    }
+
     VisitResult visit(RestUri restUri, String documentSelection, VisitOptions options) throws RestApiException;
 
+    /**
+     * Visits all documents matching the given arguments, passing them to the given stream as they
+     * arrive rather than collecting a page of documents. This returns when visiting is done.
+     *
+     * @return a continuation token if not all matching documents were visited
+     */
+    Optional<String> visit(RestUri restUri, String documentSelection, VisitOptions options,
+                           VisitStream stream) throws RestApiException;
+
     void put(RestUri restUri, FeedOperation data, Optional<String> route) throws RestApiException;
 
     void update(RestUri restUri, FeedOperation data, Optional<String> route) throws RestApiException;
@@ -105,8 +148,39 @@ public interface OperationHandler {
     default Optional<String> get(RestUri restUri, Optional<String> fieldSet, Optional<String> cluster) throws RestApiException {
         return get(restUri, fieldSet);
     }
-    
+
+    /*
+     * The asynchronous variants below complete the returned future when the operation is done, or complete it
+     * exceptionally with a RestApiException if it fails. The default implementations do the synchronous
+     * operation in the calling thread, and return a completed future.
+     */
+
+    default CompletableFuture<Void> putAsync(RestUri restUri, FeedOperation data, Optional<String> route) {
+        return complete(() -> { put(restUri, data, route); return null; });
+    }
+
+    default CompletableFuture<Void> updateAsync(RestUri restUri, FeedOperation data, Optional<String> route) {
+        return complete(() -> { update(restUri, data, route); return null; });
+    }
+
+    default CompletableFuture<Void> deleteAsync(RestUri restUri, String condition, Optional<String> route) {
+        return complete(() -> { delete(restUri, condition, route); return null; });
+    }
+
+    default CompletableFuture<Optional<String>> getAsync(RestUri restUri, Optional<String> fieldSet, Optional<String> cluster) {
+        return complete(() -> get(restUri, fieldSet, cluster));
+    }
+
     /** Called just before this is disposed of */
     default void shutdown() {}
 
+    private static <T> CompletableFuture<T> complete(Callable<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.call());
+        }
+        catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
 }
@@ -8,20 +8,31 @@ import com.yahoo.document.FixedBucketSpaces;
 import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.json.JsonWriter;
 import com.yahoo.document.DocumentPut;
+import com.yahoo.documentapi.AsyncParameters;
+import com.yahoo.documentapi.AsyncSession;
 import com.yahoo.documentapi.DocumentAccess;
 import com.yahoo.documentapi.DocumentAccessException;
+import com.yahoo.documentapi.DocumentResponse;
 import com.yahoo.documentapi.ProgressToken;
+import com.yahoo.documentapi.ResponseHandler;
+import com.yahoo.documentapi.Result;
 import com.yahoo.documentapi.SyncParameters;
 import com.yahoo.documentapi.SyncSession;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
+import com.yahoo.documentapi.messagebus.MessageBusAsyncSession;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.GetDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
 import com.yahoo.documentapi.metrics.DocumentApiMetrics;
 import com.yahoo.documentapi.metrics.DocumentOperationStatus;
 import com.yahoo.documentapi.metrics.DocumentOperationType;
 import com.yahoo.exception.ExceptionUtils;
+import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.vespaclient.ClusterDef;
@@ -33,8 +44,15 @@ import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -73,10 +91,16 @@ public class OperationHandlerImpl implements OperationHandler {
     public static final int VISIT_TIMEOUT_MS = 120000;
     public static final int WANTED_DOCUMENT_COUNT_UPPER_BOUND = 1000; // Approximates the max default size of a bucket
     public static final int CONCURRENCY_UPPER_BOUND = 100;
+    public static final int DEFAULT_MAX_PENDING_OPERATIONS = 1000;
     private final DocumentAccess documentAccess;
     private final DocumentApiMetrics metricsHelper;
     private final ClusterEnumerator clusterEnumerator;
     private final BucketSpaceResolver bucketSpaceResolver;
+    private final int maxPendingOperations;
+    private final Executor responseExecutor;
+    private final AtomicInteger pendingOperations = new AtomicInteger(0);
+    private final Object asyncSessionLock = new Object();
+    private volatile RoutedAsyncSession asyncSession = null;
 
     private static final class SyncSessionFactory extends ResourceFactory<SyncSession> {
         private final DocumentAccess documentAccess;
@@ -89,13 +113,73 @@ public class OperationHandlerImpl implements OperationHandler {
         }
     }
 
+    /**
+     * An asynchronous session which sends each operation to the route given with it, and completes the operations
+     * sent through it as their responses arrive. As a response may arrive before its request id is returned to the sender, each request
+     * id is a rendezvous, where the last of the pending operation and its response to arrive completes the operation.
+     */
+    private static final class RoutedAsyncSession implements ResponseHandler {
+        private final Map<Long, Object> rendezvous = new ConcurrentHashMap<>();
+        private final AsyncSession session;
+
+        RoutedAsyncSession(DocumentAccess documentAccess) {
+            session = documentAccess.createAsyncSession(new AsyncParameters().setResponseHandler(this));
+        }
+
+        Result send(Message message, String route, CompletableFuture<com.yahoo.documentapi.Response> response) {
+            Result result = ((MessageBusAsyncSession) session).send(message, route);
+            if (result.isSuccess()) {
+                meet(result.getRequestId(), response);
+            }
+            return result;
+        }
+
+        @Override
+        public void handleResponse(com.yahoo.documentapi.Response response) {
+            meet(response.getRequestId(), response);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void meet(long requestId, Object arrival) {
+            Object other = rendezvous.putIfAbsent(requestId, arrival);
+            if (other == null) {
+                return;
+            }
+            rendezvous.remove(requestId);
+            if (other instanceof CompletableFuture) {
+                ((CompletableFuture<com.yahoo.documentapi.Response>) other).complete((com.yahoo.documentapi.Response) arrival);
+            } else {
+                ((CompletableFuture<com.yahoo.documentapi.Response>) arrival).complete((com.yahoo.documentapi.Response) other);
+            }
+        }
+    }
+
     private final ConcurrentResourcePool<SyncSession> syncSessions;
 
     public OperationHandlerImpl(DocumentAccess documentAccess, ClusterEnumerator clusterEnumerator,
                                 BucketSpaceResolver bucketSpaceResolver, MetricReceiver metricReceiver) {
+        this(documentAccess, clusterEnumerator, bucketSpaceResolver, metricReceiver, DEFAULT_MAX_PENDING_OPERATIONS);
+    }
+
+    public OperationHandlerImpl(DocumentAccess documentAccess, ClusterEnumerator clusterEnumerator,
+                                BucketSpaceResolver bucketSpaceResolver, MetricReceiver metricReceiver,
+                                int maxPendingOperations) {
+        this(documentAccess, clusterEnumerator, bucketSpaceResolver, metricReceiver, maxPendingOperations,
+             ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param responseExecutor the executor which handles the responses to asynchronous operations, rather than
+     *                         the thread of the session which receives them
+     */
+    public OperationHandlerImpl(DocumentAccess documentAccess, ClusterEnumerator clusterEnumerator,
+                                BucketSpaceResolver bucketSpaceResolver, MetricReceiver metricReceiver,
+                                int maxPendingOperations, Executor responseExecutor) {
         this.documentAccess = documentAccess;
+        this.responseExecutor = responseExecutor;
         this.clusterEnumerator = clusterEnumerator;
         this.bucketSpaceResolver = bucketSpaceResolver;
+        this.maxPendingOperations = maxPendingOperations;
         syncSessions = new ConcurrentResourcePool<>(new SyncSessionFactory(documentAccess));
         metricsHelper = new DocumentApiMetrics(metricReceiver, "documentV1");
     }
@@ -105,6 +189,11 @@ public class OperationHandlerImpl implements OperationHandler {
         for (SyncSession session : syncSessions) {
             session.destroy();
         }
+        synchronized (asyncSessionLock) {
+            if (asyncSession != null) {
+                asyncSession.session.destroy();
+            }
+        }
         documentAccess.shutdown();
     }
 
@@ -140,11 +229,47 @@ public class OperationHandlerImpl implements OperationHandler {
         LocalDataVisitorHandler localDataVisitorHandler = new LocalDataVisitorHandler();
         visitorParameters.setLocalDataHandler(localDataVisitorHandler);
 
-        final VisitorSession visitorSession;
+        VisitorSession visitorSession = createVisitorSession(visitorParameters, restUri);
         try {
-            visitorSession = documentAccess.createVisitorSession(visitorParameters);
+            return doVisit(visitorControlHandler, localDataVisitorHandler, restUri);
+        } finally {
+            visitorSession.destroy();
+        }
+    }
+
+    @Override
+    public Optional<String> visit(RestUri restUri, String documentSelection, VisitOptions options,
+                                  VisitStream stream) throws RestApiException {
+        VisitorParameters visitorParameters = createVisitorParameters(restUri, documentSelection, options);
+        // Visit until done rather than for a page of documents; the stream holds visiting back as needed
+        visitorParameters.setMaxTotalHits(options.wantedDocumentCount.orElse(-1));
+        visitorParameters.setSessionTimeoutMs(-1);
+
+        VisitorControlHandler visitorControlHandler = new VisitorControlHandler();
+        visitorParameters.setControlHandler(visitorControlHandler);
+        visitorParameters.setLocalDataHandler(new StreamingVisitorDataHandler(stream));
+
+        VisitorSession visitorSession = createVisitorSession(visitorParameters, restUri);
+        try {
+            visitorControlHandler.waitUntilDone();
+            throwIfFatalVisitingError(visitorControlHandler, restUri);
+        } catch (InterruptedException e) {
+            throw new RestApiException(Response.createErrorResponse(500, ExceptionUtils.getStackTraceAsString(e), restUri, RestUri.apiErrorCodes.INTERRUPTED));
+        } finally {
+            visitorSession.destroy();
+        }
+        if (visitorControlHandler.getProgress().isFinished()) {
+            return Optional.empty();
+        }
+        return Optional.of(visitorControlHandler.getProgress().serializeToString());
+    }
+
+    private VisitorSession createVisitorSession(VisitorParameters visitorParameters, RestUri restUri) throws RestApiException {
+        try {
+            VisitorSession visitorSession = documentAccess.createVisitorSession(visitorParameters);
             // Not sure if this line is required
-            visitorControlHandler.setSession(visitorSession);
+            visitorParameters.getControlHandler().setSession(visitorSession);
+            return visitorSession;
         } catch (Exception e) {
             throw new RestApiException(Response.createErrorResponse(
                     500,
@@ -152,11 +277,6 @@ public class OperationHandlerImpl implements OperationHandler {
                     restUri,
                     RestUri.apiErrorCodes.VISITOR_ERROR));
         }
-        try {
-            return doVisit(visitorControlHandler, localDataVisitorHandler, restUri);
-        } finally {
-            visitorSession.destroy();
-        }
     }
 
     private static void throwIfFatalVisitingError(VisitorControlHandler handler, RestUri restUri) throws RestApiException {
@@ -315,6 +435,156 @@ public class OperationHandlerImpl implements OperationHandler {
         return get(restUri, Optional.empty());
     }
 
+    @Override
+    public CompletableFuture<Void> putAsync(RestUri restUri, FeedOperation data, Optional<String> route) {
+        Instant startTime = Instant.now();
+        DocumentPut put = new DocumentPut(data.getDocument());
+        put.setCondition(data.getCondition());
+        PutDocumentMessage message = new PutDocumentMessage(put);
+        message.setPriority(DocumentProtocol.Priority.NORMAL_3);
+        return send(message, route, restUri).thenApplyAsync(response -> {
+            checkSuccess(response, DocumentOperationType.PUT, startTime, restUri);
+            return null;
+        }, responseExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(RestUri restUri, FeedOperation data, Optional<String> route) {
+        Instant startTime = Instant.now();
+        UpdateDocumentMessage message = new UpdateDocumentMessage(data.getDocumentUpdate());
+        message.setPriority(DocumentProtocol.Priority.NORMAL_2);
+        return send(message, route, restUri).thenApplyAsync(response -> {
+            checkSuccess(response, DocumentOperationType.UPDATE, startTime, restUri);
+            return null;
+        }, responseExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(RestUri restUri, String condition, Optional<String> route) {
+        Instant startTime = Instant.now();
+        RemoveDocumentMessage message = new RemoveDocumentMessage(new DocumentId(restUri.generateFullId()));
+        if (condition != null && ! condition.isEmpty()) {
+            message.setCondition(new TestAndSetCondition(condition));
+        }
+        return send(message, route, restUri).thenApplyAsync(response -> {
+            checkSuccess(response, DocumentOperationType.REMOVE, startTime, restUri);
+            return null;
+        }, responseExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> getAsync(RestUri restUri, Optional<String> fieldSet, Optional<String> cluster) {
+        Instant startTime = Instant.now();
+        Optional<String> route;
+        try {
+            route = cluster.isPresent()
+                    ? Optional.of(clusterDefToRoute(resolveClusterDef(cluster, clusterEnumerator.enumerateClusters())))
+                    : Optional.empty();
+        } catch (RestApiException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        DocumentId id = new DocumentId(restUri.generateFullId());
+        GetDocumentMessage message = new GetDocumentMessage(id, fieldSet.orElse(restUri.getDocumentType() + ":[document]"));
+        message.setPriority(DocumentProtocol.Priority.NORMAL_1);
+        return send(message, route, restUri).thenApplyAsync(response -> {
+            if ( ! response.isSuccess()) {
+                Response errorResponse = Response.createErrorResponse(500, response.getTextMessage(), restUri, RestUri.apiErrorCodes.UNSPECIFIED);
+                metricsHelper.reportFailure(DocumentOperationType.GET, DocumentOperationStatus.fromHttpStatusCode(errorResponse.getStatus()));
+                throw new CompletionException(new RestApiException(errorResponse));
+            }
+            metricsHelper.reportSuccessful(DocumentOperationType.GET, startTime);
+            Document document = ((DocumentResponse) response).getDocument();
+            if (document == null) {
+                return Optional.empty();
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            new JsonWriter(outputStream).write(document);
+            return Optional.of(new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        }, responseExecutor);
+    }
+
+    /** Returns the asynchronous session used for all operations, which is created on first use */
+    private RoutedAsyncSession asyncSession() {
+        RoutedAsyncSession session = asyncSession;
+        if (session != null) {
+            return session;
+        }
+        synchronized (asyncSessionLock) {
+            if (asyncSession == null) {
+                asyncSession = new RoutedAsyncSession(documentAccess);
+            }
+            return asyncSession;
+        }
+    }
+
+    /**
+     * Sends the given message to the given route on the asynchronous session, unless too many operations are
+     * pending already, and returns the future response. This completes exceptionally with a 429 if the
+     * message is not sent because of too many pending operations, or with a 400 if it is not sent for some
+     * other reason. Responses are delivered in the thread of the session, so callers must handle them
+     * in the response executor.
+     */
+    private CompletableFuture<com.yahoo.documentapi.Response> send(Message message, Optional<String> route, RestUri restUri) {
+        if (pendingOperations.incrementAndGet() > maxPendingOperations) {
+            pendingOperations.decrementAndGet();
+            return CompletableFuture.failedFuture(tooManyPendingOperations(restUri));
+        }
+        CompletableFuture<com.yahoo.documentapi.Response> response = new CompletableFuture<>();
+        response.whenComplete((ignored, failure) -> pendingOperations.decrementAndGet());
+        try {
+            RoutedAsyncSession session = asyncSession();
+            if ( ! (session.session instanceof MessageBusAsyncSession)) {
+                response.completeExceptionally(new RestApiException(Response.createErrorResponse(
+                        400, "Can not set route since the API is not using message bus.",
+                        RestUri.apiErrorCodes.NO_ROUTE_WHEN_NOT_PART_OF_MESSAGEBUS)));
+                return response;
+            }
+            Result result = session.send(message, route.orElse("default"), response);
+            if (result.type() == Result.ResultType.TRANSIENT_ERROR) {
+                response.completeExceptionally(tooManyPendingOperations(restUri));
+            } else if ( ! result.isSuccess()) {
+                response.completeExceptionally(new RestApiException(Response.createErrorResponse(
+                        400, result.getError().toString(), restUri, RestUri.apiErrorCodes.DOCUMENT_EXCEPTION)));
+            }
+        } catch (Exception e) {
+            response.completeExceptionally(new RestApiException(Response.createErrorResponse(
+                    500, ExceptionUtils.getStackTraceAsString(e), restUri, RestUri.apiErrorCodes.INTERNAL_EXCEPTION)));
+        }
+        return response;
+    }
+
+    private static RestApiException tooManyPendingOperations(RestUri restUri) {
+        return new RestApiException(Response.createErrorResponse(429 /* Too Many Requests */,
+                                                                 "Too many pending operations. Please try again later.",
+                                                                 restUri,
+                                                                 RestUri.apiErrorCodes.TOO_MANY_PARALLEL_REQUESTS));
+    }
+
+    /** Reports metrics for the given response to a feed operation, and throws if it is a failure */
+    private void checkSuccess(com.yahoo.documentapi.Response response, DocumentOperationType type,
+                              Instant startTime, RestUri restUri) {
+        if (response.isSuccess()) {
+            metricsHelper.reportSuccessful(type, startTime);
+            return;
+        }
+        Response errorResponse;
+        if (response.getOutcome() == com.yahoo.documentapi.Response.Outcome.CONDITION_FAILED) {
+            errorResponse = Response.createErrorResponse(HTTP_PRECONDITION_FAILED,
+                                                         type == DocumentOperationType.REMOVE
+                                                         ? "Condition not met: " + response.getTextMessage()
+                                                         : "Condition did not match document.",
+                                                         restUri, RestUri.apiErrorCodes.DOCUMENT_CONDITION_NOT_MET);
+        } else if (response.getOutcome() == com.yahoo.documentapi.Response.Outcome.INSUFFICIENT_STORAGE) {
+            errorResponse = Response.createErrorResponse(HTTP_STATUS_INSUFFICIENT_STORAGE, response.getTextMessage(),
+                                                         restUri, RestUri.apiErrorCodes.DOCUMENT_EXCEPTION);
+        } else {
+            errorResponse = Response.createErrorResponse(HTTP_STATUS_BAD_REQUEST, response.getTextMessage(),
+                                                         restUri, RestUri.apiErrorCodes.DOCUMENT_EXCEPTION);
+        }
+        metricsHelper.reportFailure(type, DocumentOperationStatus.fromHttpStatusCode(errorResponse.getStatus()));
+        throw new CompletionException(new RestApiException(errorResponse));
+    }
+
     private static boolean isValidBucketSpace(String spaceName) {
         // TODO need bucket space repo in Java as well
         return (FixedBucketSpaces.defaultSpace().equals(spaceName)
@@ -446,6 +716,10 @@ public class OperationHandlerImpl implements OperationHandler {
         params.setPriority(DocumentProtocol.Priority.NORMAL_4);
         params.setVisitRemoves(false);
 
+        if (options.slices.isPresent()) {
+            params.slice(options.slices.get(), options.sliceId.orElse(0));
+        }
+
         if (options.continuation.isPresent()) {
             try {
                 params.setResumeToken(ProgressToken.fromSerializedString(options.continuation.get()));
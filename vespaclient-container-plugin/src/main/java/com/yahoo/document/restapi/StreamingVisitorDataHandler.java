@@ -0,0 +1,49 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.restapi;
+
+import com.yahoo.document.json.JsonWriter;
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.VisitorDataHandler;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.messagebus.Message;
+
+/**
+ * Passes visited documents on to a {@link OperationHandler.VisitStream}, and acks each one only once
+ * the stream has consumed it. The storage nodes stop sending documents when too many are not acked,
+ * so this bounds the documents held in memory by the visit, no matter how many are visited.
+ */
+class StreamingVisitorDataHandler extends VisitorDataHandler {
+
+    private final OperationHandler.VisitStream stream;
+
+    StreamingVisitorDataHandler(OperationHandler.VisitStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public void onMessage(Message m, AckToken token) {
+        byte[] json;
+        if (m instanceof PutDocumentMessage) {
+            json = JsonWriter.toByteArray(((PutDocumentMessage)m).getDocumentPut().getDocument());
+        } else if (m instanceof RemoveDocumentMessage) {
+            json = JsonWriter.documentRemove(((RemoveDocumentMessage)m).getDocumentId());
+        } else {
+            throw new UnsupportedOperationException("Received unsupported message " + m + " to streaming visitor data handler. " +
+                                                    "This handler only accepts Put and Remove");
+        }
+        stream.onDocument(json, new CompletionHandler() {
+            @Override
+            public void completed() {
+                ack(token);
+            }
+
+            @Override
+            public void failed(Throwable t) {
+                session.abort();
+            }
+        });
+    }
+
+}
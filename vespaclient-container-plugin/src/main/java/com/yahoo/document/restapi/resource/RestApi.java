@@ -8,6 +8,7 @@ import com.google.inject.Inject;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yahoo.cloud.config.ClusterListConfig;
 import com.yahoo.container.handler.ThreadpoolConfig;
+import com.yahoo.container.jdisc.AsyncHttpResponse;
 import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.LoggingRequestHandler;
@@ -27,6 +28,8 @@ import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
 import com.yahoo.documentapi.messagebus.MessageBusParams;
 import com.yahoo.documentapi.messagebus.loadtypes.LoadTypeSet;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
 import java.util.logging.Level;
 import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.text.Text;
@@ -38,12 +41,16 @@ import com.yahoo.vespaxmlparser.DocumentFeedOperation;
 import com.yahoo.vespaxmlparser.FeedOperation;
 import com.yahoo.yolean.Exceptions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -70,6 +77,9 @@ public class RestApi extends LoggingRequestHandler {
     private static final String FIELD_SET = "fieldSet";
     private static final String CONCURRENCY = "concurrency";
     private static final String BUCKET_SPACE = "bucketSpace";
+    private static final String SLICES = "slices";
+    private static final String SLICE_ID = "sliceId";
+    private static final String STREAM = "stream";
     private static final String APPLICATION_JSON = "application/json";
     private final OperationHandler operationHandler;
     private SingleDocumentParser singleDocumentParser;
@@ -81,13 +91,15 @@ public class RestApi extends LoggingRequestHandler {
                    LoadTypeConfig loadTypeConfig, ThreadpoolConfig threadpoolConfig,
                    AllClustersBucketSpacesConfig bucketSpacesConfig,
                    ClusterListConfig clusterListConfig, MetricReceiver metricReceiver) {
-        super(parentCtx);
+        super(parentCtx, true);
         MessageBusParams params = new MessageBusParams(new LoadTypeSet(loadTypeConfig));
         params.setDocumentmanagerConfig(documentManagerConfig);
         this.operationHandler = new OperationHandlerImpl(new MessageBusDocumentAccess(params),
                                                         fixedClusterEnumeratorFromConfig(clusterListConfig),
                                                         fixedBucketSpaceResolverFromConfig(bucketSpacesConfig),
-                                                        metricReceiver);
+                                                        metricReceiver,
+                                                        OperationHandlerImpl.DEFAULT_MAX_PENDING_OPERATIONS,
+                                                        parentCtx.getExecutor());
         this.singleDocumentParser = new SingleDocumentParser(new DocumentTypeManager(documentManagerConfig));
         // 40% of the threads can be blocked before we deny requests.
         if (threadpoolConfig != null) {
@@ -100,7 +112,7 @@ public class RestApi extends LoggingRequestHandler {
 
     // For testing and development
     RestApi(Executor executor, AccessLog accessLog, OperationHandler operationHandler, int threadsAvailable) {
-        super(executor, accessLog, null);
+        super(executor, accessLog, null, true);
         this.operationHandler = operationHandler;
         this.threadsAvailableForApi = new AtomicInteger(threadsAvailable);
     }
@@ -209,38 +221,47 @@ public class RestApi extends LoggingRequestHandler {
             String condition = request.getProperty(CONDITION_PARAMETER_NAME);
             Optional<String> route = Optional.ofNullable(nonEmpty(request.getProperty(ROUTE_PARAMETER_NAME), ROUTE_PARAMETER_NAME));
 
-            Optional<ObjectNode> resultJson = Optional.empty();
+            CompletableFuture<Void> operation;
             switch (request.getMethod()) {
                 case GET:    // Vespa Visit/Get
                     return isVisitRequestUri(restUri) ? handleVisit(restUri, request) : handleGet(restUri, request);
                 case POST:   // Vespa Put
-                    operationHandler.put(restUri, createPutOperation(request, restUri.generateFullId(), condition), route);
+                    operation = operationHandler.putAsync(restUri, createPutOperation(request, restUri.generateFullId(), condition), route);
                     break;
                 case PUT:    // Vespa Update
-                    operationHandler.update(restUri, createUpdateOperation(request, restUri.generateFullId(), condition, create), route);
+                    operation = operationHandler.updateAsync(restUri, createUpdateOperation(request, restUri.generateFullId(), condition, create), route);
                     break;
                 case DELETE: // Vespa Delete
-                    operationHandler.delete(restUri, condition, route);
+                    operation = operationHandler.deleteAsync(restUri, condition, route);
                     break;
                 default:
                     return new Response(405, Optional.empty(), Optional.of(restUri));
             }
-            return new Response(200, resultJson, Optional.of(restUri));
+            RestUri operationUri = restUri;
+            return new PendingOperationResponse(operation.thenApply(ignored -> new Response(200, Optional.empty(), Optional.of(operationUri))),
+                                                restUri);
         }
-        catch (RestApiException e) {
-            return e.getResponse();
+        catch (RestApiException | RuntimeException e) {
+            return errorResponse(e, restUri);
         }
-        catch (IllegalArgumentException userException) {
-            return Response.createErrorResponse(400, Exceptions.toMessageString(userException),
-                                                restUri,
-                                                RestUri.apiErrorCodes.PARSER_ERROR);
+    }
+
+    private HttpResponse errorResponse(Throwable failure, RestUri restUri) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
         }
-        catch (RuntimeException systemException) {
-            log.log(Level.WARNING, "Internal runtime exception during Document V1 request handling", systemException);
-            return Response.createErrorResponse(500, Exceptions.toMessageString(systemException),
+        if (failure instanceof RestApiException) {
+            return ((RestApiException) failure).getResponse();
+        }
+        if (failure instanceof IllegalArgumentException) {
+            return Response.createErrorResponse(400, Exceptions.toMessageString(failure),
                                                 restUri,
-                                                RestUri.apiErrorCodes.UNSPECIFIED);
+                                                RestUri.apiErrorCodes.PARSER_ERROR);
         }
+        log.log(Level.WARNING, "Internal runtime exception during Document V1 request handling", failure);
+        return Response.createErrorResponse(500, Exceptions.toMessageString(failure),
+                                            restUri,
+                                            RestUri.apiErrorCodes.UNSPECIFIED);
     }
 
     private FeedOperation createPutOperation(HttpRequest request, String id, String condition) {
@@ -260,10 +281,15 @@ public class RestApi extends LoggingRequestHandler {
         return update;
     }
 
-    private HttpResponse handleGet(RestUri restUri, HttpRequest request) throws RestApiException {
+    private HttpResponse handleGet(RestUri restUri, HttpRequest request) {
         final Optional<String> fieldSet = requestProperty(FIELD_SET, request);
         final Optional<String> cluster  = requestProperty(CLUSTER, request);
-        final Optional<String> getDocument = operationHandler.get(restUri, fieldSet, cluster);
+        return new PendingOperationResponse(operationHandler.getAsync(restUri, fieldSet, cluster)
+                                                            .thenApply(getDocument -> createGetResponse(restUri, getDocument)),
+                                            restUri);
+    }
+
+    private HttpResponse createGetResponse(RestUri restUri, Optional<String> getDocument) {
         final ObjectNode resultNode = mapper.createObjectNode();
         if (getDocument.isPresent()) {
             final JsonNode parseNode;
@@ -316,6 +342,22 @@ public class RestApi extends LoggingRequestHandler {
         }
     }
 
+    private static Optional<Integer> parseNonNegativeIntegerRequestParameter(String parameter, HttpRequest request) {
+        Optional<String> property = requestProperty(parameter, request);
+        if (!property.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            int parsed = Integer.parseInt(property.get());
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Parsed number was negative");
+            }
+            return Optional.of(parsed);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestParameterException(parameter, "Expected non-negative integer");
+        }
+    }
+
     private static OperationHandler.VisitOptions visitOptionsFromRequest(HttpRequest request) {
         final OperationHandler.VisitOptions.Builder optionsBuilder = OperationHandler.VisitOptions.builder();
 
@@ -326,6 +368,14 @@ public class RestApi extends LoggingRequestHandler {
         parsePositiveIntegerRequestParameter(WANTED_DOCUMENT_COUNT, request).ifPresent(c -> optionsBuilder.wantedDocumentCount(c));
         parsePositiveIntegerRequestParameter(CONCURRENCY, request).ifPresent(c -> optionsBuilder.concurrency(c));
 
+        Optional<Integer> slices = parsePositiveIntegerRequestParameter(SLICES, request);
+        Optional<Integer> sliceId = parseNonNegativeIntegerRequestParameter(SLICE_ID, request);
+        if (sliceId.isPresent() && sliceId.get() >= slices.orElse(1)) {
+            throw new BadRequestParameterException(SLICE_ID, "Expected slice id less than '" + SLICES + "'");
+        }
+        slices.ifPresent(s -> optionsBuilder.slices(s));
+        sliceId.ifPresent(s -> optionsBuilder.sliceId(s));
+
         return optionsBuilder.build();
     }
 
@@ -414,6 +464,9 @@ public class RestApi extends LoggingRequestHandler {
         } catch (BadRequestParameterException e) {
             return createInvalidParameterResponse(e.getParameter(), e.getMessage());
         }
+        if (parseBoolean(STREAM, request).orElse(false)) {
+            return new StreamingVisitResponse(restUri, documentSelection, options);
+        }
         OperationHandler.VisitResult visit = operationHandler.visit(restUri, documentSelection, options);
         ObjectNode resultNode = mapper.createObjectNode();
         visit.token.ifPresent(t -> resultNode.put(CONTINUATION, t));
@@ -434,4 +487,117 @@ public class RestApi extends LoggingRequestHandler {
         };
         return httpResponse;
     }
+
+    /**
+     * Renders the documents of a visit as they arrive, with the same format as a single page of a visit,
+     * where the continuation token, if any, follows the documents. Nothing is written until the first
+     * document arrives, so errors before that are returned as ordinary error responses, while errors
+     * after that are rendered after the documents.
+     */
+    private class StreamingVisitResponse extends AsyncHttpResponse implements OperationHandler.VisitStream {
+
+        private final RestUri restUri;
+        private final String documentSelection;
+        private final OperationHandler.VisitOptions options;
+        private final Object monitor = new Object();
+        private ContentChannel channel = null;
+        private boolean hasDocuments = false;
+
+        StreamingVisitResponse(RestUri restUri, String documentSelection, OperationHandler.VisitOptions options) {
+            super(200);
+            this.restUri = restUri;
+            this.documentSelection = documentSelection;
+            this.options = options;
+        }
+
+        @Override
+        public String getContentType() { return APPLICATION_JSON; }
+
+        @Override
+        public void render(OutputStream output, ContentChannel networkChannel, CompletionHandler handler) throws IOException {
+            try {
+                synchronized (monitor) {
+                    channel = networkChannel;
+                }
+                ObjectNode trailer = mapper.createObjectNode();
+                try {
+                    operationHandler.visit(restUri, documentSelection, options, this)
+                                    .ifPresent(token -> trailer.put(CONTINUATION, token));
+                } catch (RestApiException e) {
+                    synchronized (monitor) {
+                        if ( ! hasDocuments) { // nothing is written yet, so we may still return the error response
+                            setStatus(e.getResponse().getStatus());
+                            e.getResponse().render(output);
+                            output.flush();
+                            return;
+                        }
+                    }
+                    ByteArrayOutputStream error = new ByteArrayOutputStream();
+                    e.getResponse().render(error);
+                    trailer.setAll((ObjectNode) mapper.readTree(error.toByteArray()));
+                }
+                synchronized (monitor) {
+                    String json = hasDocuments ? "]," : "{\"" + DOCUMENTS + "\":[],";
+                    trailer.put(PATH_NAME, restUri.getRawPath());
+                    String fields = trailer.toString();
+                    json += fields.substring(1); // the fields of the trailer, with the closing brace
+                    networkChannel.write(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), null);
+                }
+            } finally {
+                networkChannel.close(handler);
+            }
+        }
+
+        @Override
+        public void onDocument(byte[] json, CompletionHandler handler) {
+            synchronized (monitor) {
+                byte[] separator = hasDocuments ? COMMA : DOCUMENTS_START;
+                hasDocuments = true;
+                channel.write(ByteBuffer.wrap(separator), null);
+                channel.write(ByteBuffer.wrap(json), handler);
+            }
+        }
+
+    }
+
+    /**
+     * The response to an operation on a single document, which is rendered when the operation completes,
+     * in the thread completing it, so no request handler thread waits for the operation.
+     */
+    private class PendingOperationResponse extends AsyncHttpResponse {
+
+        private final CompletableFuture<HttpResponse> response;
+        private final RestUri restUri;
+
+        PendingOperationResponse(CompletableFuture<HttpResponse> response, RestUri restUri) {
+            super(200);
+            this.response = response;
+            this.restUri = restUri;
+        }
+
+        @Override
+        public String getContentType() { return APPLICATION_JSON; }
+
+        @Override
+        public void render(OutputStream output, ContentChannel networkChannel, CompletionHandler handler) {
+            response.whenComplete((completed, failure) -> {
+                try {
+                    HttpResponse httpResponse = failure == null ? completed : errorResponse(failure, restUri);
+                    setStatus(httpResponse.getStatus());
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    httpResponse.render(buffer);
+                    networkChannel.write(ByteBuffer.wrap(buffer.toByteArray()), null);
+                } catch (IOException | RuntimeException e) {
+                    log.log(Level.WARNING, "Failed rendering Document V1 response", e);
+                } finally {
+                    networkChannel.close(handler);
+                }
+            });
+        }
+
+    }
+
+    private static final byte[] COMMA = { ',' };
+    private static final byte[] DOCUMENTS_START = ("{\"" + DOCUMENTS + "\":[").getBytes(StandardCharsets.UTF_8);
+
 }
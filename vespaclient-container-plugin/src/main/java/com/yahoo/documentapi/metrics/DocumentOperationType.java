@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.documentapi.metrics;
 
+import com.yahoo.documentapi.messagebus.protocol.GetDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
@@ -11,7 +12,7 @@ import com.yahoo.messagebus.Message;
  */
 public enum DocumentOperationType {
 
-    PUT, REMOVE, UPDATE, ERROR;
+    PUT, REMOVE, UPDATE, GET, ERROR;
 
     public static DocumentOperationType fromMessage(Message msg) {
         if (msg instanceof PutDocumentMessage) {
@@ -20,6 +21,8 @@ public enum DocumentOperationType {
             return REMOVE;
         } else if (msg instanceof UpdateDocumentMessage) {
             return UPDATE;
+        } else if (msg instanceof GetDocumentMessage) {
+            return GET;
         } else {
             return ERROR;
         }
@@ -10,6 +10,7 @@ import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.ReferencedResource;
 import java.util.logging.Level;
 import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Reply;
 import com.yahoo.messagebus.ReplyHandler;
 import com.yahoo.messagebus.Result;
 import com.yahoo.messagebus.shared.SharedSourceSession;
@@ -20,13 +21,24 @@ import com.yahoo.vespa.http.client.core.OperationStatus;
 import com.yahoo.vespaxmlparser.FeedOperation;
 import com.yahoo.yolean.Exceptions;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -39,17 +51,30 @@ import static com.yahoo.messagebus.ErrorCode.SEND_QUEUE_FULL;
  * avoid using a threadpool that has no effect with all the extra that comes with it. V2 has one instance per thread
  * on the client, while this is one instance for all threads.
  *
+ * No thread waits for messagebus: The request thread reads the operations of a request, queues them for
+ * sending, and returns a response which is rendered asynchronously. Queued operations are sent by whichever
+ * thread finds them ready to send, i.e., parser threads, messagebus reply threads, and a retry timer when
+ * messagebus has no capacity. Replies are written to an open response of the client as they arrive, and each
+ * response is completed when all the operations of its request are handed to messagebus. The number of operations
+ * read but not yet sent is bounded: when the bound is reached, requests are rejected if they ask to be denied when
+ * busy, and otherwise reading of the request is held back until operations are sent.
+ *
  * @author dybis
  */
 class ClientFeederV3 {
 
     protected static final Logger log = Logger.getLogger(ClientFeederV3.class.getName());
+    // How long to wait before trying to send again when messagebus is full, unless a reply arrives first.
+    private static final long RETRY_DELAY_MILLIS = 100;
+    // The max number of operations of a client which are read but not yet sent, which bounds the memory they use.
+    static final int MAX_QUEUED_OPERATIONS = 1024;
     // This is for all clients on this gateway, for load balancing from client.
     private final static AtomicInteger outstandingOperations = new AtomicInteger(0);
     private final BlockingQueue<OperationStatus> feedReplies = new LinkedBlockingQueue<>();
     private final ReferencedResource<SharedSourceSession> sourceSession;
     private final String clientId;
     private final ReplyHandler feedReplyHandler;
+    private final ReplyHandler replyHandler = this::handleReply;
     private final Metric metric;
     private Instant prevOpsPerSecTime = Instant.now();
     private double operationsForOpsPerSec = 0d;
@@ -58,7 +83,23 @@ class ClientFeederV3 {
     private final AtomicInteger ongoingRequests = new AtomicInteger(0);
     private final String hostName;
     private final AtomicInteger threadsAvailableForFeeding;
-
+    private final Executor parserExecutor;
+    private final ScheduledExecutorService retryExecutor;
+    // The operations of all requests, in the order they were read, which is the order they are sent in.
+    private final Deque<PendingOperation> sendQueue = new ArrayDeque<>();
+    // Permits to add an operation to the send queue, which are returned when it is removed.
+    private final Semaphore queueCapacity;
+    // The requests with open responses which replies are written to. Guarded by itself.
+    private final Deque<RequestFeed> openFeeds = new ArrayDeque<>();
+    private final AtomicInteger sendRequests = new AtomicInteger(0);
+    private final AtomicBoolean retryScheduled = new AtomicBoolean(false);
+
+    /**
+     * @param parserExecutor the executor used to parse operations. Operations are still sent in the order they
+     *                       arrive in, so this may be any executor, including one running tasks in the caller
+     * @param retryExecutor the executor used to retry sending when messagebus is full and no reply arrives
+     * @param maxQueuedOperations the max number of operations which are read but not yet sent
+     */
     ClientFeederV3(
             ReferencedResource<SharedSourceSession> sourceSession,
             FeedReaderFactory feedReaderFactory,
@@ -66,7 +107,13 @@ class ClientFeederV3 {
             String clientId,
             Metric metric,
             ReplyHandler feedReplyHandler,
-            AtomicInteger threadsAvailableForFeeding) {
+            AtomicInteger threadsAvailableForFeeding,
+            Executor parserExecutor,
+            ScheduledExecutorService retryExecutor,
+            int maxQueuedOperations) {
+        this.parserExecutor = parserExecutor;
+        this.queueCapacity = new Semaphore(maxQueuedOperations);
+        this.retryExecutor = retryExecutor;
         this.sourceSession = sourceSession;
         this.clientId = clientId;
         this.feedReplyHandler = feedReplyHandler;
@@ -94,63 +141,67 @@ class ClientFeederV3 {
         sourceSession.getReference().close();
     }
 
-    private void transferPreviousRepliesToResponse(BlockingQueue<OperationStatus> operations) throws InterruptedException {
+    /** Moves the replies received so far to the given response. The caller must hold the openFeeds lock. */
+    private void transferPreviousRepliesToResponse(FeedResponse response) {
         OperationStatus status = feedReplies.poll();
         while (status != null) {
             outstandingOperations.decrementAndGet();
-            operations.put(status);
+            response.add(status);
             status = feedReplies.poll();
         }
     }
 
     public HttpResponse handleRequest(HttpRequest request) throws IOException {
         threadsAvailableForFeeding.decrementAndGet();
-        ongoingRequests.incrementAndGet();
         try {
             FeederSettings feederSettings = new FeederSettings(request);
             /*
              * The gateway handle overload from clients in different ways.
              *
-             * If the backend is overloaded, but not the gateway, it will fill the backend, messagebus throttler
-             * will start to block new documents and finally all threadsAvailableForFeeding will be blocking.
-             * However, as more threads are added, the gateway will not block on messagebus but return
-             * transitive errors on the documents that can not be processed. These errors will cause the client(s) to
-             * back off a bit.
+             * If the backend is overloaded, but not the gateway, it will fill the backend, and messagebus throttler
+             * will start to reject new documents. These are then queued until there is capacity, and the
+             * responses to the requests containing them are held open, which makes the client(s) back off.
+             * If a request asks to be denied if busy, and threadsAvailableForFeeding is exhausted, its documents are
+             * instead given transitive errors, which also cause the client(s) to back off a bit.
              *
              * However, we can also have the case that the gateway becomes the bottleneck (e.g. CPU). In this case
              * we need to stop processing of new messages as early as possible and reject the request. This
              * will cause the client(s) to back off for a while. We want some slack before we enter this mode.
              * If we can simply transitively fail each document, it is nicer. Therefor we allow some threads to be
-             * busy processing requests with transitive errors before entering this mode. Since we already
-             * have flooded the backend, have several threads hanging and waiting for capacity, the number should
-             * not be very large. Too much slack can lead to too many threads handling feed and impacting query traffic.
-             * We try 10 for now. This should only kick in with very massive feeding to few gateway nodes.
+             * busy reading requests before entering this mode. Too much slack can lead to too many threads
+             * handling feed and impacting query traffic. We try 10 for now. This should only kick in with very
+             * massive feeding to few gateway nodes.
              */
             if (feederSettings.denyIfBusy && threadsAvailableForFeeding.get() < -10) {
                 return new ErrorHttpResponse(getOverloadReturnCode(request), "Gateway overloaded");
             }
+            // Likewise, if operations are read faster than they can be sent, the queue of them is bounded.
+            if (feederSettings.denyIfBusy && queueCapacity.availablePermits() == 0) {
+                return new ErrorHttpResponse(getOverloadReturnCode(request), "Gateway overloaded, too many operations queued");
+            }
 
             InputStream inputStream = StreamReaderV3.unzipStreamIfNeeded(request);
-            BlockingQueue<OperationStatus> replies = new LinkedBlockingQueue<>();
-            try {
-                feed(feederSettings, inputStream, replies, threadsAvailableForFeeding);
-                synchronized (monitor) {
-                    // Handshake requests do not have DATA_FORMAT, we do not want to give responses to
-                    // handshakes as it won't be processed by the client.
-                    if (request.getJDiscRequest().headers().get(Headers.DATA_FORMAT) != null) {
-                        transferPreviousRepliesToResponse(replies);
-                    }
+            // Handshake requests do not have DATA_FORMAT, we do not want to give responses to
+            // handshakes as it won't be processed by the client.
+            boolean receivesReplies = request.getJDiscRequest().headers().get(Headers.DATA_FORMAT) != null;
+            RequestFeed feed = new RequestFeed(new FeedResponse(200, 3, clientId, outstandingOperations.get(), hostName),
+                                               feederSettings);
+            ongoingRequests.incrementAndGet();
+            if (receivesReplies) {
+                synchronized (openFeeds) {
+                    openFeeds.addLast(feed);
+                    transferPreviousRepliesToResponse(feed.response);
                 }
-            } catch (InterruptedException e) {
-                // NOP, just terminate
+            }
+            try {
+                feed(feed, inputStream);
             } catch (Throwable e) {
                 log.log(Level.WARNING, "Unhandled exception while feeding: " + Exceptions.toMessageString(e), e);
             } finally {
-                replies.add(createOperationStatus("-", "-", ErrorCode.END_OF_FEED, false, null));
+                feed.allRead();
             }
-            return new FeedResponse(200, replies, 3, clientId, outstandingOperations.get(), hostName);
+            return feed.response;
         } finally {
-            ongoingRequests.decrementAndGet();
             threadsAvailableForFeeding.incrementAndGet();
         }
     }
@@ -162,110 +213,204 @@ class ClientFeederV3 {
         return 429;
     }
 
-    private Optional<DocumentOperationMessageV3> pullMessageFromRequest(
-            FeederSettings settings, InputStream requestInputStream, BlockingQueue<OperationStatus> repliesFromOldMessages) {
-        while (true) {
-            Optional<String> operationId;
-            try {
-                operationId = streamReaderV3.getNextOperationId(requestInputStream);
-            } catch (IOException ioe) {
-                if (log.isLoggable(Level.FINE)) {
-                    log.log(Level.FINE, Exceptions.toMessageString(ioe), ioe);
-                }
-                return Optional.empty();
-            }
-            if (! operationId.isPresent()) {
-                return Optional.empty();
+    /**
+     * Reads the next operation from the stream, queues it for sending, and starts parsing it using the parser
+     * executor. Returns false at the end of the stream. When the send queue is full, this waits for operations
+     * to be sent before reading the operation, which holds back the client.
+     */
+    private boolean pullMessageFromRequest(RequestFeed feed, InputStream requestInputStream) throws InterruptedException {
+        String operationId;
+        byte[] operation;
+        try {
+            Optional<String> nextOperationId = streamReaderV3.getNextOperationId(requestInputStream);
+            if (nextOperationId.isEmpty()) {
+                return false;
             }
+            operationId = nextOperationId.get();
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Failed reading the next operation id from client " + clientId + ": " +
+                                   Exceptions.toMessageString(e));
+            return false;
+        }
+        queueCapacity.acquire();
+        try {
+            operation = streamReaderV3.getNextOperationBytes(requestInputStream);
+        } catch (IOException | RuntimeException e) {
+            queueCapacity.release();
+            log.log(Level.WARNING, "Failed reading operation " + operationId + " from client " + clientId + ": " +
+                                   Exceptions.toMessageString(e));
+            feed.response.add(new OperationStatus(
+                    Exceptions.toMessageString(e), operationId, ErrorCode.ERROR, false, ""));
+            return false;
+        }
 
-            DocumentOperationMessageV3 message;
+        PendingOperation pending = new PendingOperation(operationId, feed);
+        feed.added();
+        synchronized (sendQueue) {
+            sendQueue.addLast(pending);
+        }
+        parserExecutor.execute(() -> {
             try {
-                message = getNextMessage(operationId.get(), requestInputStream, settings);
-            } catch (Exception e) {
-                if (log.isLoggable(Level.WARNING)) {
-                    log.log(Level.WARNING, Exceptions.toMessageString(e));
+                DocumentOperationMessageV3 message = getNextMessage(operationId, new ByteArrayInputStream(operation), feed.settings);
+                if (message != null) {
+                    setRoute(message, feed.settings);
+                    setMessageParameters(message, feed.settings);
                 }
-                metric.add(MetricNames.PARSE_ERROR, 1, null);
+                pending.message.complete(message);
+            } catch (Throwable e) {
+                pending.message.completeExceptionally(e);
+            }
+            sendQueued();
+        });
+        return true;
+    }
 
-                repliesFromOldMessages.add(new OperationStatus(
-                        Exceptions.toMessageString(e), operationId.get(), ErrorCode.ERROR, false, ""));
+    private void addParseError(PendingOperation operation, Throwable e) {
+        if (log.isLoggable(Level.WARNING)) {
+            log.log(Level.WARNING, Exceptions.toMessageString(e));
+        }
+        metric.add(MetricNames.PARSE_ERROR, 1, null);
 
-                continue;
-            }
-            if (message != null)
-                setRoute(message, settings);
-            return Optional.ofNullable(message);
+        operation.feed.response.add(new OperationStatus(
+                Exceptions.toMessageString(e), operation.operationId, ErrorCode.ERROR, false, ""));
+    }
+
+    /**
+     * Reads all operations from the stream and queues them for sending in stream order, which keeps the order of
+     * operations to the same document. Operations are parsed concurrently by the parser executor, and the ones
+     * at the head of the queue are sent as soon as they are parsed.
+     */
+    private void feed(RequestFeed feed, InputStream requestInputStream) {
+        try {
+            while (pullMessageFromRequest(feed, requestInputStream)) { }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private Result sendMessage(FeederSettings settings,
-                               DocumentOperationMessageV3 msg,
-                               AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
-        Result result = null;
-        while (result == null || result.getError().getCode() == SEND_QUEUE_FULL) {
-            msg.getMessage().pushHandler(feedReplyHandler);
+    /**
+     * Sends queued operations, in order, until the queue is empty, the next operation is not yet parsed,
+     * or messagebus is full. Any thread may call this whenever one of these may have changed. Only one
+     * thread sends at a time; calls made meanwhile cause that thread to make another pass.
+     */
+    private void sendQueued() {
+        if (sendRequests.getAndIncrement() > 0) return;
+        int requests = 1;
+        do {
+            sendReady();
+        } while ((requests = sendRequests.addAndGet(-requests)) > 0);
+    }
 
-            if (settings.denyIfBusy && threadsAvailableForFeeding.get() < 1) {
-                return sourceSession.getResource().sendMessage(msg.getMessage());
-            } else {
-                result = sourceSession.getResource().sendMessageBlocking(msg.getMessage());
+    private void sendReady() {
+        while (true) {
+            PendingOperation operation;
+            synchronized (sendQueue) {
+                operation = sendQueue.peekFirst();
             }
-            if (result.isAccepted()) {
-                return result;
+            if (operation == null || ! operation.message.isDone()) {
+                return;
             }
-            Thread.sleep(100);
+            if ( ! trySend(operation)) {
+                scheduleRetry();
+                return;
+            }
+            synchronized (sendQueue) {
+                sendQueue.pollFirst();
+            }
+            queueCapacity.release();
+            operation.feed.sent();
         }
-        return result;
     }
 
-    private void feed(FeederSettings settings,
-                      InputStream requestInputStream,
-                      BlockingQueue<OperationStatus> repliesFromOldMessages,
-                      AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
-        while (true) {
-            Optional<DocumentOperationMessageV3> msg = pullMessageFromRequest(settings, requestInputStream, repliesFromOldMessages);
+    /** Sends the given operation, or reports why it can not be sent, and returns false if it should be retried later */
+    private boolean trySend(PendingOperation operation) {
+        DocumentOperationMessageV3 msg;
+        try {
+            msg = operation.message.join();
+        } catch (CompletionException e) {
+            addParseError(operation, e.getCause());
+            return true;
+        }
+        if (msg == null) {
+            return true;
+        }
 
-            if (! msg.isPresent()) {
-                break;
-            }
-            setMessageParameters(msg.get(), settings);
+        Result result;
+        try {
+            msg.getMessage().pushHandler(replyHandler);
+            result = sourceSession.getResource().sendMessage(msg.getMessage());
+        } catch (RuntimeException e) {
+            operation.feed.response.add(createOperationStatus(msg.getOperationId(),
+                                                              Exceptions.toMessageString(e),
+                                                              ErrorCode.ERROR,
+                                                              false,
+                                                              msg.getMessage()));
+            return true;
+        }
 
-            Result result;
-            try {
-                result = sendMessage(settings, msg.get(), threadsAvailableForFeeding);
-
-            } catch  (RuntimeException e) {
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(),
-                                                                 Exceptions.toMessageString(e),
-                                                                 ErrorCode.ERROR,
-                                                                 false,
-                                                                 msg.get().getMessage()));
-                continue;
+        if (result.isAccepted()) {
+            outstandingOperations.incrementAndGet();
+            updateOpsPerSec();
+            log(Level.FINE, "Sent message successfully, document id: ", msg.getOperationId());
+        } else if (result.getError().getCode() == SEND_QUEUE_FULL
+                   && ! (operation.feed.settings.denyIfBusy && threadsAvailableForFeeding.get() < 1)) {
+            return false;
+        } else if (!result.getError().isFatal()) {
+            operation.feed.response.add(createOperationStatus(msg.getOperationId(),
+                                                              result.getError().getMessage(),
+                                                              ErrorCode.TRANSIENT_ERROR,
+                                                              false,
+                                                              msg.getMessage()));
+        } else {
+            // should probably not happen, but everybody knows stuff that
+            // shouldn't happen, happens all the time
+            boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
+            operation.feed.response.add(createOperationStatus(msg.getOperationId(),
+                                                              result.getError().getMessage(),
+                                                              ErrorCode.ERROR,
+                                                              isConditionNotMet,
+                                                              msg.getMessage()));
+        }
+        return true;
+    }
+
+    /** Tries sending again after a while, in case no reply to this client arrives to trigger it sooner */
+    private void scheduleRetry() {
+        if ( ! retryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            retryExecutor.schedule(() -> {
+                retryScheduled.set(false);
+                sendQueued();
+            }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            retryScheduled.set(false);
+            log.log(Level.FINE, "Not retrying send, as the feed handler is shutting down");
+        }
+    }
+
+    /** Handles a reply to a message sent by this, by writing it to an open response, and sending more */
+    private void handleReply(Reply reply) {
+        feedReplyHandler.handleReply(reply);
+        synchronized (openFeeds) {
+            RequestFeed feed = openFeeds.peekFirst();
+            if (feed != null) {
+                transferPreviousRepliesToResponse(feed.response);
             }
+        }
+        sendQueued();
+    }
 
-            if (result.isAccepted()) {
-                outstandingOperations.incrementAndGet();
-                updateOpsPerSec();
-                log(Level.FINE, "Sent message successfully, document id: ", msg.get().getOperationId());
-            } else if (!result.getError().isFatal()) {
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(),
-                                                                 result.getError().getMessage(),
-                                                                 ErrorCode.TRANSIENT_ERROR,
-                                                                 false,
-                                                                 msg.get().getMessage()));
-                continue;
-            } else {
-                // should probably not happen, but everybody knows stuff that
-                // shouldn't happen, happens all the time
-                boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(),
-                                                                 result.getError().getMessage(),
-                                                                 ErrorCode.ERROR,
-                                                                 isConditionNotMet,
-                                                                 msg.get().getMessage()));
-                continue;
+    /** Completes the response to the given request, with the replies which are not yet given to any response */
+    private void finish(RequestFeed feed) {
+        synchronized (openFeeds) {
+            if (openFeeds.remove(feed)) {
+                transferPreviousRepliesToResponse(feed.response);
             }
         }
+        feed.response.finish();
+        ongoingRequests.decrementAndGet();
     }
 
     private OperationStatus createOperationStatus(String id, String message,
@@ -277,11 +422,14 @@ class ClientFeederV3 {
     }
 
     // protected for mocking
-    /** Returns the next message in the stream, or null if none */
+    /**
+     * Returns the message in the given stream, which contains the bytes of a single operation, or null if none.
+     * This is called by the parser executor, concurrently with other invocations.
+     */
     protected DocumentOperationMessageV3 getNextMessage(String operationId,
-                                                        InputStream requestInputStream,
+                                                        InputStream operationInputStream,
                                                         FeederSettings settings) throws Exception {
-        FeedOperation operation = streamReaderV3.getNextOperation(requestInputStream, settings);
+        FeedOperation operation = streamReaderV3.parseOperation(operationInputStream, settings);
 
         // This is a bit hard to set up while testing, so we accept that things are not perfect.
         if (sourceSession.getResource().session() != null) {
@@ -355,4 +503,53 @@ class ClientFeederV3 {
         }
     }
 
+    private static class PendingOperation {
+
+        final String operationId;
+        final RequestFeed feed;
+        final CompletableFuture<DocumentOperationMessageV3> message = new CompletableFuture<>();
+
+        PendingOperation(String operationId, RequestFeed feed) {
+            this.operationId = operationId;
+            this.feed = feed;
+        }
+
+    }
+
+    /** The state of a single request, whose response is finished when all its operations are read and sent */
+    private class RequestFeed {
+
+        final FeedResponse response;
+        final FeederSettings settings;
+        private int unsent = 0;
+        private boolean allRead = false;
+
+        RequestFeed(FeedResponse response, FeederSettings settings) {
+            this.response = response;
+            this.settings = settings;
+        }
+
+        synchronized void added() {
+            ++unsent;
+        }
+
+        void sent() {
+            boolean done;
+            synchronized (this) {
+                done = --unsent == 0 && allRead;
+            }
+            if (done) finish(this);
+        }
+
+        void allRead() {
+            boolean done;
+            synchronized (this) {
+                allRead = true;
+                done = unsent == 0;
+            }
+            if (done) finish(this);
+        }
+
+    }
+
 }
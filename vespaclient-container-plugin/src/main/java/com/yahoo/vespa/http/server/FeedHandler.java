@@ -23,7 +23,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Accept feeds from outside of the Vespa cluster.
@@ -44,7 +43,7 @@ public class FeedHandler extends LoggingRequestHandler {
                        SessionCache sessionCache,
                        ThreadpoolConfig threadpoolConfig,
                        MetricReceiver metricReceiver) throws Exception {
-        super(parentCtx);
+        super(parentCtx, true); // Feed responses are completed asynchronously, see ClientFeederV3
         metricsHelper = new DocumentApiMetrics(metricReceiver, "vespa.http.server");
         feedHandlerV3 = new FeedHandlerV3(parentCtx, documentManagerConfig, sessionCache, threadpoolConfig, metricsHelper);
         feedReplyHandler = new FeedReplyReader(parentCtx.getMetric(), metricsHelper);
@@ -126,12 +125,7 @@ public class FeedHandler extends LoggingRequestHandler {
     // Protected for testing
     protected static InputStream unzipStreamIfNeeded(InputStream inputStream, HttpRequest httpRequest)
             throws IOException {
-        String contentEncodingHeader = httpRequest.getHeader("content-encoding");
-        if ("gzip".equals(contentEncodingHeader)) {
-            return new GZIPInputStream(inputStream);
-        } else {
-            return inputStream;
-        }
+        return StreamReaderV3.decompressIfNeeded(inputStream, httpRequest.getHeader("content-encoding"));
     }
 
     @Override
@@ -13,6 +13,7 @@ import com.yahoo.documentapi.metrics.DocumentApiMetrics;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.ReferencedResource;
 import java.util.logging.Level;
+import com.yahoo.messagebus.LatencyThrottlePolicy;
 import com.yahoo.messagebus.ReplyHandler;
 import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.shared.SharedSourceSession;
@@ -24,7 +25,10 @@ import java.time.Instant;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
@@ -41,6 +45,8 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
     private DocumentTypeManager docTypeManager;
     private final Map<String, ClientFeederV3> clientFeederByClientId = new HashMap<>();
     private final ScheduledThreadPoolExecutor cron;
+    // Parses operations for all clients. When all parsers are busy the request thread parses the operation itself.
+    private final ExecutorService parserExecutor;
     private final SessionCache sessionCache;
     protected final ReplyHandler feedReplyHandler;
     private final Metric metric;
@@ -53,12 +59,13 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                          SessionCache sessionCache,
                          ThreadpoolConfig threadpoolConfig,
                          DocumentApiMetrics metricsHelper) {
-        super(parentCtx);
+        super(parentCtx, true); // Responses are completed asynchronously, when all operations are sent
         docTypeManager = new DocumentTypeManager(documentManagerConfig);
         this.sessionCache = sessionCache;
         feedReplyHandler = new FeedReplyReader(parentCtx.getMetric(), metricsHelper);
         cron = new ScheduledThreadPoolExecutor(1, ThreadFactoryFactory.getThreadFactory("feedhandlerv3.cron"));
         cron.scheduleWithFixedDelay(this::removeOldClients, 16, 11, TimeUnit.MINUTES);
+        parserExecutor = createParserExecutor();
         this.metric = parentCtx.getMetric();
         // 40% of the threads can be blocking on feeding before we deny requests.
         if (threadpoolConfig != null) {
@@ -69,6 +76,18 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
         }
     }
 
+    /** Returns an executor for parsing operations, which parses in the calling thread when all its threads are busy */
+    static ThreadPoolExecutor createParserExecutor() {
+        return new ThreadPoolExecutor(getNumParserThreads(), getNumParserThreads(), 0L, TimeUnit.SECONDS,
+                                      new SynchronousQueue<>(false),
+                                      ThreadFactoryFactory.getDaemonThreadFactory("feedhandlerv3.parser"),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static int getNumParserThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
     public void injectDocumentManangerForTests(DocumentTypeManager docTypeManager) {
         this.docTypeManager = docTypeManager;
     }
@@ -89,7 +108,10 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                                                               clientId,
                                                               metric,
                                                               feedReplyHandler,
-                                                              threadsAvailableForFeeding));
+                                                              threadsAvailableForFeeding,
+                                                              parserExecutor,
+                                                              cron,
+                                                              ClientFeederV3.MAX_QUEUED_OPERATIONS));
             }
             clientFeederV3 = clientFeederByClientId.get(clientId);
         }
@@ -125,6 +147,7 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                 }
                 clientFeederByClientId.clear();
             }
+            parserExecutor.shutdown();
         });
         destroyer.setDaemon(true);
         destroyer.start();
@@ -149,6 +172,9 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                 // NOP
             }
         }
+        if ("latency".equals(request.getHeader(Headers.THROTTLE_POLICY))) {
+            params.setThrottlePolicy(new LatencyThrottlePolicy());
+        }
         return params;
     }
 
@@ -6,6 +6,7 @@ import com.yahoo.document.json.JsonFeedReader;
 import com.yahoo.text.Utf8;
 import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespaxmlparser.FeedReader;
+import com.yahoo.vespaxmlparser.VespaV1FeedReader;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
 
 import java.io.InputStream;
@@ -54,6 +55,8 @@ public class FeedReaderFactory {
                 }
             case JSON_UTF8:
                 return new JsonFeedReader(inputStream, docTypeManager);
+            case VESPA_V1:
+                return new VespaV1FeedReader(inputStream, docTypeManager);
             default:
                 throw new IllegalStateException("Can not create feed reader for format: " + dataFormat);
         }
@@ -1,70 +1,86 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.server;
 
-import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.container.jdisc.AsyncHttpResponse;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
 import com.yahoo.vespa.http.client.core.Headers;
-import com.yahoo.vespa.http.client.core.ErrorCode;
 import com.yahoo.vespa.http.client.core.OperationStatus;
 
-import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Reads feed responses from a queue and renders them continuously to the
- * feeder.
+ * Renders feed responses to the feeder as they are added, from whichever thread adds them,
+ * and completes the response when {@link #finish} is called. No thread waits for this.
  *
  * @author <a href="mailto:steinar@yahoo-inc.com">Steinar Knutsen</a>
  * @since 5.1
  */
-public class FeedResponse extends HttpResponse {
+public class FeedResponse extends AsyncHttpResponse {
 
-    BlockingQueue<OperationStatus> operations;
+    /** The encodings of request content which are understood by {@link StreamReaderV3#unzipStreamIfNeeded} */
+    static final String SUPPORTED_CONTENT_ENCODINGS = "gzip, lz4";
 
-    public FeedResponse(
-            int status,
-            BlockingQueue<OperationStatus> operations,
-            int protocolVersion,
-            String sessionId) {
-        super(status);
-        this.operations = operations;
-        headers().add(Headers.SESSION_ID, sessionId);
-        headers().add(Headers.VERSION, Integer.toString(protocolVersion));
-    }
+    private final List<OperationStatus> pending = new ArrayList<>();
+    private ContentChannel channel = null;
+    private CompletionHandler completionHandler = null;
+    private boolean finished = false;
 
     // This is used by the V3 protocol.
     public FeedResponse(
             int status,
-            BlockingQueue<OperationStatus> operations,
             int protocolVersion,
             String sessionId,
             int outstandingClientOperations,
             String hostName) {
         super(status);
-        this.operations = operations;
         headers().add(Headers.SESSION_ID, sessionId);
         headers().add(Headers.VERSION, Integer.toString(protocolVersion));
         headers().add(Headers.OUTSTANDING_REQUESTS, Integer.toString(outstandingClientOperations));
         headers().add(Headers.HOSTNAME, hostName);
+        headers().add(Headers.ACCEPT_CONTENT_ENCODINGS, SUPPORTED_CONTENT_ENCODINGS);
     }
 
+    /** Writes the statuses added so far, and returns; the rest are written as they are added */
     @Override
-    public void render(OutputStream output) throws IOException {
-        int i = 0;
-        OperationStatus status;
-        try {
-            status = operations.take();
-            while (status.errorCode != ErrorCode.END_OF_FEED) {
-                output.write(toBytes(status.render()));
-                if (++i % 5 == 0) {
-                    output.flush();
-                }
-                status = operations.take();
-            }
-        } catch (InterruptedException e) {
-            output.flush();
-        }
+    public synchronized void render(OutputStream output, ContentChannel networkChannel, CompletionHandler handler) {
+        channel = networkChannel;
+        completionHandler = handler;
+        for (OperationStatus status : pending)
+            write(status);
+        pending.clear();
+        if (finished)
+            channel.close(completionHandler);
+    }
+
+    /** Adds the given status to this, which is written immediately if rendering has started */
+    public synchronized void add(OperationStatus status) {
+        if (finished)
+            throw new IllegalStateException("Status for '" + status.operationId + "' added after the response was finished");
+        if (channel == null)
+            pending.add(status);
+        else
+            write(status);
+    }
+
+    /** Completes this response, after writing all statuses added so far */
+    public synchronized void finish() {
+        if (finished) return;
+        finished = true;
+        if (channel != null)
+            channel.close(completionHandler);
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    private void write(OperationStatus status) {
+        channel.write(ByteBuffer.wrap(toBytes(status.render())), null);
     }
 
     private byte[] toBytes(String s) {
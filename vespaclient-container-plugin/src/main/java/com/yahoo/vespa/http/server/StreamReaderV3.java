@@ -7,6 +7,7 @@ import com.yahoo.vespa.http.client.core.Encoder;
 import com.yahoo.vespa.http.server.util.ByteLimitedInputStream;
 import com.yahoo.vespaxmlparser.FeedOperation;
 import com.yahoo.vespaxmlparser.FeedReader;
+import net.jpountz.lz4.LZ4FrameInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -36,12 +37,26 @@ public class StreamReaderV3 {
         int length = readByteLength(requestInputStream);
 
         try (InputStream limitedInputStream = new ByteLimitedInputStream(requestInputStream, length)){
-            FeedReader reader = feedReaderFactory.createReader(limitedInputStream, docTypeManager, settings.dataFormat);
-            op = reader.read();
+            op = parseOperation(limitedInputStream, settings);
         }
         return op;
     }
 
+    /**
+     * Reads the raw bytes of the next operation in the stream, without parsing them. This is cheap compared to
+     * parsing, and allows the bytes to be handed to {@link #parseOperation} in another thread.
+     */
+    public byte[] getNextOperationBytes(InputStream requestInputStream) throws IOException {
+        int length = readByteLength(requestInputStream);
+        return requestInputStream.readNBytes(length);
+    }
+
+    /** Parses a single operation from the given stream, which must contain exactly the bytes of that operation */
+    public FeedOperation parseOperation(InputStream operationInputStream, FeederSettings settings) throws Exception {
+        FeedReader reader = feedReaderFactory.createReader(operationInputStream, docTypeManager, settings.dataFormat);
+        return reader.read();
+    }
+
     public Optional<String> getNextOperationId(InputStream requestInputStream) throws IOException {
         StringBuilder idBuf = new StringBuilder(100);
         int c;
@@ -74,11 +89,17 @@ public class StreamReaderV3 {
 
     public static InputStream unzipStreamIfNeeded(final HttpRequest httpRequest)
             throws IOException {
-        final String contentEncodingHeader = httpRequest.getHeader("content-encoding");
-        if ("gzip".equals(contentEncodingHeader)) {
-            return new GZIPInputStream(httpRequest.getData());
+        return decompressIfNeeded(httpRequest.getData(), httpRequest.getHeader("content-encoding"));
+    }
+
+    /** Returns the given stream decompressed according to the given content encoding, which may be null */
+    static InputStream decompressIfNeeded(InputStream inputStream, String contentEncoding) throws IOException {
+        if ("gzip".equals(contentEncoding)) {
+            return new GZIPInputStream(inputStream);
+        } else if ("lz4".equals(contentEncoding)) {
+            return new LZ4FrameInputStream(inputStream);
         } else {
-            return httpRequest.getData();
+            return inputStream;
         }
     }
 
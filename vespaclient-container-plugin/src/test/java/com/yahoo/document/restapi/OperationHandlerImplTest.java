@@ -1,13 +1,28 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.restapi;
 
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.documentapi.AckToken;
+import com.yahoo.documentapi.AsyncParameters;
 import com.yahoo.documentapi.DocumentAccess;
+import com.yahoo.documentapi.DocumentIdResponse;
+import com.yahoo.documentapi.DocumentResponse;
 import com.yahoo.documentapi.ProgressToken;
+import com.yahoo.documentapi.RemoveResponse;
+import com.yahoo.documentapi.ResponseHandler;
+import com.yahoo.documentapi.Result;
 import com.yahoo.documentapi.SyncParameters;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorParameters;
+import com.yahoo.documentapi.VisitorControlSession;
 import com.yahoo.documentapi.VisitorSession;
+import com.yahoo.documentapi.messagebus.MessageBusAsyncSession;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.vdslib.VisitorStatistics;
@@ -23,6 +38,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.containsString;
@@ -30,11 +49,15 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -204,6 +227,48 @@ public class OperationHandlerImplTest {
         assertThat(fixture.assignedParameters.get().getSessionTimeoutMs(), is((long)OperationHandlerImpl.VISIT_TIMEOUT_MS));
     }
 
+    @Test
+    public void streaming_visit_is_not_limited_to_a_page_of_documents() throws Exception {
+        OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
+        OperationHandlerImpl handler = fixture.createHandler();
+
+        Optional<String> token = handler.visit(dummyVisitUri(), "", emptyVisitOptions(), (json, completion) -> { });
+
+        VisitorParameters parameters = fixture.assignedParameters.get();
+        assertEquals(-1, parameters.getMaxTotalHits());
+        assertEquals(-1, parameters.getSessionTimeoutMs());
+        assertThat(parameters.getLocalDataHandler(), instanceOf(StreamingVisitorDataHandler.class));
+        assertEquals(Optional.empty(), token);
+    }
+
+    @Test
+    public void streamed_documents_are_acked_when_consumed_and_visiting_aborted_when_consumption_fails() {
+        List<byte[]> documents = new ArrayList<>();
+        List<CompletionHandler> completions = new ArrayList<>();
+        StreamingVisitorDataHandler dataHandler = new StreamingVisitorDataHandler((json, completion) -> {
+            documents.add(json);
+            completions.add(completion);
+        });
+        VisitorControlSession session = mock(VisitorControlSession.class);
+        dataHandler.setSession(session);
+
+        Document document = new Document(new DocumentType("music"), "id:ns:music::1");
+        AckToken first = new AckToken(new Object());
+        dataHandler.onMessage(new PutDocumentMessage(new DocumentPut(document)), first);
+        AckToken second = new AckToken(new Object());
+        dataHandler.onMessage(new PutDocumentMessage(new DocumentPut(document)), second);
+
+        assertEquals(2, documents.size());
+        assertThat(new String(documents.get(0)), containsString("id:ns:music::1"));
+        verify(session, never()).ack(any());
+        completions.get(0).completed();
+        verify(session).ack(first);
+        verify(session, never()).abort();
+        completions.get(1).failed(new IOException("Client went away"));
+        verify(session).abort();
+        verify(session, never()).ack(second);
+    }
+
     private static VisitorParameters generatedVisitParametersFrom(RestUri restUri, String documentSelection,
                                                                   OperationHandler.VisitOptions options) throws Exception {
         OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
@@ -320,6 +385,20 @@ public class OperationHandlerImplTest {
         assertConcurrencyPropagated(params, OperationHandlerImpl.CONCURRENCY_UPPER_BOUND);
     }
 
+    @Test
+    public void visit_is_not_sliced_by_default() throws Exception {
+        VisitorParameters params = generatedParametersFromVisitOptions(emptyVisitOptions());
+        assertThat(params.getSlices(), is(1));
+        assertThat(params.getSliceId(), is(0));
+    }
+
+    @Test
+    public void visit_slices_are_propagated_to_visitor_parameters() throws Exception {
+        VisitorParameters params = generatedParametersFromVisitOptions(optionsBuilder().slices(4).sliceId(2).build());
+        assertThat(params.getSlices(), is(4));
+        assertThat(params.getSliceId(), is(2));
+    }
+
     @Test
     public void get_field_covers_all_fields_by_default() throws Exception {
         OperationHandlerImplFixture fixture = new OperationHandlerImplFixture();
@@ -441,4 +520,102 @@ public class OperationHandlerImplTest {
         assertEquals("document-type and (id.namespace=='namespace')", parameters.getDocumentSelection());
     }
 
+    private static class AsyncOperationHandlerFixture {
+        DocumentAccess documentAccess = mock(DocumentAccess.class);
+        MessageBusAsyncSession session = mock(MessageBusAsyncSession.class);
+        AtomicReference<ResponseHandler> responseHandler = new AtomicReference<>();
+        AtomicLong requestId = new AtomicLong(0);
+        AtomicInteger executedResponses = new AtomicInteger(0);
+        boolean respondBeforeReturning = false;
+
+        OperationHandlerImpl createHandler(int maxPendingOperations) {
+            when(documentAccess.createAsyncSession(any(AsyncParameters.class))).thenAnswer(p -> {
+                responseHandler.set(((AsyncParameters)p.getArguments()[0]).getResponseHandler());
+                return session;
+            });
+            when(session.send(any(Message.class), anyString())).thenAnswer(p -> {
+                long id = requestId.incrementAndGet();
+                if (respondBeforeReturning) {
+                    responseHandler.get().handleResponse(new RemoveResponse(id, true));
+                }
+                return new Result(id);
+            });
+            return new OperationHandlerImpl(documentAccess, () -> Arrays.asList(new ClusterDef("foo", "configId")),
+                                            (clusterId, docType) -> Optional.empty(), MetricReceiver.nullImplementation,
+                                            maxPendingOperations,
+                                            task -> { executedResponses.incrementAndGet(); task.run(); });
+        }
+    }
+
+    private static int statusOf(CompletableFuture<?> operation) throws InterruptedException {
+        try {
+            operation.get();
+            return 200;
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RestApiException.class));
+            return ((RestApiException) e.getCause()).getResponse().getStatus();
+        }
+    }
+
+    @Test
+    public void async_operations_beyond_max_pending_are_rejected_until_responses_arrive() throws Exception {
+        AsyncOperationHandlerFixture fixture = new AsyncOperationHandlerFixture();
+        OperationHandlerImpl handler = fixture.createHandler(1);
+
+        CompletableFuture<Void> first = handler.deleteAsync(dummyGetUri(), null, Optional.empty());
+        assertFalse(first.isDone());
+        assertEquals(429, statusOf(handler.deleteAsync(dummyGetUri(), null, Optional.empty())));
+
+        fixture.responseHandler.get().handleResponse(new RemoveResponse(1, true));
+        assertEquals(200, statusOf(first));
+
+        CompletableFuture<Void> second = handler.deleteAsync(dummyGetUri(), "false", Optional.empty());
+        fixture.responseHandler.get().handleResponse(new DocumentIdResponse(2, null, "Condition not met",
+                                                                            com.yahoo.documentapi.Response.Outcome.CONDITION_FAILED));
+        assertEquals(412, statusOf(second));
+        verify(fixture.documentAccess).createAsyncSession(any(AsyncParameters.class));
+        verify(fixture.session, times(2)).send(any(Message.class), eq("default"));
+    }
+
+    @Test
+    public void async_responses_are_handled_by_the_response_executor() throws Exception {
+        AsyncOperationHandlerFixture fixture = new AsyncOperationHandlerFixture();
+        OperationHandlerImpl handler = fixture.createHandler(10);
+
+        CompletableFuture<Void> delete = handler.deleteAsync(dummyGetUri(), null, Optional.empty());
+        CompletableFuture<Optional<String>> get = handler.getAsync(dummyGetUri(), Optional.empty(), Optional.empty());
+        assertEquals(0, fixture.executedResponses.get());
+
+        fixture.responseHandler.get().handleResponse(new RemoveResponse(1, true));
+        fixture.responseHandler.get().handleResponse(new DocumentResponse(2, "Failed", false));
+        assertEquals(200, statusOf(delete));
+        assertEquals(500, statusOf(get));
+        assertEquals(2, fixture.executedResponses.get());
+    }
+
+    @Test
+    public void async_operations_to_different_routes_share_a_single_session() throws Exception {
+        AsyncOperationHandlerFixture fixture = new AsyncOperationHandlerFixture();
+        fixture.respondBeforeReturning = true;
+        OperationHandlerImpl handler = fixture.createHandler(10);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, statusOf(handler.deleteAsync(dummyGetUri(), null, Optional.of("route" + i))));
+        }
+        verify(fixture.documentAccess).createAsyncSession(any(AsyncParameters.class));
+        for (int i = 0; i < 3; i++) {
+            verify(fixture.session).send(any(Message.class), eq("route" + i));
+        }
+    }
+
+    @Test
+    public void async_operation_is_completed_when_response_arrives_before_send_returns() throws Exception {
+        AsyncOperationHandlerFixture fixture = new AsyncOperationHandlerFixture();
+        fixture.respondBeforeReturning = true;
+        OperationHandlerImpl handler = fixture.createHandler(1);
+
+        assertEquals(200, statusOf(handler.deleteAsync(dummyGetUri(), null, Optional.empty())));
+        assertEquals(200, statusOf(handler.deleteAsync(dummyGetUri(), null, Optional.empty())));
+    }
+
 }
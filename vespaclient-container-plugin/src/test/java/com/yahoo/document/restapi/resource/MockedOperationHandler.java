@@ -5,8 +5,10 @@ import com.yahoo.document.restapi.OperationHandler;
 import com.yahoo.document.restapi.Response;
 import com.yahoo.document.restapi.RestApiException;
 import com.yahoo.document.restapi.RestUri;
+import com.yahoo.jdisc.handler.CompletionHandler;
 import com.yahoo.vespaxmlparser.FeedOperation;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 /**
@@ -26,7 +28,27 @@ public class MockedOperationHandler implements OperationHandler {
                 + options.fieldSet.map(s -> String.format(", field set: '%s'", s)).orElse("")
                 + options.concurrency.map(n -> String.format(", concurrency: %d", n)).orElse("")
                 + options.bucketSpace.map(s -> String.format(", bucket space: '%s'", s)).orElse("")
-                + options.cluster.map(s -> String.format(", cluster: '%s'", s)).orElse(""));
+                + options.cluster.map(s -> String.format(", cluster: '%s'", s)).orElse("")
+                + options.slices.map(n -> String.format(", slices: %d", n)).orElse("")
+                + options.sliceId.map(n -> String.format(", slice id: %d", n)).orElse(""));
+    }
+
+    @Override
+    public Optional<String> visit(RestUri restUri, String documentSelection, VisitOptions options, VisitStream stream) throws RestApiException {
+        if (options.cluster.isPresent() && options.cluster.get().equals("unavailable")) {
+            throw new RestApiException(Response.createErrorResponse(500, "Visiting failed", RestUri.apiErrorCodes.VISITOR_ERROR));
+        }
+        int documents = options.wantedDocumentCount.orElse(2);
+        for (int i = 0; i < documents; i++) {
+            stream.onDocument(("{\"id\":\"doc" + i + "\"}").getBytes(StandardCharsets.UTF_8), new CompletionHandler() {
+                @Override public void completed() { }
+                @Override public void failed(Throwable t) { }
+            });
+        }
+        if (options.cluster.isPresent() && options.cluster.get().equals("broken")) {
+            throw new RestApiException(Response.createErrorResponse(500, "Visiting failed", RestUri.apiErrorCodes.VISITOR_ERROR));
+        }
+        return Optional.of("token");
     }
 
     @Override
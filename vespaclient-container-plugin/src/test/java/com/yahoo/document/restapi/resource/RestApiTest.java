@@ -503,6 +503,44 @@ public class RestApiTest {
         assertHttp400ResponseContains(doRest(get), "Invalid 'concurrency' value. Expected positive integer");
     }
 
+    @Test
+    public void visit_slice_parameters_are_propagated() {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=8&sliceId=7", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        assertHttp200ResponseContains(doRest(get), "slices: 8, slice id: 7");
+    }
+
+    @Test
+    public void visit_slice_id_outside_slices_returns_error_response() {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?slices=8&sliceId=8", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        assertHttp400ResponseContains(doRest(get), "Invalid 'sliceId' value. Expected slice id less than 'slices'");
+    }
+
+    @Test
+    public void streaming_visit_renders_documents_followed_by_continuation() {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?stream=true", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        assertHttp200ResponseContains(doRest(get), "{\"documents\":[{\"id\":\"doc0\"},{\"id\":\"doc1\"}]," +
+                                                   "\"continuation\":\"token\",\"pathId\":\"/document/v1/namespace/document-type/docid/\"}");
+    }
+
+    @Test
+    public void streaming_visit_renders_errors_after_documents() {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?stream=true&cluster=broken&wantedDocumentCount=1", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        Response response = doRest(get);
+        assertHttp200ResponseContains(response, "{\"documents\":[{\"id\":\"doc0\"}],\"errors\":");
+        assertThat(response.body, containsString("VISITOR_ERROR Visiting failed"));
+    }
+
+    @Test
+    public void streaming_visit_returns_error_response_when_failing_before_any_documents() {
+        Request request = new Request(String.format("http://localhost:%s/document/v1/namespace/document-type/docid/?stream=true&cluster=unavailable", getFirstListenPort()));
+        HttpGet get = new HttpGet(request.getUri());
+        assertHttpResponseContains(doRest(get), 500, "VISITOR_ERROR Visiting failed");
+    }
+
     private void assertHttpResponseContains(Response response, int expectedStatusCode, String expectedSubstring) {
         assertThat(response.code, is(expectedStatusCode));
         assertThat(response.body, containsString(expectedSubstring));
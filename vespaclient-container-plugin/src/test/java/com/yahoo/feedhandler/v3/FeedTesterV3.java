@@ -3,6 +3,7 @@ package com.yahoo.feedhandler.v3;
 
 import com.google.common.base.Splitter;
 import com.yahoo.container.handler.ThreadpoolConfig;
+import com.yahoo.container.jdisc.AsyncHttpResponse;
 import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.messagebus.SessionCache;
@@ -14,6 +15,8 @@ import com.yahoo.document.config.DocumentmanagerConfig;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.metrics.DocumentApiMetrics;
 import com.yahoo.jdisc.ReferencedResource;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
 import com.yahoo.messagebus.Result;
 import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.shared.SharedSourceSession;
@@ -32,37 +35,42 @@ import org.mockito.stubbing.Answer;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class FeedTesterV3 {
     final CollectingMetric metric = new CollectingMetric();
+    final List<String> sentDocumentIds = new CopyOnWriteArrayList<>();
 
     @Test
     public void feedOneDocument() throws Exception {
         final FeedHandlerV3 feedHandlerV3 = setupFeederHandler(null);
         HttpResponse httpResponse = feedHandlerV3.handle(createRequest(1));
-        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-        httpResponse.render(outStream);
+        String result = render(httpResponse);
         assertThat(httpResponse.getContentType(), is("text/plain"));
-        assertThat(Utf8.toString(outStream.toByteArray()), is("1230 OK message trace\n"));
+        assertThat(result, is("1230 OK message trace\n"));
     }
 
     @Test
     public void feedOneBrokenDocument() throws Exception {
         final FeedHandlerV3 feedHandlerV3 = setupFeederHandler(null);
         HttpResponse httpResponse = feedHandlerV3.handle(createBrokenRequest());
-        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-        httpResponse.render(outStream);
+        String result = render(httpResponse);
         assertThat(httpResponse.getContentType(), is("text/plain"));
-        assertThat(Utf8.toString(outStream.toByteArray()), startsWith("1230 ERROR "));
+        assertThat(result, startsWith("1230 ERROR "));
         assertThat(metric.get(MetricNames.PARSE_ERROR), is(1L));
     }
 
@@ -70,13 +78,22 @@ public class FeedTesterV3 {
     public void feedManyDocument() throws Exception {
         final FeedHandlerV3 feedHandlerV3 = setupFeederHandler(null);
         HttpResponse httpResponse = feedHandlerV3.handle(createRequest(100));
-        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-        httpResponse.render(outStream);
+        String result = render(httpResponse);
         assertThat(httpResponse.getContentType(), is("text/plain"));
-        String result = Utf8.toString(outStream.toByteArray());
         assertThat(Splitter.on("\n").splitToList(result).size(), is(101));
     }
 
+    @Test
+    public void feedManyDocumentsKeepsOrder() throws Exception {
+        final FeedHandlerV3 feedHandlerV3 = setupFeederHandler(null);
+        HttpResponse httpResponse = feedHandlerV3.handle(createRequestWithDistinctIds(1000));
+        render(httpResponse);
+        assertThat(sentDocumentIds.size(), is(1000));
+        for (int x = 0; x < 1000; x++) {
+            assertThat(sentDocumentIds.get(x), is("id:testdocument:testdocument::" + x));
+        }
+    }
+
     private static DocumentTypeManager createDoctypeManager() {
         DocumentTypeManager docTypeManager = new DocumentTypeManager();
         DocumentType documentType = new DocumentType("testdocument");
@@ -96,6 +113,15 @@ public class FeedTesterV3 {
         return createRequestWithPayload(wireData.toString());
     }
 
+    private static HttpRequest createRequestWithDistinctIds(int numberOfDocs) {
+        StringBuilder wireData = new StringBuilder();
+        for (int x = 0; x < numberOfDocs; x++) {
+            String docData = "[{\"put\": \"id:testdocument:testdocument::" + x + "\", \"fields\": { \"title\": \"fooKey\", \"body\": \"value\"}}]";
+            wireData.append(x + " " + Integer.toHexString(docData.length()) + "\n" + docData);
+        }
+        return createRequestWithPayload(wireData.toString());
+    }
+
     private static HttpRequest createBrokenRequest() {
         String docData = "[{\"put oops I broke it]";
         String wireData = "1230 " + Integer.toHexString(docData.length()) + "\n" + docData;
@@ -130,19 +156,16 @@ public class FeedTesterV3 {
                     SessionCache sessionCache, SourceSessionParams sessionParams)  {
                 SharedSourceSession sharedSourceSession = mock(SharedSourceSession.class);
 
-                try {
-                    when(sharedSourceSession.sendMessageBlocking(any())).thenAnswer((Answer<?>) invocation -> {
-                        Object[] args = invocation.getArguments();
-                        PutDocumentMessage putDocumentMessage = (PutDocumentMessage) args[0];
-                        ReplyContext replyContext = (ReplyContext)putDocumentMessage.getContext();
-                        replyContext.feedReplies.add(new OperationStatus("message", replyContext.docId, ErrorCode.OK, false, "trace"));
-                        Result result = mock(Result.class);
-                        when(result.isAccepted()).thenReturn(true);
-                        return result;
-                    });
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+                when(sharedSourceSession.sendMessage(any())).thenAnswer((Answer<?>) invocation -> {
+                    Object[] args = invocation.getArguments();
+                    PutDocumentMessage putDocumentMessage = (PutDocumentMessage) args[0];
+                    sentDocumentIds.add(putDocumentMessage.getDocumentPut().getId().toString());
+                    ReplyContext replyContext = (ReplyContext)putDocumentMessage.getContext();
+                    replyContext.feedReplies.add(new OperationStatus("message", replyContext.docId, ErrorCode.OK, false, "trace"));
+                    Result result = mock(Result.class);
+                    when(result.isAccepted()).thenReturn(true);
+                    return result;
+                });
 
                 Result result = mock(Result.class);
                 when(result.isAccepted()).thenReturn(true);
@@ -155,4 +178,26 @@ public class FeedTesterV3 {
         return feedHandlerV3;
     }
 
+    /** Renders the given asynchronous response, and returns its content once it is completed */
+    public static String render(HttpResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CountDownLatch closed = new CountDownLatch(1);
+        ((AsyncHttpResponse) response).render(null, new ContentChannel() {
+            @Override
+            public void write(ByteBuffer buf, CompletionHandler handler) {
+                synchronized (out) {
+                    while (buf.hasRemaining()) out.write(buf.get());
+                }
+            }
+            @Override
+            public void close(CompletionHandler handler) {
+                closed.countDown();
+            }
+        }, null);
+        assertTrue(closed.await(60, TimeUnit.SECONDS));
+        synchronized (out) {
+            return Utf8.toString(out.toByteArray());
+        }
+    }
+
 }
@@ -1,9 +1,14 @@
 // Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.server;
 
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.text.Utf8;
 import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespaxmlparser.FeedOperation;
+import com.yahoo.vespaxmlparser.FeedReader;
+import com.yahoo.vespaxmlparser.RemoveFeedOperation;
+import com.yahoo.vespaxmlparser.VespaV1FeedWriter;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -37,4 +42,13 @@ public class FeedReaderFactoryTestCase {
             assertEquals("Could not create VespaXMLFeedReader.", e.getMessage());
         }
     }
+
+    @Test
+    public void testVespaV1() throws Exception {
+        byte[] data = VespaV1FeedWriter.toByteArray(new RemoveFeedOperation(new DocumentId("id:ns:music::1")));
+        FeedReader reader = new FeedReaderFactory(false).createReader(new ByteArrayInputStream(data), manager, FeedParams.DataFormat.VESPA_V1);
+        FeedOperation operation = reader.read();
+        assertEquals(FeedOperation.Type.REMOVE, operation.getType());
+        assertEquals(new DocumentId("id:ns:music::1"), operation.getRemove());
+    }
 }
@@ -2,7 +2,9 @@
 package com.yahoo.vespa.http.server;
 
 import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.feedhandler.v3.FeedTesterV3;
 import com.yahoo.documentapi.metrics.DocumentApiMetrics;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.ReferencedResource;
@@ -21,15 +23,21 @@ import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespaxmlparser.FeedOperation;
 import com.yahoo.vespaxmlparser.MockFeedReaderFactory;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.IOException;
 import java.io.InputStream;
 
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 
@@ -42,11 +50,11 @@ public class V3CongestionTestCase {
 
         private final DocumentOperationMessageV3 docOp;
 
-        ClientFeederWithMocks(ReferencedResource<SharedSourceSession> sourceSession, FeedReaderFactory feedReaderFactory, DocumentTypeManager docTypeManager, String clientId, Metric metric, ReplyHandler feedReplyHandler, AtomicInteger threadsAvailableForFeeding) {
-            super(sourceSession, feedReaderFactory, docTypeManager, clientId, metric, feedReplyHandler, threadsAvailableForFeeding);
+        ClientFeederWithMocks(ReferencedResource<SharedSourceSession> sourceSession, FeedReaderFactory feedReaderFactory, DocumentTypeManager docTypeManager, String clientId, Metric metric, ReplyHandler feedReplyHandler, AtomicInteger threadsAvailableForFeeding, Executor parserExecutor, ScheduledExecutorService retryExecutor, int maxQueuedOperations) {
+            super(sourceSession, feedReaderFactory, docTypeManager, clientId, metric, feedReplyHandler, threadsAvailableForFeeding,
+                  parserExecutor, retryExecutor, maxQueuedOperations);
             // The operation to return from the client feeder.
             docOp = DocumentOperationMessageV3.newRemoveMessage(FeedOperation.INVALID, "operation id");
-
         }
 
         @Override
@@ -64,19 +72,17 @@ public class V3CongestionTestCase {
 
     final static int NUMBER_OF_QUEUE_FULL_RESPONSES = 5;
 
+    // The same executors as the feed handler shares between its client feeders.
+    final ExecutorService parserExecutor = FeedHandlerV3.createParserExecutor();
+    final ScheduledExecutorService retryExecutor = new ScheduledThreadPoolExecutor(1);
     ClientFeederV3 clientFeederV3;
+    MockSharedSession session;
     HttpRequest request;
 
     @Before
     public void setup() {
         // Set up a request to be used from the tests.
-        InputStream in = new MetaStream(new byte[] { 1 });
-        request = HttpRequest
-                .createTestRequest(
-                        "http://foo.bar:19020/reserved-for-internal-use/feedapi",
-                        com.yahoo.jdisc.http.HttpRequest.Method.POST, in);
-        request.getJDiscRequest().headers().add(Headers.VERSION, "3");
-        request.getJDiscRequest().headers().add(Headers.CLIENT_ID, "clientId");
+        request = createRequest();
 
 
         // Create a mock that does not parse the message, only reads the rest of the line. Makes it easier
@@ -88,12 +94,32 @@ public class V3CongestionTestCase {
                 "clientID",
                 null/*metric*/,
                 new FeedReplyReader(null/*metric*/, new DocumentApiMetrics(MetricReceiver.nullImplementation, "tester")),
-                threadsAvail);
+                threadsAvail,
+                parserExecutor,
+                retryExecutor,
+                ClientFeederV3.MAX_QUEUED_OPERATIONS);
+    }
+
+    @After
+    public void shutdown() {
+        parserExecutor.shutdownNow();
+        retryExecutor.shutdownNow();
+    }
+
+    private static HttpRequest createRequest() {
+        InputStream in = new MetaStream(new byte[] { 1 });
+        HttpRequest request = HttpRequest
+                .createTestRequest(
+                        "http://foo.bar:19020/reserved-for-internal-use/feedapi",
+                        com.yahoo.jdisc.http.HttpRequest.Method.POST, in);
+        request.getJDiscRequest().headers().add(Headers.VERSION, "3");
+        request.getJDiscRequest().headers().add(Headers.CLIENT_ID, "clientId");
+        return request;
     }
 
     // A mock for message bus that can simulate blocking requests.
     private static class MockSharedSession extends SharedSourceSession {
-        boolean queuFull = true;
+        volatile boolean queuFull = true;
         AtomicInteger requests;
 
         public MockSharedSession(SourceSessionParams params, AtomicInteger requests) {
@@ -128,34 +154,73 @@ public class V3CongestionTestCase {
     ReferencedResource<SharedSourceSession> retainMockSession(
             SourceSessionParams sessionParams,
             AtomicInteger requests) {
-        final SharedSourceSession session = new MockSharedSession(sessionParams, requests);
+        session = new MockSharedSession(sessionParams, requests);
         return new ReferencedResource<>(session, References.fromResource(session));
     }
 
     @Test
-    public void testRetriesWhenThreadsAvailable() throws IOException {
+    public void testRetriesWhenThreadsAvailable() throws Exception {
         request.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "true");
         threadsAvail.set(10);
 
-        clientFeederV3.handleRequest(request);
+        FeedTesterV3.render(clientFeederV3.handleRequest(request));
         assertTrue(requests.get() == NUMBER_OF_QUEUE_FULL_RESPONSES);
     }
 
     @Test
-    public void testNoRetriesWhenNoThreadsAvailable() throws IOException {
+    public void testNoRetriesWhenNoThreadsAvailable() throws Exception {
         request.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "true");
         threadsAvail.set(0);
 
-        clientFeederV3.handleRequest(request);
+        FeedTesterV3.render(clientFeederV3.handleRequest(request));
         assertTrue(requests.get() == 1);
     }
 
     @Test
-    public void testRetriesWhenNoThreadsAvailableButNoDenyIfBusy() throws IOException {
+    public void testRetriesWhenNoThreadsAvailableButNoDenyIfBusy() throws Exception {
         request.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "false");
         threadsAvail.set(0);
 
-        clientFeederV3.handleRequest(request);
+        FeedTesterV3.render(clientFeederV3.handleRequest(request));
         assertTrue(requests.get() == NUMBER_OF_QUEUE_FULL_RESPONSES);
     }
+
+    @Test
+    public void testResponseIsHeldOpenUntilOperationIsSent() throws Exception {
+        requests.set(Integer.MIN_VALUE); // Keep the queue full until told otherwise
+        HttpResponse response = clientFeederV3.handleRequest(request);
+        assertFalse(((FeedResponse) response).isFinished());
+
+        session.queuFull = false;
+        FeedTesterV3.render(response);
+        assertTrue(((FeedResponse) response).isFinished());
+    }
+
+    @Test
+    public void testBusyRequestsAreDeniedWhenTooManyOperationsAreQueued() throws Exception {
+        ClientFeederV3 feeder = new ClientFeederWithMocks(
+                retainMockSession(new SourceSessionParams(), requests),
+                new MockFeedReaderFactory(),
+                null /*DocTypeManager*/,
+                "clientID",
+                null/*metric*/,
+                new FeedReplyReader(null/*metric*/, new DocumentApiMetrics(MetricReceiver.nullImplementation, "tester")),
+                threadsAvail,
+                parserExecutor,
+                retryExecutor,
+                1);
+        requests.set(Integer.MIN_VALUE); // Keep the queue full until told otherwise
+        HttpResponse response = feeder.handleRequest(request);
+        assertFalse(((FeedResponse) response).isFinished());
+
+        HttpRequest busy = createRequest();
+        busy.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "true");
+        assertEquals(429, feeder.handleRequest(busy).getStatus());
+        busy.getJDiscRequest().headers().add(Headers.SILENTUPGRADE, "true");
+        assertEquals(299, feeder.handleRequest(busy).getStatus());
+
+        session.queuFull = false;
+        FeedTesterV3.render(response);
+        assertTrue(((FeedResponse) response).isFinished());
+    }
 }
@@ -39,13 +39,15 @@ public class ClientParameters {
     public final String loadTypeName;
     // If full documents are printed, they will be printed as JSON (instead of XML)
     public final boolean jsonOutput;
+    // Max number of document requests in flight at once. Replies are still printed in the order of the document ids.
+    public final int maxPending;
 
 
     private ClientParameters(
             boolean help, Iterator<String> documentIds, boolean printIdsOnly,
             String fieldSet, String route, String cluster, String configId,
             boolean showDocSize, double timeout, boolean noRetry, int traceLevel,
-            DocumentProtocol.Priority priority, String loadTypeName, boolean jsonOutput) {
+            DocumentProtocol.Priority priority, String loadTypeName, boolean jsonOutput, int maxPending) {
 
         this.help = help;
         this.documentIds = documentIds;
@@ -61,6 +63,7 @@ public class ClientParameters {
         this.priority = priority;
         this.loadTypeName = loadTypeName;
         this.jsonOutput = jsonOutput;
+        this.maxPending = maxPending;
     }
 
     public static class Builder {
@@ -78,6 +81,7 @@ public class ClientParameters {
         private DocumentProtocol.Priority priority;
         private String loadTypeName;
         private boolean jsonOutput;
+        private int maxPending = 1;
 
         public Builder setHelp(boolean help) {
             this.help = help;
@@ -149,10 +153,15 @@ public class ClientParameters {
             return this;
         }
 
+        public Builder setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
         public ClientParameters build() {
             return new ClientParameters(
                     help, documentIds, printIdsOnly, fieldSet, route, cluster, configId,
-                    showDocSize, timeout, noRetry, traceLevel, priority, loadTypeName, jsonOutput);
+                    showDocSize, timeout, noRetry, traceLevel, priority, loadTypeName, jsonOutput, maxPending);
         }
     }
 
@@ -37,6 +37,7 @@ public class CommandLineOptions {
     public static final String LOADTYPE_OPTION = "loadtype";
     public static final String JSONOUTPUT_OPTION = "jsonoutput";
     public static final String XMLOUTPUT_OPTION = "xmloutput";
+    public static final String MAXPENDING_OPTION = "maxpending";
 
     private final Options options = createOptions();
     private final InputStream stdIn;
@@ -135,6 +136,13 @@ public class CommandLineOptions {
                 .desc("XML output")
                 .longOpt(XMLOUTPUT_OPTION).build());
 
+        options.addOption(Option.builder("m")
+                .hasArg(true)
+                .desc("Max number of requests in flight at once. Higher values speed up retrieving many documents (default 1).")
+                .longOpt(MAXPENDING_OPTION)
+                .argName("maxpending")
+                .type(Number.class).build());
+
         return options;
     }
 
@@ -167,6 +175,7 @@ public class CommandLineOptions {
             int trace = getTrace(cl);
             DocumentProtocol.Priority priority = getPriority(cl);
             double timeout = getTimeout(cl);
+            int maxPending = getMaxPending(cl);
             Iterator<String> documentIds = getDocumentIds(cl);
 
             if (jsonOutput && xmlOutput) {
@@ -195,6 +204,10 @@ public class CommandLineOptions {
                 throw new IllegalArgumentException("Invalid tracelevel: " + trace);
             }
 
+            if (maxPending < 1) {
+                throw new IllegalArgumentException("Max pending must be at least 1, not " + maxPending);
+            }
+
             if (configId.isEmpty()) {
                 configId = "client";
             }
@@ -215,6 +228,7 @@ public class CommandLineOptions {
                     .setPriority(priority)
                     .setTimeout(timeout)
                     .setJsonOutput(!xmlOutput)
+                    .setMaxPending(maxPending)
                     .build();
         } catch (ParseException pe) {
             throw new IllegalArgumentException(pe.getMessage());
@@ -243,6 +257,11 @@ public class CommandLineOptions {
         return traceObj != null ? traceObj.intValue() : 0;
     }
 
+    private static int getMaxPending(CommandLine cl) throws ParseException {
+        Number maxPendingObj = (Number) cl.getParsedOptionValue(MAXPENDING_OPTION);
+        return maxPendingObj != null ? maxPendingObj.intValue() : 1;
+    }
+
     private static DocumentProtocol.Priority getPriority(CommandLine cl) throws ParseException {
         String priority = cl.getOptionValue(PRIORITY_OPTION, "NORMAL_2");
         return parsePriority(priority);
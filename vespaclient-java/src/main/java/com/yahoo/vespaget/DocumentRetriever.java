@@ -4,7 +4,13 @@ package com.yahoo.vespaget;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
 import com.yahoo.document.json.JsonWriter;
+import com.yahoo.documentapi.AsyncParameters;
+import com.yahoo.documentapi.DocumentResponse;
+import com.yahoo.documentapi.Response;
+import com.yahoo.documentapi.ResponseHandler;
+import com.yahoo.documentapi.Result;
 import com.yahoo.documentapi.SyncParameters;
+import com.yahoo.documentapi.messagebus.MessageBusAsyncSession;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
 import com.yahoo.documentapi.messagebus.MessageBusParams;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
@@ -19,8 +25,14 @@ import com.yahoo.text.Utf8;
 import com.yahoo.vespaclient.ClusterDef;
 import com.yahoo.vespaclient.ClusterList;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * The document retriever is responsible for retrieving documents using the Document API and printing the result to standard out.
@@ -35,6 +47,7 @@ public class DocumentRetriever {
     private final LoadTypeSet loadTypeSet;
 
     private MessageBusSyncSession session;
+    private MessageBusAsyncSession asyncSession;
     private MessageBusDocumentAccess documentAccess;
 
     public DocumentRetriever(ClusterList clusterList,
@@ -52,6 +65,9 @@ public class DocumentRetriever {
             if (session != null) {
                 session.destroy();
             }
+            if (asyncSession != null) {
+                asyncSession.destroy();
+            }
         } catch (IllegalStateException e) {
             // Ignore exception on shutdown
         }
@@ -65,40 +81,132 @@ public class DocumentRetriever {
     }
 
     public void retrieveDocuments() throws DocumentRetrieverException {
-        boolean first = true;
         String route = params.cluster.isEmpty() ? params.route : resolveClusterRoute(params.cluster);
         LoadType loadType = params.loadTypeName.isEmpty() ? null : resolveLoadType(params.loadTypeName);
 
         MessageBusParams messageBusParams = createMessageBusParams(params.configId, params.timeout, route);
         documentAccess = documentAccessFactory.createDocumentAccess(messageBusParams);
-        session = documentAccess.createSyncSession(new SyncParameters.Builder().build());
-        int trace = params.traceLevel;
-        if (trace > 0) {
-            session.setTraceLevel(trace);
-        }
 
         Iterator<String> iter = params.documentIds;
         if (params.jsonOutput && !params.printIdsOnly) {
             System.out.println('[');
         }
-        while (iter.hasNext()) {
-            if (params.jsonOutput && !params.printIdsOnly) {
-                if (!first) {
-                    System.out.println(',');
-                } else {
-                    first = false;
-                }
+        if (params.maxPending > 1) {
+            retrievePipelined(iter, loadType);
+        } else {
+            session = documentAccess.createSyncSession(new SyncParameters.Builder().build());
+            int trace = params.traceLevel;
+            if (trace > 0) {
+                session.setTraceLevel(trace);
+            }
+            boolean first = true;
+            while (iter.hasNext()) {
+                String docid = iter.next();
+                Message msg = createDocumentRequest(docid, loadType);
+                Reply reply = session.syncSend(msg);
+                printReply(reply, first);
+                first = false;
             }
-            String docid = iter.next();
-            Message msg = createDocumentRequest(docid, loadType);
-            Reply reply = session.syncSend(msg);
-            printReply(reply);
         }
         if (params.jsonOutput && !params.printIdsOnly) {
             System.out.println(']');
         }
     }
 
+    /**
+     * Keeps up to maxPending requests in flight on an asynchronous session, and prints the responses in the order
+     * of the document ids. Traces of these requests are logged by the session, rather than printed.
+     */
+    private void retrievePipelined(Iterator<String> iter, LoadType loadType) throws DocumentRetrieverException {
+        Semaphore inFlight = new Semaphore(params.maxPending);
+        PendingResponses responses = new PendingResponses(inFlight);
+        asyncSession = documentAccess.createAsyncSession(new AsyncParameters().setResponseHandler(responses));
+        int trace = params.traceLevel;
+        if (trace > 0) {
+            asyncSession.setTraceLevel(trace);
+        }
+
+        Deque<CompletableFuture<Response>> pending = new ArrayDeque<>();
+        boolean first = true;
+        while (iter.hasNext() || ! pending.isEmpty()) {
+            if (iter.hasNext() && inFlight.tryAcquire()) {
+                pending.add(send(createDocumentRequest(iter.next(), loadType), responses));
+            } else {
+                printResponse(awaitResponse(pending.poll()), first);
+                first = false;
+            }
+        }
+    }
+
+    /** Sends the given message, retrying while the session is full, and returns its future response */
+    private CompletableFuture<Response> send(Message msg, PendingResponses responses) throws DocumentRetrieverException {
+        try {
+            Result result;
+            while ((result = asyncSession.send(msg)).type() == Result.ResultType.TRANSIENT_ERROR) {
+                Thread.sleep(100);
+            }
+            if ( ! result.isSuccess()) {
+                responses.inFlight.release();
+                return CompletableFuture.completedFuture(new Response(0, result.getError().getMessage(), false));
+            }
+            return responses.futureOf(result.getRequestId());
+        } catch (InterruptedException e) {
+            throw new DocumentRetrieverException("Interrupted while sending request", e);
+        }
+    }
+
+    private static Response awaitResponse(CompletableFuture<Response> response) throws DocumentRetrieverException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            throw new DocumentRetrieverException("Interrupted while waiting for reply", e);
+        } catch (ExecutionException e) {
+            throw new DocumentRetrieverException("Failed retrieving document", e.getCause());
+        }
+    }
+
+    /**
+     * Completes the future of each request as its response arrives, and releases its permit. As a response may
+     * arrive before the id of its request is returned to the sender, each id is a rendezvous, where the last
+     * of the future and the response to arrive completes the future.
+     */
+    private static class PendingResponses implements ResponseHandler {
+
+        private final Map<Long, Object> rendezvous = new ConcurrentHashMap<>();
+        private final Semaphore inFlight;
+
+        PendingResponses(Semaphore inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void handleResponse(Response response) {
+            inFlight.release();
+            meet(response.getRequestId(), response);
+        }
+
+        CompletableFuture<Response> futureOf(long requestId) {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            meet(requestId, future);
+            return future;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void meet(long requestId, Object arrival) {
+            Object other = rendezvous.putIfAbsent(requestId, arrival);
+            if (other == null) {
+                return;
+            }
+            rendezvous.remove(requestId);
+            if (other instanceof CompletableFuture) {
+                ((CompletableFuture<Response>) other).complete((Response) arrival);
+            } else {
+                ((CompletableFuture<Response>) arrival).complete((Response) other);
+            }
+        }
+
+    }
+
     private String resolveClusterRoute(String clusterName) throws DocumentRetrieverException {
         if (clusterList.getStorageClusters().isEmpty()) {
             throw new DocumentRetrieverException("The Vespa cluster does not have any content clusters declared.");
@@ -152,7 +260,8 @@ public class DocumentRetriever {
         return msg;
     }
 
-    private void printReply(Reply reply) {
+    private void printReply(Reply reply, boolean first) {
+        printSeparator(first);
         Trace trace = reply.getTrace();
         if (!trace.getRoot().isEmpty()) {
             System.out.println(trace);
@@ -172,9 +281,31 @@ public class DocumentRetriever {
             return;
         }
 
-        GetDocumentReply documentReply = (GetDocumentReply) reply;
-        Document document = documentReply.getDocument();
+        printDocument(((GetDocumentReply) reply).getDocument());
+    }
+
+    private void printResponse(Response response, boolean first) {
+        printSeparator(first);
+        if ( ! response.isSuccess()) {
+            System.err.printf("Request failed: \n  %s\n", response.getTextMessage());
+            return;
+        }
+
+        if (!(response instanceof DocumentResponse)) {
+            System.err.printf("Unexpected response: '%s'\n", response.toString());
+            return;
+        }
+
+        printDocument(((DocumentResponse) response).getDocument());
+    }
+
+    private void printSeparator(boolean first) {
+        if (params.jsonOutput && !params.printIdsOnly && !first) {
+            System.out.println(',');
+        }
+    }
 
+    private void printDocument(Document document) {
         if (document == null) {
             System.out.println("Document not found.");
             return;
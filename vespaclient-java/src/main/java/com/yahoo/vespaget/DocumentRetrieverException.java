@@ -11,4 +11,8 @@ public class DocumentRetrieverException extends Exception {
     public DocumentRetrieverException(String message) {
         super(message);
     }
+
+    public DocumentRetrieverException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
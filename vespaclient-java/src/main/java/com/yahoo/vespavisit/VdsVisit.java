@@ -326,6 +326,24 @@ public class VdsVisit {
                 .desc("Skip visiting super buckets with fatal error codes.")
                 .build());
 
+        options.addOption(Option.builder()
+                .longOpt("slices")
+                .hasArg(true)
+                .argName("num")
+                .desc("Split the visit into this many disjoint slices of the bucket space, and visit only the one " +
+                      "given by --sliceid. Running all slices concurrently, each with its own progress file, " +
+                      "visits the same documents as a single visit which is not sliced.")
+                .type(Number.class)
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("sliceid")
+                .hasArg(true)
+                .argName("id")
+                .desc("The slice to visit, in [0, slices). Defaults to 0.")
+                .type(Number.class)
+                .build());
+
         options.addOption(Option.builder()
                 .longOpt("jsonoutput")
                 .desc("Output documents as JSON (default format)")
@@ -552,6 +570,12 @@ public class VdsVisit {
                 throttlePolicy.setMaxPendingCount(((Number)line.getParsedOptionValue("maxpendingsuperbuckets")).intValue());
                 params.setThrottlePolicy(throttlePolicy);
             }
+            if (line.hasOption("slices")) {
+                int sliceId = line.hasOption("sliceid") ? ((Number)line.getParsedOptionValue("sliceid")).intValue() : 0;
+                params.slice(((Number)line.getParsedOptionValue("slices")).intValue(), sliceId);
+            } else if (line.hasOption("sliceid")) {
+                throw new IllegalArgumentException("Option --sliceid requires --slices");
+            }
 
             boolean jsonOutput = line.hasOption("jsonoutput");
             boolean xmlOutput = line.hasOption("xmloutput");
@@ -658,6 +682,9 @@ public class VdsVisit {
         if (params.skipBucketsOnFatalErrors()) {
             out.println("Skip visiting super buckets with fatal errors.");
         }
+        if (params.getSlices() > 1) {
+            out.println("Visiting slice " + params.getSliceId() + " of " + params.getSlices() + ".");
+        }
     }
 
     private void onDocumentSelectionException(Exception e) {
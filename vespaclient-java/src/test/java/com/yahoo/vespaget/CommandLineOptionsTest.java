@@ -55,6 +55,7 @@ public class CommandLineOptionsTest {
         assertEquals(0, params.traceLevel);
         assertEquals(DocumentProtocol.Priority.NORMAL_2, params.priority);
         assertTrue(params.loadTypeName.isEmpty());
+        assertEquals(1, params.maxPending);
     }
 
     @Test
@@ -135,6 +136,18 @@ public class CommandLineOptionsTest {
         getParsedOptions("--trace", "10");
     }
 
+    @Test
+    public void testMaxPending() {
+        assertEquals(64, getParsedOptions("--maxpending", "64").maxPending);
+    }
+
+    @Test
+    public void testInvalidMaxPending() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Max pending must be at least 1, not 0");
+        getParsedOptions("--maxpending", "0");
+    }
+
     @Test
     public void testPrintids() {
         ClientParameters params = getParsedOptions("--printids");
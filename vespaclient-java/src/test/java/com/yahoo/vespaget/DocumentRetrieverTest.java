@@ -6,6 +6,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
+import com.yahoo.documentapi.AsyncParameters;
+import com.yahoo.documentapi.DocumentResponse;
+import com.yahoo.documentapi.ResponseHandler;
+import com.yahoo.documentapi.Result;
+import com.yahoo.documentapi.messagebus.MessageBusAsyncSession;
 import com.yahoo.documentapi.messagebus.MessageBusDocumentAccess;
 import com.yahoo.documentapi.messagebus.MessageBusSyncSession;
 import com.yahoo.documentapi.messagebus.loadtypes.LoadType;
@@ -27,11 +32,13 @@ import org.mockito.ArgumentMatcher;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -59,6 +66,7 @@ public class DocumentRetrieverTest {
     private DocumentAccessFactory mockedFactory;
     private MessageBusDocumentAccess mockedDocumentAccess;
     private MessageBusSyncSession mockedSession;
+    private MessageBusAsyncSession mockedAsyncSession;
     private PrintStream oldOut;
     private PrintStream oldErr;
 
@@ -78,6 +86,7 @@ public class DocumentRetrieverTest {
         this.mockedFactory = mock(DocumentAccessFactory.class);
         this.mockedDocumentAccess = mock(MessageBusDocumentAccess.class);
         this.mockedSession = mock(MessageBusSyncSession.class);
+        this.mockedAsyncSession = mock(MessageBusAsyncSession.class);
         when(mockedFactory.createDocumentAccess(any())).thenReturn(mockedDocumentAccess);
         when(mockedDocumentAccess.createSyncSession(any())).thenReturn(mockedSession);
     }
@@ -203,6 +212,43 @@ public class DocumentRetrieverTest {
         assertEquals(DOC_ID_3, feed.get(2).get("id"));
     }
 
+    @Test
+    public void testPipelinedRetrievalPrintsDocumentsInIdOrder() throws DocumentRetrieverException, IOException {
+        ClientParameters params = createParameters()
+                .setDocumentIds(asIterator(DOC_ID_1, DOC_ID_2, DOC_ID_3))
+                .setJsonOutput(true)
+                .setMaxPending(3)
+                .build();
+
+        // Responses arrive in reverse order when all requests are in flight, the last before its send returns
+        AtomicReference<ResponseHandler> handler = new AtomicReference<>();
+        when(mockedDocumentAccess.createAsyncSession(any())).thenAnswer(invocation -> {
+            handler.set(((AsyncParameters) invocation.getArgument(0)).getResponseHandler());
+            return mockedAsyncSession;
+        });
+        List<DocumentId> sent = new ArrayList<>();
+        when(mockedAsyncSession.send(any())).thenAnswer(invocation -> {
+            sent.add(((GetDocumentMessage) invocation.getArgument(0)).getDocumentId());
+            if (sent.size() == 3) {
+                for (int i = sent.size(); i > 0; i--)
+                    handler.get().handleResponse(new DocumentResponse(i, new Document(DataType.DOCUMENT, sent.get(i - 1))));
+            }
+            return new Result(sent.size());
+        });
+
+        DocumentRetriever documentRetriever = createDocumentRetriever(params);
+        documentRetriever.retrieveDocuments();
+
+        verify(mockedAsyncSession, times(3)).send(any());
+        ObjectMapper m = new ObjectMapper();
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> feed = m.readValue(outContent.toByteArray(), List.class);
+        assertEquals(3, feed.size());
+        assertEquals(DOC_ID_1, feed.get(0).get("id"));
+        assertEquals(DOC_ID_2, feed.get(1).get("id"));
+        assertEquals(DOC_ID_3, feed.get(2).get("id"));
+    }
+
     @Test
     public void testShutdownHook() throws DocumentRetrieverException {
         ClientParameters params = createParameters()
@@ -128,7 +128,9 @@ public class VdsVisitTestCase {
                 "--skipbucketsonfatalerrors",
                 "--abortonclusterdown",
                 "--visitremoves",
-                "--bucketspace", "outerspace"
+                "--bucketspace", "outerspace",
+                "--slices", "4",
+                "--sliceid", "1"
         };
         VdsVisit.ArgumentParser parser = createMockArgumentParser();
         VdsVisit.VdsVisitParameters allParams = parser.parse(args);
@@ -163,6 +165,8 @@ public class VdsVisitTestCase {
         assertEquals(DocumentProtocol.Priority.NORMAL_1, params.getPriority());
         assertTrue(allParams.getAbortOnClusterDown());
         assertTrue(params.visitRemoves());
+        assertEquals(4, params.getSlices());
+        assertEquals(1, params.getSliceId());
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         PrintStream printStream = new PrintStream(outputStream);
@@ -185,7 +189,8 @@ public class VdsVisitTestCase {
                         "Adding the following library specific parameters:" + nl +
                         "  asdf = rargh" + nl +
                         "Visitor priority NORMAL_1" + nl +
-                        "Skip visiting super buckets with fatal errors." + nl,
+                        "Skip visiting super buckets with fatal errors." + nl +
+                        "Visiting slice 1 of 4." + nl,
                 outputStream.toString("utf-8"));
     }
 
@@ -3,6 +3,7 @@ package com.yahoo.collections;
 
 import com.yahoo.text.Utf8;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -34,6 +35,21 @@ public class MD5 {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Writes the 16 byte MD5 digest of the given bytes to the start of the given output array,
+     * using the digest of the calling thread. Unlike {@link MessageDigest#digest(byte[])}, this allocates nothing.
+     */
+    public static void digest(byte[] input, int offset, int length, byte[] output) {
+        MessageDigest digester = md5.get();
+        digester.update(input, offset, length);
+        try {
+            digester.digest(output, 0, 16);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     final private MessageDigest digester;
     public MD5() {
         try {